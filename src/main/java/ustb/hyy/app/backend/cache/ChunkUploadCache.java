@@ -0,0 +1,168 @@
+package ustb.hyy.app.backend.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.dto.request.ChunkUploadInitRequest;
+
+/**
+ * 分片上传会话缓存服务
+ * 会话保存上传参数和已接收数据的哈希状态，已接收的字节数以磁盘上分片文件的实际大小为准
+ *
+ * @author 侯阳洋
+ * @since 2025-10-20
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChunkUploadCache {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private static final String SESSION_KEY_PREFIX = "upload:session:";
+    private static final String COMPLETING_KEY_PREFIX = "upload:completing:";
+
+    /**
+     * 完成标记的过期时间（分钟），进程在完成过程中退出时标记自动失效
+     */
+    private static final long COMPLETING_EXPIRE_MINUTES = 10L;
+
+    /**
+     * 会话过期时间（小时），超过该时间未接收分片的上传视为已放弃
+     */
+    public static final long SESSION_EXPIRE_HOURS = 24L;
+
+    /**
+     * 保存上传会话
+     *
+     * @param session 上传会话
+     */
+    public void saveSession(UploadSession session) {
+        String key = SESSION_KEY_PREFIX + session.getUploadId();
+        redisTemplate.opsForValue().set(key, session, SESSION_EXPIRE_HOURS, TimeUnit.HOURS);
+        log.debug("上传会话已缓存，uploadId: {}", session.getUploadId());
+    }
+
+    /**
+     * 获取上传会话
+     *
+     * @param uploadId 上传会话ID
+     * @return 上传会话，不存在则返回null
+     */
+    public UploadSession getSession(String uploadId) {
+        try {
+            return (UploadSession) redisTemplate.opsForValue().get(SESSION_KEY_PREFIX + uploadId);
+        } catch (Exception e) {
+            log.error("获取上传会话失败，uploadId: {}", uploadId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 判断上传会话是否存在（Redis 不可用时抛出异常，调用方不能据此认为会话已过期）
+     *
+     * @param uploadId 上传会话ID
+     * @return 会话是否存在
+     */
+    public boolean sessionExists(String uploadId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(SESSION_KEY_PREFIX + uploadId));
+    }
+
+    /**
+     * 刷新上传会话过期时间（每接收一个分片调用一次）
+     *
+     * @param uploadId 上传会话ID
+     */
+    public void touchSession(String uploadId) {
+        try {
+            redisTemplate.expire(SESSION_KEY_PREFIX + uploadId, SESSION_EXPIRE_HOURS, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.error("刷新上传会话过期时间失败，uploadId: {}", uploadId, e);
+        }
+    }
+
+    /**
+     * 删除上传会话
+     *
+     * @param uploadId 上传会话ID
+     */
+    public void deleteSession(String uploadId) {
+        try {
+            redisTemplate.delete(SESSION_KEY_PREFIX + uploadId);
+            log.debug("上传会话已删除，uploadId: {}", uploadId);
+        } catch (Exception e) {
+            log.error("删除上传会话失败，uploadId: {}", uploadId, e);
+        }
+    }
+
+    /**
+     * 标记上传正在完成（SETNX），同一上传只有一个请求能标记成功
+     *
+     * @param uploadId 上传会话ID
+     * @return 标记成功返回true，已有其他请求正在完成返回false
+     */
+    public boolean markCompleting(String uploadId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(COMPLETING_KEY_PREFIX + uploadId, 1, COMPLETING_EXPIRE_MINUTES, TimeUnit.MINUTES));
+    }
+
+    /**
+     * 判断上传是否正在完成（正在完成的上传不能再写入分片或取消）
+     *
+     * @param uploadId 上传会话ID
+     * @return 是否正在完成
+     */
+    public boolean isCompleting(String uploadId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(COMPLETING_KEY_PREFIX + uploadId));
+    }
+
+    /**
+     * 清除完成标记
+     *
+     * @param uploadId 上传会话ID
+     */
+    public void clearCompleting(String uploadId) {
+        try {
+            redisTemplate.delete(COMPLETING_KEY_PREFIX + uploadId);
+        } catch (Exception e) {
+            log.error("清除上传完成标记失败，uploadId: {}", uploadId, e);
+        }
+    }
+
+    /**
+     * 上传会话
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UploadSession {
+
+        /**
+         * 上传会话ID
+         */
+        private String uploadId;
+
+        /**
+         * 初始化时提交的文件信息和任务参数
+         */
+        private ChunkUploadInitRequest request;
+
+        /**
+         * 创建时间（毫秒时间戳）
+         */
+        private Long createdAt;
+
+        /**
+         * 已接收数据的 SHA-256 中间状态（{@link ustb.hyy.app.backend.common.util.ResumableSha256} 导出），
+         * 可能落后于分片文件，状态无效时为null
+         */
+        private byte[] hashState;
+    }
+}
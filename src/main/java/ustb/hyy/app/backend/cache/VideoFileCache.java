@@ -0,0 +1,144 @@
+package ustb.hyy.app.backend.cache;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 任务视频文件解析缓存
+ * 缓存 (taskId, 视频类型) 到文件路径、大小、修改时间、Content-Type 的解析结果，
+ * 浏览器拖动进度条时的大量范围请求不再查询数据库；任务视频路径变更或任务删除时需调用 {@link #evict(Long)}
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Slf4j
+@Component
+public class VideoFileCache {
+
+    private static final String[] VIDEO_TYPES = {"original", "result", "preprocessed"};
+
+    /**
+     * 版本号分组数（按任务ID散列，同组任务共用版本号，误判只会让本次解析结果不写入缓存）
+     */
+    private static final int GENERATION_STRIPES = 1024;
+
+    @Value("${app.video.file-cache-size:2000}")
+    private int maxEntries;
+
+    private Map<String, VideoFile> entries;
+
+    /**
+     * 任务缓存版本号，每次移除时加一；解析前记录版本号，解析后版本号未变才写入缓存，
+     * 避免在移除之前读到旧路径的解析在移除之后才写入缓存
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /**
+     * 解析后的视频文件
+     *
+     * @param path         文件路径
+     * @param fileSize     文件大小（字节）
+     * @param lastModified 修改时间（毫秒）
+     * @param contentType  Content-Type
+     * @param duration     视频时长（秒）
+     */
+    public record VideoFile(Path path, long fileSize, long lastModified, String contentType, Integer duration) {
+    }
+
+    @PostConstruct
+    void init() {
+        int capacity = Math.max(1, maxEntries);
+        entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VideoFile> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * 获取解析结果，未命中时调用 loader 解析并缓存
+     *
+     * @param taskId 任务ID
+     * @param type   视频类型
+     * @param loader 解析函数（查询数据库并读取文件信息）
+     * @return 视频文件
+     */
+    public VideoFile get(Long taskId, String type, Supplier<VideoFile> loader) {
+        String key = toKey(taskId, type);
+        VideoFile file = entries.get(key);
+        if (file != null) {
+            return file;
+        }
+
+        long generation = generations.get(stripe(taskId));
+        file = loader.get();
+        // 与移除互斥：解析期间任务缓存被移除过时不写入，本次请求仍返回解析结果
+        synchronized (entries) {
+            if (generations.get(stripe(taskId)) == generation) {
+                entries.put(key, file);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * 替换已缓存的解析结果（文件被原地改写时调用）
+     *
+     * @param taskId 任务ID
+     * @param type   视频类型
+     * @param file   新的解析结果
+     */
+    public void put(Long taskId, String type, VideoFile file) {
+        entries.put(toKey(taskId, type), file);
+    }
+
+    /**
+     * 移除任务所有类型视频的解析结果
+     * 处于事务中时，提交后会再移除一次；移除前已开始的解析不会再写入缓存，避免并发请求把旧路径重新写入缓存
+     *
+     * @param taskId 任务ID
+     */
+    public void evict(Long taskId) {
+        evictNow(taskId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(taskId);
+                }
+            });
+        }
+    }
+
+    private void evictNow(Long taskId) {
+        synchronized (entries) {
+            generations.incrementAndGet(stripe(taskId));
+            for (String type : VIDEO_TYPES) {
+                entries.remove(toKey(taskId, type));
+            }
+        }
+        log.debug("已移除任务视频文件缓存，taskId: {}", taskId);
+    }
+
+    private int stripe(Long taskId) {
+        return Math.floorMod(Long.hashCode(taskId), GENERATION_STRIPES);
+    }
+
+    private String toKey(Long taskId, String type) {
+        return taskId + ":" + type.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,260 @@
+package ustb.hyy.app.backend.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.common.exception.ResourceNotFoundException;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+import ustb.hyy.app.backend.domain.entity.VideoProbe;
+import ustb.hyy.app.backend.repository.VideoProbeRepository;
+
+/**
+ * 视频探测结果缓存
+ * 以 (文件路径, 文件大小, 修改时间) 作为指纹，内存中为有界LRU，未命中时查询 video_probes 表，
+ * 仍未命中才打开 FFmpeg 探测，保证同一文件只探测一次
+ *
+ * @author 侯阳洋
+ * @since 2025-10-21
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VideoProbeCache {
+
+    private final VideoProbeRepository probeRepository;
+
+    @Value("${app.video.probe-cache-size:1000}")
+    private int maxEntries;
+
+    private Map<String, VideoProbe> entries;
+
+    @PostConstruct
+    void init() {
+        int capacity = Math.max(1, maxEntries);
+        entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VideoProbe> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * 获取视频信息（解析失败时抛出 BusinessException）
+     *
+     * @param file 视频文件
+     * @return 视频信息
+     */
+    public VideoUtils.VideoInfo getVideoInfo(Path file) {
+        String key = toKey(file);
+        BasicFileAttributes attributes = readAttributes(file);
+
+        VideoProbe probe = lookup(key, attributes);
+        if (probe != null && Boolean.TRUE.equals(probe.getProbed())) {
+            return toVideoInfo(probe);
+        }
+
+        VideoUtils.VideoInfo info = VideoUtils.getVideoInfo(key);
+        if (probe == null) {
+            probe = VideoProbe.builder()
+                    .filePath(key)
+                    .contentType(detectContentType(file))
+                    .build();
+        }
+        probe.setFileSize(attributes.size());
+        probe.setLastModified(attributes.lastModifiedTime().toMillis());
+        probe.setProbed(true);
+        probe.setWidth(info.getWidth());
+        probe.setHeight(info.getHeight());
+        probe.setFrameRate(info.getFrameRate());
+        probe.setTotalFrames(info.getTotalFrames());
+        probe.setDuration(info.getDuration());
+        probe.setFormat(info.getFormat());
+        probe.setCodec(info.getCodec());
+        probe.setAudioCodec(info.getAudioCodec());
+        probe.setAudioChannels(info.getAudioChannels());
+        store(key, probe);
+        return info;
+    }
+
+    /**
+     * 获取视频Content-Type（不需要FFmpeg探测）
+     *
+     * @param file 视频文件
+     * @return Content-Type
+     */
+    public String getContentType(Path file) {
+        String key = toKey(file);
+        BasicFileAttributes attributes = readAttributes(file);
+
+        VideoProbe probe = lookup(key, attributes);
+        if (probe != null) {
+            return probe.getContentType();
+        }
+
+        probe = VideoProbe.builder()
+                .filePath(key)
+                .fileSize(attributes.size())
+                .lastModified(attributes.lastModifiedTime().toMillis())
+                .contentType(detectContentType(file))
+                .build();
+        store(key, probe);
+        return probe.getContentType();
+    }
+
+    /**
+     * 文件重命名后迁移探测结果（重命名不改变文件内容和修改时间）
+     *
+     * @param source 原路径
+     * @param target 新路径
+     */
+    public void rename(Path source, Path target) {
+        String sourceKey = toKey(source);
+        String targetKey = toKey(target);
+        entries.remove(sourceKey);
+        try {
+            probeRepository.findByFilePath(targetKey).ifPresent(probeRepository::delete);
+            probeRepository.findByFilePath(sourceKey).ifPresent(probe -> {
+                probe.setFilePath(targetKey);
+                probe.setContentType(detectContentType(target));
+                store(targetKey, probe);
+            });
+        } catch (Exception e) {
+            log.warn("迁移视频探测结果失败: {} -> {}", sourceKey, targetKey, e);
+        }
+    }
+
+    /**
+     * 移除文件的探测结果（文件删除时调用）
+     *
+     * @param file 视频文件
+     */
+    public void evict(Path file) {
+        String key = toKey(file);
+        entries.remove(key);
+        try {
+            probeRepository.findByFilePath(key).ifPresent(probeRepository::delete);
+        } catch (Exception e) {
+            log.warn("移除视频探测结果失败: {}", key, e);
+        }
+    }
+
+    /**
+     * 按指纹查找探测结果：先查内存，再查数据库，指纹不一致视为未命中
+     */
+    private VideoProbe lookup(String key, BasicFileAttributes attributes) {
+        VideoProbe probe = entries.get(key);
+        if (probe != null && matches(probe, attributes)) {
+            return probe;
+        }
+
+        try {
+            probe = probeRepository.findByFilePath(key).orElse(null);
+        } catch (Exception e) {
+            log.warn("查询视频探测结果失败: {}", key, e);
+            return null;
+        }
+        if (probe == null) {
+            return null;
+        }
+        if (!matches(probe, attributes)) {
+            // 文件已变化，保留记录ID，重新探测后覆盖
+            probe.setProbed(false);
+            probe.setFileSize(attributes.size());
+            probe.setLastModified(attributes.lastModifiedTime().toMillis());
+            return null;
+        }
+        entries.put(key, probe);
+        return probe;
+    }
+
+    private boolean matches(VideoProbe probe, BasicFileAttributes attributes) {
+        return probe.getFileSize() == attributes.size()
+                && probe.getLastModified() == attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * 写入内存缓存并持久化，持久化失败（如并发写入同一文件）不影响本次结果
+     */
+    private void store(String key, VideoProbe probe) {
+        VideoProbe saved = probe;
+        try {
+            if (probe.getId() == null) {
+                probeRepository.findByFilePath(key).ifPresent(existing -> probe.setId(existing.getId()));
+            }
+            saved = probeRepository.save(probe);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("视频探测结果已由其他请求写入: {}", key);
+        } catch (Exception e) {
+            log.warn("持久化视频探测结果失败: {}", key, e);
+        }
+        entries.put(key, saved);
+    }
+
+    private String toKey(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("视频文件不存在");
+        }
+    }
+
+    private VideoUtils.VideoInfo toVideoInfo(VideoProbe probe) {
+        VideoUtils.VideoInfo info = new VideoUtils.VideoInfo();
+        info.setWidth(probe.getWidth());
+        info.setHeight(probe.getHeight());
+        info.setFrameRate(probe.getFrameRate());
+        info.setTotalFrames(probe.getTotalFrames());
+        info.setDuration(probe.getDuration());
+        info.setFormat(probe.getFormat());
+        info.setCodec(probe.getCodec());
+        info.setAudioCodec(probe.getAudioCodec());
+        info.setAudioChannels(probe.getAudioChannels());
+        return info;
+    }
+
+    /**
+     * 识别Content-Type，系统无法识别时根据文件扩展名判断
+     */
+    private String detectContentType(Path file) {
+        String contentType = null;
+        try {
+            contentType = Files.probeContentType(file);
+        } catch (IOException e) {
+            log.debug("系统无法识别Content-Type: {}", file, e);
+        }
+        if (contentType != null) {
+            return contentType;
+        }
+
+        String lowerFilename = file.getFileName().toString().toLowerCase();
+        if (lowerFilename.endsWith(".mp4")) {
+            return "video/mp4";
+        } else if (lowerFilename.endsWith(".mkv")) {
+            return "video/x-matroska";
+        } else if (lowerFilename.endsWith(".webm")) {
+            return "video/webm";
+        } else if (lowerFilename.endsWith(".avi")) {
+            return "video/x-msvideo";
+        } else if (lowerFilename.endsWith(".mov")) {
+            return "video/quicktime";
+        }
+        return "video/mp4"; // 最终默认值
+    }
+}
@@ -2,6 +2,7 @@ package ustb.hyy.app.backend.common.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.catalina.connector.ClientAbortException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
@@ -37,6 +38,18 @@ public class GlobalExceptionHandler {
                 .body(Result.error(e.getCode(), e.getMessage()));
     }
 
+    /**
+     * 处理服务繁忙异常（返回429并携带Retry-After）
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Result<Void>> handleTooManyRequestsException(TooManyRequestsException e) {
+        log.warn("服务繁忙: {}, 建议 {} 秒后重试", e.getMessage(), e.getRetryAfterSeconds());
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Result.error(e.getCode(), e.getMessage()));
+    }
+
     /**
      * 处理资源未找到异常
      */
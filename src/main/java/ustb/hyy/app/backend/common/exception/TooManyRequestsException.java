@@ -0,0 +1,23 @@
+package ustb.hyy.app.backend.common.exception;
+
+import lombok.Getter;
+
+/**
+ * 服务繁忙异常（HTTP 429），携带建议的重试等待时间
+ *
+ * @author 侯阳洋
+ * @since 2025-10-21
+ */
+@Getter
+public class TooManyRequestsException extends BusinessException {
+
+    /**
+     * 建议客户端等待的秒数（Retry-After）
+     */
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(429, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
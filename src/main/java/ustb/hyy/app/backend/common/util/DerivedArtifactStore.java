@@ -0,0 +1,189 @@
+package ustb.hyy.app.backend.common.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 视频派生产物目录（HLS分片、预览等）的后台生成与管理
+ * <p>
+ * 每个视频文件版本（文件名 + 修改时间）对应根目录下的一个子目录，目录名即标识，视频被替换后标识随之变化。
+ * 生成在后台线程池中进行，先写入临时目录，完成后整体重命名，读取方不会看到未完成的文件；
+ * 目录存在即表示生成完成，同一标识同时只生成一次，队列已满时跳过（下次访问时再提交）。
+ * </p>
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+@Slf4j
+public class DerivedArtifactStore {
+
+    private static final String TEMP_DIR_PREFIX = ".tmp-";
+
+    private final String name;
+    private final Path root;
+    private final Executor executor;
+
+    /**
+     * 正在生成的标识，避免同一视频重复生成
+     */
+    private final Set<String> building = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param name     产物名称（用于日志，如"HLS打包"）
+     * @param root     根目录
+     * @param executor 生成使用的线程池
+     */
+    public DerivedArtifactStore(String name, Path root, Executor executor) {
+        this.name = name;
+        this.root = root;
+        this.executor = executor;
+    }
+
+    /**
+     * 提交后台生成，已生成或正在生成时直接返回
+     *
+     * @param video   视频文件
+     * @param builder 生成逻辑，向临时目录写入产物
+     */
+    public void submit(Path video, Builder builder) {
+        String key;
+        try {
+            key = getKey(video, Files.getLastModifiedTime(video).toMillis());
+        } catch (IOException e) {
+            log.warn("视频文件不存在，跳过{}: {}", name, video, e);
+            return;
+        }
+        if (Files.exists(getDirectory(key)) || !building.add(key)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    build(video, key, builder);
+                } finally {
+                    building.remove(key);
+                }
+            });
+            log.info("已提交{}: {}, key: {}", name, video, key);
+        } catch (RejectedExecutionException e) {
+            building.remove(key);
+            log.warn("{}队列已满，跳过: {}", name, video);
+        }
+    }
+
+    /**
+     * 计算视频文件指定版本的标识
+     *
+     * @param video        视频文件
+     * @param lastModified 文件修改时间（毫秒）
+     * @return 标识（只包含字母、数字、下划线和连字符）
+     */
+    public String getKey(Path video, long lastModified) {
+        return toKeyPrefix(video) + Long.toHexString(lastModified);
+    }
+
+    /**
+     * 获取标识对应的目录，目录存在即表示生成完成
+     */
+    public Path getDirectory(String key) {
+        return root.resolve(key);
+    }
+
+    /**
+     * 删除视频文件所有版本的目录（视频文件删除时调用）
+     *
+     * @param video 视频文件
+     */
+    public void delete(Path video) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        String prefix = toKeyPrefix(video);
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, prefix + "*")) {
+            for (Path dir : dirs) {
+                // 前缀之后只能是修改时间，避免误删以相同前缀开头的其他视频的目录
+                if (!dir.getFileName().toString().substring(prefix.length()).matches("[0-9a-f]+")) {
+                    continue;
+                }
+                deleteDirectory(dir);
+                log.info("已删除{}目录: {}", name, dir);
+            }
+        } catch (IOException e) {
+            log.warn("删除{}目录失败: {}", name, video, e);
+        }
+    }
+
+    private void build(Path video, String key, Builder builder) {
+        Path target = getDirectory(key);
+        Path tempDir = root.resolve(TEMP_DIR_PREFIX + key);
+        try {
+            deleteDirectory(tempDir);
+            Files.createDirectories(tempDir);
+
+            builder.build(video, tempDir, key);
+
+            Files.move(tempDir, target, StandardCopyOption.ATOMIC_MOVE);
+            log.info("{}完成: {}, key: {}", name, video, key);
+        } catch (Exception e) {
+            log.error("{}失败: {}", name, video, e);
+        } finally {
+            try {
+                deleteDirectory(tempDir);
+            } catch (IOException e) {
+                log.warn("清理{}临时目录失败: {}", name, tempDir, e);
+            }
+        }
+    }
+
+    /**
+     * 标识前缀：文件名（去掉扩展名，非法字符替换为下划线）+ 连字符
+     */
+    private static String toKeyPrefix(Path video) {
+        String filename = video.getFileName().toString();
+        int lastDotIndex = filename.lastIndexOf('.');
+        if (lastDotIndex > 0) {
+            filename = filename.substring(0, lastDotIndex);
+        }
+        return filename.replaceAll("[^A-Za-z0-9_-]", "_") + "-";
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * 产物生成逻辑
+     */
+    @FunctionalInterface
+    public interface Builder {
+
+        /**
+         * 生成产物
+         *
+         * @param video   视频文件
+         * @param tempDir 临时目录（生成完成后重命名为正式目录）
+         * @param key     标识
+         * @throws Exception 生成失败时抛出，临时目录会被清理
+         */
+        void build(Path video, Path tempDir, String key) throws Exception;
+    }
+}
@@ -0,0 +1,349 @@
+package ustb.hyy.app.backend.common.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MP4/MOV faststart 工具类（与 qt-faststart 相同的做法）
+ * <p>
+ * 只在文件层面把 moov atom 移到第一个 mdat 之前，并修正 stco/co64 中的块偏移（32 位偏移溢出时把 stco 升级为 co64），
+ * 所有轨道（视频、音频、字幕、数据）的数据原样复制，不经过解复用和复用，不会丢失任何流。
+ * moov 已在 mdat 之前的文件不做任何修改。
+ * </p>
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+@Slf4j
+public class FaststartUtils {
+
+    /**
+     * 需要进入查找块偏移表的容器 atom
+     */
+    private static final Set<String> CONTAINER_TYPES = Set.of("moov", "trak", "mdia", "minf", "stbl");
+
+    /**
+     * moov 大小上限（整体读入内存修改）
+     */
+    private static final long MAX_MOOV_SIZE = 256L * 1024 * 1024;
+
+    private FaststartUtils() {
+    }
+
+    /**
+     * 把 moov 移到文件开头（第一个 mdat 之前），先写临时文件再替换原文件
+     *
+     * @param video 视频文件
+     * @return 已重写返回true；moov 已在开头时返回false（文件保持不变）
+     * @throws IOException 文件不是有效的 MP4/MOV 或读写失败时抛出
+     */
+    public static boolean relocateMoov(Path video) throws IOException {
+        Path tempFile = video.resolveSibling(video.getFileName() + ".faststart.tmp");
+
+        try (FileChannel in = FileChannel.open(video, StandardOpenOption.READ)) {
+            long fileSize = in.size();
+            long moovOffset = -1;
+            long moovSize = 0;
+            long mdatOffset = -1;
+
+            // 1. 扫描顶层 atom
+            long position = 0;
+            while (position < fileSize) {
+                ByteBuffer header = readFully(in, position, (int) Math.min(16, fileSize - position));
+                if (header.remaining() < 8) {
+                    throw new IOException("atom 头不完整，偏移量: " + position);
+                }
+                long size = header.getInt(0) & 0xFFFFFFFFL;
+                String type = typeOf(header, 4);
+                if (size == 1) {
+                    if (header.remaining() < 16) {
+                        throw new IOException("atom 头不完整，偏移量: " + position);
+                    }
+                    size = header.getLong(8);
+                } else if (size == 0) {
+                    size = fileSize - position;
+                }
+                if (size < 8 || position + size > fileSize) {
+                    throw new IOException("atom " + type + " 大小不正确，偏移量: " + position);
+                }
+
+                if ("moov".equals(type) && moovOffset < 0) {
+                    moovOffset = position;
+                    moovSize = size;
+                } else if ("mdat".equals(type) && mdatOffset < 0) {
+                    mdatOffset = position;
+                }
+                position += size;
+            }
+
+            if (moovOffset < 0 || mdatOffset < 0) {
+                throw new IOException("不是有效的MP4文件（缺少 moov 或 mdat）");
+            }
+            if (moovOffset < mdatOffset) {
+                return false;
+            }
+            if (moovSize > MAX_MOOV_SIZE) {
+                throw new IOException("moov 过大: " + moovSize);
+            }
+
+            // 2. 修正块偏移
+            ByteBuffer moov = readFully(in, moovOffset, (int) moovSize);
+            if (moov.remaining() != moovSize) {
+                throw new EOFException("读取 moov 不完整");
+            }
+            moov = relocateChunkOffsets(moov, mdatOffset, moovOffset);
+            if (moov.limit() != moovSize) {
+                log.info("块偏移移动后超出32位范围，stco 已升级为 co64，moov: {} -> {} 字节: {}",
+                        moovSize, moov.limit(), video);
+            }
+
+            // 3. 按 [mdat 之前] [moov] [mdat ~ moov] [moov 之后] 的顺序写出
+            try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                transfer(in, 0, mdatOffset, out);
+                moov.rewind();
+                while (moov.hasRemaining()) {
+                    out.write(moov);
+                }
+                transfer(in, mdatOffset, moovOffset - mdatOffset, out);
+                long moovEnd = moovOffset + moovSize;
+                transfer(in, moovEnd, fileSize - moovEnd, out);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        Files.move(tempFile, video, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * 修正 moov 中的块偏移：moov 插入到第一个 mdat 之前，原先位于 [mdat, moov) 之间的数据整体后移 moov 的大小。
+     * 移动后 32 位偏移溢出时与 qt-faststart 相同，把 stco 全部升级为 co64，moov 变大后按新大小重新计算偏移，
+     * 此时原 moov 之后的数据也后移 moov 增大的字节数
+     *
+     * @param moov       moov atom（从 moov 头开始）
+     * @param mdatOffset 第一个 mdat 在原文件中的位置
+     * @param moovOffset moov 在原文件中的位置
+     * @return 修正后的 moov，升级为 co64 时是新的缓冲区
+     * @throws IOException moov 结构不正确时抛出
+     */
+    static ByteBuffer relocateChunkOffsets(ByteBuffer moov, long mdatOffset, long moovOffset) throws IOException {
+        int moovSize = moov.limit();
+        List<Box> tables = new ArrayList<>();
+        findChunkOffsetTables(moov, 0, moovSize, tables);
+        Relocation relocation = new Relocation(mdatOffset, moovOffset, moovSize, moovSize);
+        if (!fitsIn32Bits(moov, tables, relocation)) {
+            moov = upgradeToCo64(moov, tables);
+            tables.clear();
+            findChunkOffsetTables(moov, 0, moov.limit(), tables);
+            relocation = new Relocation(mdatOffset, moovOffset, moovSize, moov.limit());
+        }
+        shiftChunkOffsets(moov, tables, relocation);
+        return moov;
+    }
+
+    /**
+     * 重写后数据的位置变化：[mdat, moov) 之间的数据后移新 moov 的大小，moov 之后的数据后移 moov 增大的字节数
+     */
+    private record Relocation(long mdatOffset, long moovOffset, long moovSize, long newMoovSize) {
+
+        long relocate(long offset) {
+            if (offset >= mdatOffset && offset < moovOffset) {
+                return offset + newMoovSize;
+            }
+            if (offset >= moovOffset + moovSize) {
+                return offset + newMoovSize - moovSize;
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * moov 中的一个 atom
+     *
+     * @param start      atom 起始位置
+     * @param headerSize 头大小（8 或使用64位大小时的16）
+     * @param end        atom 结束位置
+     */
+    private record Box(String type, int start, int headerSize, int end) {
+
+        int body() {
+            return start + headerSize;
+        }
+    }
+
+    private static Box readBox(ByteBuffer buffer, int position, int end) throws IOException {
+        long size = buffer.getInt(position) & 0xFFFFFFFFL;
+        String type = typeOf(buffer, position + 4);
+        int headerSize = 8;
+        if (size == 1) {
+            if (position + 16 > end) {
+                throw new IOException("atom " + type + " 头不完整");
+            }
+            size = buffer.getLong(position + 8);
+            headerSize = 16;
+        } else if (size == 0) {
+            size = end - position;
+        }
+        if (size < headerSize || position + size > end) {
+            throw new IOException("atom " + type + " 大小不正确");
+        }
+        return new Box(type, position, headerSize, (int) (position + size));
+    }
+
+    /**
+     * 递归遍历容器，收集所有 stco/co64 并校验条目数
+     */
+    private static void findChunkOffsetTables(ByteBuffer buffer, int start, int end, List<Box> tables)
+            throws IOException {
+        int position = start;
+        // 顶层调用时 start 指向 moov 自身
+        while (position + 8 <= end) {
+            Box box = readBox(buffer, position, end);
+            if (CONTAINER_TYPES.contains(box.type())) {
+                findChunkOffsetTables(buffer, box.body(), box.end(), tables);
+            } else if ("stco".equals(box.type()) || "co64".equals(box.type())) {
+                // version(1) flags(3) entry_count(4)
+                if (box.body() + 8 > box.end()
+                        || box.body() + 8 + entryCount(buffer, box) * entrySize(box) > box.end()) {
+                    throw new IOException(box.type() + " 条目数不正确");
+                }
+                tables.add(box);
+            }
+            position = box.end();
+        }
+    }
+
+    /**
+     * 移动后所有 stco 偏移是否仍在32位范围内
+     */
+    private static boolean fitsIn32Bits(ByteBuffer buffer, List<Box> tables, Relocation relocation) {
+        for (Box table : tables) {
+            if (!"stco".equals(table.type())) {
+                continue;
+            }
+            long count = entryCount(buffer, table);
+            for (int i = 0; i < count; i++) {
+                long offset = buffer.getInt(table.body() + 8 + i * 4) & 0xFFFFFFFFL;
+                if (relocation.relocate(offset) > 0xFFFFFFFFL) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void shiftChunkOffsets(ByteBuffer buffer, List<Box> tables, Relocation relocation) {
+        for (Box table : tables) {
+            boolean wide = "co64".equals(table.type());
+            long count = entryCount(buffer, table);
+            for (int i = 0; i < count; i++) {
+                int entry = table.body() + 8 + i * entrySize(table);
+                if (wide) {
+                    buffer.putLong(entry, relocation.relocate(buffer.getLong(entry)));
+                } else {
+                    buffer.putInt(entry, (int) relocation.relocate(buffer.getInt(entry) & 0xFFFFFFFFL));
+                }
+            }
+        }
+    }
+
+    /**
+     * 把 moov 中所有 stco 改写为 co64（每个条目扩展为8字节），并修正沿途容器的大小
+     */
+    private static ByteBuffer upgradeToCo64(ByteBuffer moov, List<Box> tables) throws IOException {
+        long growth = 0;
+        for (Box table : tables) {
+            if ("stco".equals(table.type())) {
+                growth += entryCount(moov, table) * 4;
+            }
+        }
+        ByteBuffer out = ByteBuffer.allocate(Math.toIntExact(moov.limit() + growth));
+        copyUpgraded(moov, 0, moov.limit(), out);
+        out.flip();
+        return out;
+    }
+
+    private static void copyUpgraded(ByteBuffer src, int start, int end, ByteBuffer out) throws IOException {
+        int position = start;
+        while (position + 8 <= end) {
+            Box box = readBox(src, position, end);
+            if (CONTAINER_TYPES.contains(box.type())) {
+                int header = out.position();
+                out.put(src.slice(box.start(), box.headerSize()));
+                copyUpgraded(src, box.body(), box.end(), out);
+                long size = out.position() - header;
+                if (box.headerSize() == 16) {
+                    out.putLong(header + 8, size);
+                } else {
+                    out.putInt(header, (int) size);
+                }
+            } else if ("stco".equals(box.type())) {
+                int count = (int) entryCount(src, box);
+                out.putInt(8 + 8 + count * 8);
+                out.put("co64".getBytes(StandardCharsets.ISO_8859_1));
+                // version(1) flags(3) entry_count(4)
+                out.putInt(src.getInt(box.body()));
+                out.putInt(count);
+                for (int i = 0; i < count; i++) {
+                    out.putLong(src.getInt(box.body() + 8 + i * 4) & 0xFFFFFFFFL);
+                }
+            } else {
+                out.put(src.slice(box.start(), box.end() - box.start()));
+            }
+            position = box.end();
+        }
+        // 容器末尾不足一个 atom 头的填充字节原样保留
+        out.put(src.slice(position, end - position));
+    }
+
+    private static long entryCount(ByteBuffer buffer, Box table) {
+        return buffer.getInt(table.body() + 4) & 0xFFFFFFFFL;
+    }
+
+    private static int entrySize(Box table) {
+        return "co64".equals(table.type()) ? 8 : 4;
+    }
+
+    private static String typeOf(ByteBuffer buffer, int index) {
+        byte[] type = new byte[4];
+        buffer.get(index, type);
+        return new String(type, StandardCharsets.ISO_8859_1);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long n = in.transferTo(position + transferred, count - transferred, out);
+            if (n <= 0) {
+                throw new EOFException("复制视频数据不完整");
+            }
+            transferred += n;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ustb.hyy.app.backend.common.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.MimeTypeUtils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 文件零拷贝传输工具类
+ * <p>
+ * 优先使用 Tomcat sendfile：只设置文件名和范围属性，响应提交后由连接器直接把页缓存中的数据发送到套接字，
+ * 数据不经过JVM堆。连接器不支持 sendfile 时（如HTTPS或其他容器）退回 {@link FileChannel#transferTo}。
+ * </p>
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Slf4j
+public class FileStreamUtils {
+
+    /**
+     * Tomcat 是否支持 sendfile 的请求属性（由连接器设置）
+     */
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 小于该大小的范围直接写出，sendfile 的额外开销不划算（与 Tomcat DefaultServlet 的默认值一致）
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024L;
+
+    private FileStreamUtils() {
+    }
+
+    /**
+     * 发送文件的一个字节范围，调用前需已设置状态码和其他响应头，Content-Length 由本方法设置
+     *
+     * @param request  请求
+     * @param response 响应（尚未提交）
+     * @param file     文件
+     * @param start    起始偏移量
+     * @param length   字节数
+     * @throws IOException 读取文件或写出失败时抛出
+     */
+    public static void sendRange(HttpServletRequest request, HttpServletResponse response,
+                                 Path file, long start, long length) throws IOException {
+        response.setContentLengthLong(length);
+        if (length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR)) && length >= SENDFILE_MIN_SIZE) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().normalize().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            // 结束位置不包含在范围内
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+            log.debug("使用 sendfile 发送文件: {}, start: {}, length: {}", file, start, length);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, start, length, Channels.newChannel(response.getOutputStream()), file);
+        }
+    }
+
+    /**
+     * 以 multipart/byteranges 发送多个字节范围，各部分依次从文件传输，不在内存中拼装响应体
+     * 调用前需已设置状态码206，Content-Type 和 Content-Length 由本方法设置
+     *
+     * @param response    响应（尚未提交）
+     * @param file        文件
+     * @param regions     字节范围
+     * @param contentType 各部分的Content-Type
+     * @param fileSize    文件大小
+     * @throws IOException 读取文件或写出失败时抛出
+     */
+    public static void sendMultipartRanges(HttpServletResponse response, Path file, List<ResourceRegion> regions,
+                                           String contentType, long fileSize) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+
+        // 预先生成各部分头，以便计算准确的 Content-Length
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+        for (ResourceRegion region : regions) {
+            long start = region.getPosition();
+            long end = start + region.getCount() - 1;
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + fileSize + "\r\n"
+                    + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + region.getCount();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel outChannel = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < regions.size(); i++) {
+                ResourceRegion region = regions.get(i);
+                out.write(partHeaders.get(i));
+                transfer(channel, region.getPosition(), region.getCount(), outChannel, file);
+            }
+        }
+        out.write(closing);
+    }
+
+    private static void transfer(FileChannel channel, long start, long length,
+                                 WritableByteChannel out, Path file) throws IOException {
+        long position = start;
+        long remaining = length;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, out);
+            if (transferred <= 0) {
+                // 文件在传输期间被截断
+                throw new IOException("文件长度不足: " + file);
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+}
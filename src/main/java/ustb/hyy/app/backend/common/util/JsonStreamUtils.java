@@ -0,0 +1,80 @@
+package ustb.hyy.app.backend.common.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import ustb.hyy.app.backend.common.exception.BusinessException;
+
+/**
+ * JSON 流式读取工具类
+ * 逐个元素反序列化大数组并分块交给调用方处理，内存占用只与分块大小有关，与数组长度无关
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+public class JsonStreamUtils {
+
+    private JsonStreamUtils() {
+    }
+
+    /**
+     * 读取当前位置的数组，逐个元素校验后按固定大小分块交给 sink
+     * 调用前解析器需位于数组开始标记（或 null）上，返回时位于数组结束标记上
+     *
+     * @param parser    JSON解析器（需已设置 ObjectCodec）
+     * @param type      元素类型
+     * @param fieldName 字段名（用于错误信息）
+     * @param chunkSize 分块大小
+     * @param validator 校验器
+     * @param sink      分块处理函数，分块列表在调用后会被复用，不能保留引用
+     * @param <T>       元素类型
+     * @return 元素总数
+     * @throws IOException 读取失败或JSON格式错误时抛出
+     * @throws BusinessException 元素校验失败时抛出（400）
+     */
+    public static <T> long readArray(JsonParser parser, Class<T> type, String fieldName, int chunkSize,
+                                     Validator validator, Consumer<List<T>> sink) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return 0;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new BusinessException(400, fieldName + " 必须是数组");
+        }
+
+        List<T> chunk = new ArrayList<>(chunkSize);
+        long index = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            T element = parser.readValueAs(type);
+            if (element == null) {
+                throw new BusinessException(400, fieldName + "[" + index + "] 不能为空");
+            }
+            Set<ConstraintViolation<T>> violations = validator.validate(element);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .collect(Collectors.joining("; "));
+                throw new BusinessException(400, fieldName + "[" + index + "]: " + message);
+            }
+
+            chunk.add(element);
+            index++;
+            if (chunk.size() >= chunkSize) {
+                sink.accept(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,194 @@
+package ustb.hyy.app.backend.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * PostgreSQL {@code COPY ... FROM STDIN (FORMAT binary)} 数据编码工具类
+ * <p>
+ * 按二进制 COPY 格式写出文件头、逐行的字段（长度 + 网络字节序的值）和文件尾，
+ * 服务端直接按类型接收，不需要解析文本，也不经过 JDBC 批量语句。
+ * 字段顺序和类型需与 COPY 语句中的列一致。
+ * </p>
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+public class PgBinaryCopyWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    /**
+     * PostgreSQL 时间戳起点（2000-01-01 00:00:00）
+     */
+    private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private static final int NUMERIC_POS = 0x0000;
+    private static final int NUMERIC_NEG = 0x4000;
+    private static final BigInteger NBASE = BigInteger.valueOf(10000);
+
+    /**
+     * jsonb 二进制格式版本号
+     */
+    private static final int JSONB_VERSION = 1;
+
+    private final DataOutputStream out;
+
+    /**
+     * 创建写入器并写出文件头
+     *
+     * @param output COPY 数据流（如 PGCopyOutputStream）
+     * @throws IOException 写出失败时抛出
+     */
+    public PgBinaryCopyWriter(OutputStream output) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(output, 64 * 1024));
+        out.write(SIGNATURE);
+        // 标志位、头扩展长度
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    /**
+     * 开始一行
+     *
+     * @param fieldCount 字段数
+     */
+    public void startRow(int fieldCount) throws IOException {
+        out.writeShort(fieldCount);
+    }
+
+    public void writeNull() throws IOException {
+        out.writeInt(-1);
+    }
+
+    /**
+     * 写出 bigint 字段
+     */
+    public void writeLong(long value) throws IOException {
+        out.writeInt(8);
+        out.writeLong(value);
+    }
+
+    /**
+     * 写出 integer 字段，null 写为 NULL
+     */
+    public void writeInt(Integer value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(4);
+        out.writeInt(value);
+    }
+
+    /**
+     * 写出 varchar/text 字段，null 写为 NULL
+     */
+    public void writeText(String value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * 写出 jsonb 字段（版本号 + JSON 文本），null 写为 NULL
+     */
+    public void writeJsonb(String json) throws IOException {
+        if (json == null) {
+            writeNull();
+            return;
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length + 1);
+        out.writeByte(JSONB_VERSION);
+        out.write(bytes);
+    }
+
+    /**
+     * 写出 timestamp（不带时区）字段
+     */
+    public void writeTimestamp(LocalDateTime value) throws IOException {
+        out.writeInt(8);
+        out.writeLong(ChronoUnit.MICROS.between(PG_EPOCH, value));
+    }
+
+    /**
+     * 写出 numeric 字段，null 写为 NULL
+     * 格式：ndigits weight sign dscale 及 ndigits 个以10000为基数的数字（小数点两侧按4位对齐），
+     * 超出列定义的精度由服务端按列的 typmod 舍入
+     */
+    public void writeNumeric(BigDecimal value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+
+        int dscale = Math.max(0, value.scale());
+        BigInteger unscaled = value.setScale(dscale).unscaledValue().abs();
+        if (unscaled.signum() == 0) {
+            out.writeInt(8);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(NUMERIC_POS);
+            out.writeShort(dscale);
+            return;
+        }
+
+        // 小数部分补零到4位的整数倍，使基数10000的数字与小数点对齐
+        int padding = (4 - dscale % 4) % 4;
+        unscaled = unscaled.multiply(BigInteger.TEN.pow(padding));
+        int fractionGroups = (dscale + padding) / 4;
+
+        // 从低位开始拆分，跳过末尾的0（不影响数值，dscale 保留显示精度）
+        short[] groups = new short[unscaled.bitLength() / 13 + 2];
+        int count = 0;
+        int trailingZeros = 0;
+        boolean leading = true;
+        while (unscaled.signum() > 0) {
+            BigInteger[] division = unscaled.divideAndRemainder(NBASE);
+            short group = division[1].shortValue();
+            if (leading && group == 0) {
+                trailingZeros++;
+            } else {
+                leading = false;
+                groups[count++] = group;
+            }
+            unscaled = division[0];
+        }
+        int weight = count + trailingZeros - fractionGroups - 1;
+
+        out.writeInt(8 + count * 2);
+        out.writeShort(count);
+        out.writeShort(weight);
+        out.writeShort(value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS);
+        out.writeShort(dscale);
+        for (int i = count - 1; i >= 0; i--) {
+            out.writeShort(groups[i]);
+        }
+    }
+
+    /**
+     * 写出文件尾并刷新（不关闭底层流）
+     */
+    public void finish() throws IOException {
+        out.writeShort(-1);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,171 @@
+package ustb.hyy.app.backend.common.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 可导出中间状态的 SHA-256
+ * <p>
+ * JDK 的 MessageDigest 不能导出中间状态，分片上传跨多个请求（可能在不同实例上）追加数据时无法接着计算。
+ * 这里按 FIPS 180-4 实现 SHA-256，每个分片写入后导出状态保存到上传会话，下一个分片恢复状态后继续计算，
+ * 上传完成时直接得到内容哈希，不必再读一遍文件。
+ * </p>
+ * 状态格式：h0-h7(int32 x 8) 已处理字节数(int64) 未满一块的剩余字节
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+public class ResumableSha256 {
+
+    private static final int BLOCK_SIZE = 64;
+
+    private static final int STATE_HEADER_SIZE = 8 * Integer.BYTES + Long.BYTES;
+
+    private static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    private final int[] h = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    private final int[] w = new int[64];
+
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+
+    /**
+     * 已处理的字节数
+     */
+    private long length;
+
+    /**
+     * 从导出的状态恢复
+     *
+     * @param state {@link #exportState()} 导出的状态
+     * @return 恢复后的哈希计算器
+     * @throws IllegalArgumentException 状态格式不正确时抛出
+     */
+    public static ResumableSha256 restore(byte[] state) {
+        if (state == null || state.length < STATE_HEADER_SIZE) {
+            throw new IllegalArgumentException("SHA-256 状态长度不正确");
+        }
+        ByteBuffer in = ByteBuffer.wrap(state);
+        ResumableSha256 sha = new ResumableSha256();
+        for (int i = 0; i < sha.h.length; i++) {
+            sha.h[i] = in.getInt();
+        }
+        sha.length = in.getLong();
+        if (sha.length < 0 || in.remaining() != (int) (sha.length % BLOCK_SIZE)) {
+            throw new IllegalArgumentException("SHA-256 状态长度不正确");
+        }
+        in.get(sha.buffer, 0, in.remaining());
+        return sha;
+    }
+
+    /**
+     * 已处理的字节数
+     */
+    public long length() {
+        return length;
+    }
+
+    public void update(byte[] data, int offset, int len) {
+        int buffered = (int) (length % BLOCK_SIZE);
+        length += len;
+
+        if (buffered > 0) {
+            int fill = Math.min(len, BLOCK_SIZE - buffered);
+            System.arraycopy(data, offset, buffer, buffered, fill);
+            offset += fill;
+            len -= fill;
+            if (buffered + fill < BLOCK_SIZE) {
+                return;
+            }
+            compress(buffer, 0);
+        }
+        while (len >= BLOCK_SIZE) {
+            compress(data, offset);
+            offset += BLOCK_SIZE;
+            len -= BLOCK_SIZE;
+        }
+        System.arraycopy(data, offset, buffer, 0, len);
+    }
+
+    /**
+     * 导出中间状态（不影响继续计算）
+     */
+    public byte[] exportState() {
+        int buffered = (int) (length % BLOCK_SIZE);
+        ByteBuffer out = ByteBuffer.allocate(STATE_HEADER_SIZE + buffered);
+        for (int value : h) {
+            out.putInt(value);
+        }
+        out.putLong(length);
+        out.put(buffer, 0, buffered);
+        return out.array();
+    }
+
+    /**
+     * 完成计算并返回摘要，之后不能再继续计算
+     */
+    public byte[] digest() {
+        long bitLength = length * 8;
+        int buffered = (int) (length % BLOCK_SIZE);
+        byte[] padding = new byte[(buffered < 56 ? 56 : 120) - buffered + Long.BYTES];
+        padding[0] = (byte) 0x80;
+        ByteBuffer.wrap(padding).putLong(padding.length - Long.BYTES, bitLength);
+        update(padding, 0, padding.length);
+
+        ByteBuffer out = ByteBuffer.allocate(32);
+        for (int value : h) {
+            out.putInt(value);
+        }
+        Arrays.fill(buffer, (byte) 0);
+        return out.array();
+    }
+
+    private void compress(byte[] block, int offset) {
+        for (int i = 0; i < 16; i++) {
+            int p = offset + i * 4;
+            w[i] = (block[p] << 24) | ((block[p + 1] & 0xFF) << 16) | ((block[p + 2] & 0xFF) << 8) | (block[p + 3] & 0xFF);
+        }
+        for (int i = 16; i < 64; i++) {
+            int s0 = Integer.rotateRight(w[i - 15], 7) ^ Integer.rotateRight(w[i - 15], 18) ^ (w[i - 15] >>> 3);
+            int s1 = Integer.rotateRight(w[i - 2], 17) ^ Integer.rotateRight(w[i - 2], 19) ^ (w[i - 2] >>> 10);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+
+        int a = h[0], b = h[1], c = h[2], d = h[3], e = h[4], f = h[5], g = h[6], hh = h[7];
+        for (int i = 0; i < 64; i++) {
+            int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            int ch = (e & f) ^ (~e & g);
+            int t1 = hh + s1 + ch + K[i] + w[i];
+            int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            int maj = (a & b) ^ (a & c) ^ (b & c);
+            int t2 = s0 + maj;
+            hh = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        h[0] += a;
+        h[1] += b;
+        h[2] += c;
+        h[3] += d;
+        h[4] += e;
+        h[5] += f;
+        h[6] += g;
+        h[7] += hh;
+    }
+}
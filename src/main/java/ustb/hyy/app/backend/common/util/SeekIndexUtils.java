@@ -0,0 +1,197 @@
+package ustb.hyy.app.backend.common.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 视频定位索引（sidecar 文件）读写工具类
+ * <p>
+ * 索引与视频放在同一目录，文件名为视频文件名加 {@value #SIDECAR_SUFFIX}。
+ * 记录每个关键帧的 帧号、时间戳、字节偏移，三列分别做差分后以变长整数存储，2小时的视频只有几KB；
+ * 文件头记录视频大小和修改时间，视频被替换后索引自动失效。
+ * </p>
+ * 格式：magic(4) version(1) videoSize(8) videoMtime(8) frameRate(8) totalFrames(varint) count(varint)
+ * [frameDelta(varint) timestampDelta(zigzag varint) offsetDelta(zigzag varint)]*
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Slf4j
+public class SeekIndexUtils {
+
+    public static final String SIDECAR_SUFFIX = ".seekidx";
+
+    private static final int MAGIC = 0x564B4958; // "VKIX"
+    private static final int VERSION = 1;
+
+    private SeekIndexUtils() {
+    }
+
+    /**
+     * 获取视频对应的索引文件路径
+     */
+    public static Path sidecarPath(Path video) {
+        return video.resolveSibling(video.getFileName() + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * 读取索引，不存在、已失效或损坏时返回null
+     *
+     * @param video 视频文件
+     * @return 关键帧索引
+     */
+    public static VideoUtils.KeyframeIndex read(Path video) {
+        Path sidecar = sidecarPath(video);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                log.warn("视频索引格式不正确: {}", sidecar);
+                return null;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(video, BasicFileAttributes.class);
+            if (in.readLong() != attributes.size() || in.readLong() != attributes.lastModifiedTime().toMillis()) {
+                log.debug("视频已变化，索引失效: {}", sidecar);
+                return null;
+            }
+
+            double frameRate = in.readDouble();
+            int totalFrames = (int) readVarLong(in);
+            long count = readVarLong(in);
+            // 每个关键帧至少占3字节，超出文件大小说明数据损坏，避免按损坏的数量分配数组
+            if (count < 0 || count > Files.size(sidecar) / 3) {
+                log.warn("视频索引数据损坏: {}", sidecar);
+                return null;
+            }
+            long[] frames = new long[(int) count];
+            long[] timestamps = new long[(int) count];
+            long[] offsets = new long[(int) count];
+            long frame = 0;
+            long timestamp = 0;
+            long offset = 0;
+            for (int i = 0; i < count; i++) {
+                frame += readVarLong(in);
+                timestamp += zigzagDecode(readVarLong(in));
+                offset += zigzagDecode(readVarLong(in));
+                frames[i] = frame;
+                timestamps[i] = timestamp;
+                offsets[i] = offset;
+            }
+            return new VideoUtils.KeyframeIndex(frameRate, totalFrames, frames, timestamps, offsets);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("读取视频索引失败: {}", sidecar, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入索引（先写临时文件再替换，读取方不会读到不完整的索引）
+     *
+     * @param video 视频文件
+     * @param index 关键帧索引
+     * @throws IOException 写入失败时抛出
+     */
+    public static void write(Path video, VideoUtils.KeyframeIndex index) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(video, BasicFileAttributes.class);
+        Path sidecar = sidecarPath(video);
+        Path tempFile = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(attributes.size());
+            out.writeLong(attributes.lastModifiedTime().toMillis());
+            out.writeDouble(index.frameRate());
+            writeVarLong(out, index.totalFrames());
+
+            int count = index.keyframeTimestamps().length;
+            writeVarLong(out, count);
+            long frame = 0;
+            long timestamp = 0;
+            long offset = 0;
+            for (int i = 0; i < count; i++) {
+                writeVarLong(out, index.keyframeFrames()[i] - frame);
+                writeVarLong(out, zigzagEncode(index.keyframeTimestamps()[i] - timestamp));
+                writeVarLong(out, zigzagEncode(index.keyframeOffsets()[i] - offset));
+                frame = index.keyframeFrames()[i];
+                timestamp = index.keyframeTimestamps()[i];
+                offset = index.keyframeOffsets()[i];
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取索引，不存在或已失效时扫描视频重新建立并写入
+     *
+     * @param video 视频文件
+     * @return 关键帧索引
+     */
+    public static VideoUtils.KeyframeIndex loadOrBuild(Path video) {
+        VideoUtils.KeyframeIndex index = read(video);
+        if (index != null) {
+            return index;
+        }
+
+        index = VideoUtils.buildKeyframeIndex(video.toString());
+        try {
+            write(video, index);
+        } catch (IOException e) {
+            // 写入失败不影响本次使用
+            log.warn("写入视频索引失败: {}", video, e);
+        }
+        return index;
+    }
+
+    /**
+     * 删除视频对应的索引（视频删除时调用）
+     */
+    public static void delete(Path video) {
+        try {
+            Files.deleteIfExists(sidecarPath(video));
+        } catch (IOException e) {
+            log.warn("删除视频索引失败: {}", video, e);
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数格式不正确");
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
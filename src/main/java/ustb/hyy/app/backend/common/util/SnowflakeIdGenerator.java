@@ -160,6 +160,20 @@ public class SnowflakeIdGenerator {
                 | sequence;
     }
 
+    /**
+     * 一次生成一批ID（线程安全，只获取一次锁，用于批量写入）
+     *
+     * @param count ID数量
+     * @return 递增的唯一ID
+     */
+    public synchronized long[] nextIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId();
+        }
+        return ids;
+    }
+
     /**
      * 获取当前时间戳
      *
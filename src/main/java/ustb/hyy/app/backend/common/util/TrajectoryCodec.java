@@ -0,0 +1,284 @@
+package ustb.hyy.app.backend.common.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import ustb.hyy.app.backend.common.exception.BusinessException;
+
+/**
+ * 追踪轨迹二进制编解码工具类
+ * <p>
+ * 轨迹原格式为 JSON 数组 [{"frame": 100, "bbox": [x1, y1, x2, y2], "confidence": 0.95}, ...]，
+ * 每个点都重复键名，读取时还要为每个点构造 Map。这里按列压缩：帧号差分后以 zigzag 变长整数存储，
+ * 边界框四个坐标存为 int16，置信度量化为 8 位，每个点约 10 字节。
+ * </p>
+ * <p>
+ * 帧号和边界框无损：只接受整数帧号和 int16 范围内的整数坐标，含小数坐标的轨迹不编码，由调用方按 JSON 保存。
+ * 置信度有损：截断到 [0, 1] 后量化为 0-255，解码后保留 3 位小数，与原值误差不超过约 0.002。
+ * </p>
+ * 格式：由一个或多个分段直接拼接，每段为 version(1) count(varint) [frameDelta(zigzag varint) x1 y1 x2 y2(int16) confidence(uint8)]*，
+ * 分段可在数据库中直接用 {@code ||} 追加，解码时依次读取全部分段并按帧号排序
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+public class TrajectoryCodec {
+
+    private static final int VERSION = 1;
+
+    private static final Set<String> POINT_KEYS = Set.of("frame", "bbox", "confidence");
+
+    private TrajectoryCodec() {
+    }
+
+    /**
+     * 编码轨迹，格式不是标准的 帧号/边界框/置信度 点数组（含其他字段、帧号或坐标不是整数、坐标超出 int16 等）时返回null，
+     * 由调用方按 JSON 保存。置信度按 8 位量化保存（有损）
+     *
+     * @param trajectory 轨迹（反序列化后的 JSON 数组）
+     * @return 编码后的数据，无法编码时返回null
+     */
+    public static byte[] encode(Object trajectory) {
+        if (!(trajectory instanceof List<?> points)) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + points.size() * 10);
+        out.write(VERSION);
+        writeVarLong(out, points.size());
+        long previousFrame = 0;
+        for (Object element : points) {
+            if (!(element instanceof Map<?, ?> point) || !POINT_KEYS.equals(point.keySet())
+                    || !(point.get("frame") instanceof Number frameValue)
+                    || !(point.get("bbox") instanceof List<?> bbox) || bbox.size() != 4
+                    || !(point.get("confidence") instanceof Number confidenceValue)) {
+                return null;
+            }
+
+            double rawFrame = frameValue.doubleValue();
+            if (rawFrame != Math.rint(rawFrame) || rawFrame < Integer.MIN_VALUE || rawFrame > Integer.MAX_VALUE) {
+                return null;
+            }
+            long frame = (long) rawFrame;
+            writeVarLong(out, zigzagEncode(frame - previousFrame));
+            previousFrame = frame;
+
+            for (Object coordinate : bbox) {
+                if (!(coordinate instanceof Number number)) {
+                    return null;
+                }
+                double raw = number.doubleValue();
+                if (raw != Math.rint(raw) || raw < Short.MIN_VALUE || raw > Short.MAX_VALUE) {
+                    return null;
+                }
+                int value = (int) raw;
+                out.write((int) (value >> 8));
+                out.write((int) value);
+            }
+
+            // 置信度量化为 8 位（有损）
+            double confidence = Math.max(0, Math.min(1, confidenceValue.doubleValue()));
+            out.write((int) Math.round(confidence * 255));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码轨迹
+     *
+     * @param data 编码后的数据（可以是多个分段的拼接）
+     * @return 按帧号排序的轨迹
+     * @throws BusinessException 数据损坏时抛出
+     */
+    public static Trajectory decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int capacity = Math.max(1, data.length / 10);
+        int[] frames = new int[capacity];
+        short[] boxes = new short[capacity * 4];
+        byte[] confidences = new byte[capacity];
+        int size = 0;
+
+        try {
+            while (buffer.hasRemaining()) {
+                if (buffer.get() != VERSION) {
+                    throw new BusinessException("轨迹数据版本不正确");
+                }
+                long count = readVarLong(buffer);
+                long frame = 0;
+                for (long i = 0; i < count; i++) {
+                    if (size == frames.length) {
+                        int newCapacity = frames.length * 2;
+                        frames = Arrays.copyOf(frames, newCapacity);
+                        boxes = Arrays.copyOf(boxes, newCapacity * 4);
+                        confidences = Arrays.copyOf(confidences, newCapacity);
+                    }
+                    frame += zigzagDecode(readVarLong(buffer));
+                    frames[size] = (int) frame;
+                    for (int j = 0; j < 4; j++) {
+                        boxes[size * 4 + j] = buffer.getShort();
+                    }
+                    confidences[size] = buffer.get();
+                    size++;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new BusinessException("轨迹数据不完整");
+        }
+
+        return sortByFrame(new Trajectory(size, frames, boxes, confidences));
+    }
+
+    /**
+     * 按帧号排序（稳定，同一帧保持写入顺序）
+     * 分段按提交到达顺序拼接，重试或乱序到达的分段帧号不连续，已有序时直接返回
+     */
+    private static Trajectory sortByFrame(Trajectory trajectory) {
+        int size = trajectory.size();
+        int[] frames = trajectory.frames();
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = frames[i - 1] <= frames[i];
+        }
+        if (sorted) {
+            return trajectory;
+        }
+
+        // 高32位为帧号、低32位为原位置，排序后即为稳定顺序
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) frames[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] sortedFrames = new int[size];
+        short[] sortedBoxes = new short[size * 4];
+        byte[] sortedConfidences = new byte[size];
+        for (int i = 0; i < size; i++) {
+            int from = (int) keys[i];
+            sortedFrames[i] = frames[from];
+            System.arraycopy(trajectory.boxes(), from * 4, sortedBoxes, i * 4, 4);
+            sortedConfidences[i] = trajectory.confidences()[from];
+        }
+        return new Trajectory(size, sortedFrames, sortedBoxes, sortedConfidences);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new BusinessException("变长整数格式不正确");
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 解码后的轨迹（按列存储，第 i 个点的边界框为 boxes[4i] ~ boxes[4i+3]）
+     * 序列化为 JSON 时输出与原格式相同的点数组
+     */
+    @JsonSerialize(using = TrajectorySerializer.class)
+    public record Trajectory(int size, int[] frames, short[] boxes, byte[] confidences) {
+
+        public int frame(int index) {
+            return frames[index];
+        }
+
+        public int x1(int index) {
+            return boxes[index * 4];
+        }
+
+        public int y1(int index) {
+            return boxes[index * 4 + 1];
+        }
+
+        public int x2(int index) {
+            return boxes[index * 4 + 2];
+        }
+
+        public int y2(int index) {
+            return boxes[index * 4 + 3];
+        }
+
+        /**
+         * 置信度（0.0-1.0，由 8 位量化值还原并保留 3 位小数，与原值误差不超过约 0.002）
+         */
+        public double confidence(int index) {
+            return Math.round((confidences[index] & 0xFF) / 255.0 * 1000) / 1000.0;
+        }
+
+        /**
+         * 转换为原 JSON 格式的点列表
+         */
+        public List<Map<String, Object>> toList() {
+            List<Map<String, Object>> points = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("frame", frame(i));
+                point.put("bbox", List.of(x1(i), y1(i), x2(i), y2(i)));
+                point.put("confidence", confidence(i));
+                points.add(point);
+            }
+            return points;
+        }
+    }
+
+    /**
+     * 直接从列数据写出 JSON，不构造中间 Map
+     */
+    public static class TrajectorySerializer extends StdSerializer<Trajectory> {
+
+        public TrajectorySerializer() {
+            super(Trajectory.class);
+        }
+
+        @Override
+        public void serialize(Trajectory trajectory, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartArray();
+            for (int i = 0; i < trajectory.size(); i++) {
+                generator.writeStartObject();
+                generator.writeNumberField("frame", trajectory.frame(i));
+                generator.writeArrayFieldStart("bbox");
+                generator.writeNumber(trajectory.x1(i));
+                generator.writeNumber(trajectory.y1(i));
+                generator.writeNumber(trajectory.x2(i));
+                generator.writeNumber(trajectory.y2(i));
+                generator.writeEndArray();
+                generator.writeNumberField("confidence", trajectory.confidence(i));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
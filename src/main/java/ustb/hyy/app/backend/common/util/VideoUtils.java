@@ -1,19 +1,39 @@
 package ustb.hyy.app.backend.common.util;
 
-import java.io.BufferedReader;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.concurrent.TimeUnit;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
+import javax.imageio.ImageIO;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodecParameters;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avutil.AVRational;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avformat;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacpp.PointerPointer;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.Java2DFrameConverter;
 
 import lombok.extern.slf4j.Slf4j;
 import ustb.hyy.app.backend.common.exception.BusinessException;
@@ -73,6 +93,8 @@ public class VideoUtils {
             // 获取视频编码格式
             String videoCodecName = grabber.getVideoCodecName();
             info.setCodec(videoCodecName);
+            info.setAudioChannels(grabber.getAudioChannels());
+            info.setAudioCodec(grabber.getAudioChannels() > 0 ? grabber.getAudioCodecName() : null);
 
             log.info("视频信息: {}x{}, {} fps, {} 帧, {} 秒, 编码: {}",
                     info.getWidth(), info.getHeight(), info.getFrameRate(),
@@ -108,6 +130,114 @@ public class VideoUtils {
                !codecLower.contains("hvc");
     }
 
+    /**
+     * 检查视频是否需要转换容器（编码兼容但容器不是MP4，如 MKV/MOV/AVI 中的 H264）
+     *
+     * @param format   FFmpeg 解析得到的容器格式（如 "mov,mp4,m4a,3gp,3g2,mj2"、"matroska,webm"、"avi"）
+     * @param filename 文件名（MOV 与 MP4 共用同一个解封装器，需结合扩展名判断）
+     * @return true表示需要转换为MP4容器
+     */
+    public static boolean needsRemux(String format, String filename) {
+        String formatLower = format == null ? "" : format.toLowerCase();
+        if (!formatLower.contains("mp4")) {
+            return true;
+        }
+        String extension = filename == null ? "" : filename.substring(filename.lastIndexOf('.') + 1).toLowerCase();
+        return !"mp4".equals(extension) && !"m4v".equals(extension);
+    }
+
+    /**
+     * 检查音频编码是否可以直接封装进MP4容器
+     *
+     * @param audioCodec 音频编码格式
+     * @return true表示可以直接复制
+     */
+    public static boolean isMp4CompatibleAudio(String audioCodec) {
+        if (audioCodec == null) {
+            return false;
+        }
+        String codecLower = audioCodec.toLowerCase();
+        return codecLower.contains("aac") ||
+               codecLower.contains("mp3") ||
+               codecLower.contains("ac3") ||
+               codecLower.contains("alac") ||
+               codecLower.contains("opus") ||
+               codecLower.contains("flac");
+    }
+
+    /**
+     * 将视频转封装为MP4（按压缩包复制，不解码不编码），同时应用 faststart
+     * 适用于编码已是 H264/H265、仅容器需要转换的情况。音频编码不兼容MP4时丢弃音频
+     *
+     * @param inputPath 输入视频路径
+     * @param outputPath 输出视频路径
+     * @throws BusinessException 转封装失败时抛出
+     */
+    public static void remuxToMp4(String inputPath, String outputPath) {
+        log.info("开始转封装视频为MP4，输入: {}, 输出: {}", inputPath, outputPath);
+
+        FFmpegFrameGrabber grabber = null;
+        FFmpegFrameRecorder recorder = null;
+
+        try {
+            grabber = new FFmpegFrameGrabber(inputPath);
+            grabber.start();
+
+            int audioChannels = grabber.getAudioChannels();
+            if (audioChannels > 0 && !isMp4CompatibleAudio(grabber.getAudioCodecName())) {
+                log.warn("音频编码 {} 无法直接封装为MP4，转封装时丢弃音频", grabber.getAudioCodecName());
+                audioChannels = 0;
+            }
+
+            recorder = new FFmpegFrameRecorder(outputPath, grabber.getImageWidth(), grabber.getImageHeight(), audioChannels);
+            recorder.setFormat("mp4");
+            recorder.setFrameRate(grabber.getFrameRate());
+            recorder.setOption("movflags", "faststart");
+            // 传入输入格式上下文，录制器直接复制各流的编码参数
+            recorder.start(grabber.getFormatContext());
+
+            // 逐包复制
+            AVPacket packet;
+            long packetCount = 0;
+            while ((packet = grabber.grabPacket()) != null) {
+                recorder.recordPacket(packet);
+                packetCount++;
+            }
+
+            log.info("视频转封装完成，共复制 {} 个数据包", packetCount);
+
+        } catch (Exception e) {
+            // 删除可能生成的不完整输出文件
+            try {
+                Files.deleteIfExists(Paths.get(outputPath));
+            } catch (IOException deleteEx) {
+                log.warn("删除不完整的输出文件失败: {}", outputPath, deleteEx);
+            }
+
+            log.error("视频转封装失败", e);
+            throw new BusinessException("视频转封装失败: " + e.getMessage(), e);
+        } finally {
+            // 释放资源
+            try {
+                if (recorder != null) {
+                    recorder.stop();
+                    recorder.release();
+                }
+            } catch (Exception e) {
+                log.warn("关闭录制器失败", e);
+            }
+
+            try {
+                if (grabber != null) {
+                    grabber.stop();
+                    grabber.release();
+                }
+            } catch (Exception e) {
+                log.warn("关闭抓取器失败", e);
+            }
+        }
+    }
+
     /**
      * 重新编码视频为H264格式
      *
@@ -116,7 +246,39 @@ public class VideoUtils {
      * @throws BusinessException 编码失败时抛出
      */
     public static void reencodeToH264(String inputPath, String outputPath) {
-        log.info("开始重新编码视频为H264格式，输入: {}, 输出: {}", inputPath, outputPath);
+        reencodeToH264(inputPath, outputPath, false, null);
+    }
+
+    /**
+     * 重新编码视频为H264格式，并回调编码进度
+     * faststart 为 true 时由录制器在写入结束时直接将 moov atom 放到文件开头，
+     * 输出即可流式播放，无需再调用 {@link #applyFaststart(String)} 重写整个文件
+     *
+     * @param inputPath 输入视频路径
+     * @param outputPath 输出视频路径
+     * @param faststart 是否在转码时同时应用 faststart
+     * @param progressListener 进度回调（0.0~1.0），可为null
+     * @throws BusinessException 编码失败时抛出
+     */
+    public static void reencodeToH264(String inputPath, String outputPath, boolean faststart,
+                                      DoubleConsumer progressListener) {
+        reencodeToH264(inputPath, outputPath, faststart, TranscodeOptions.DEFAULT, progressListener);
+    }
+
+    /**
+     * 按转码参数重新编码视频为H264格式，并回调编码进度
+     *
+     * @param inputPath 输入视频路径
+     * @param outputPath 输出视频路径
+     * @param faststart 是否在转码时同时应用 faststart
+     * @param options 转码参数（音频、关键帧间隔、分辨率上限）
+     * @param progressListener 进度回调（0.0~1.0），可为null
+     * @throws BusinessException 编码失败时抛出
+     */
+    public static void reencodeToH264(String inputPath, String outputPath, boolean faststart,
+                                      TranscodeOptions options, DoubleConsumer progressListener) {
+        log.info("开始重新编码视频为H264格式，输入: {}, 输出: {}, faststart: {}, 参数: {}",
+                inputPath, outputPath, faststart, options);
 
         FFmpegFrameGrabber grabber = null;
         FFmpegFrameRecorder recorder = null;
@@ -126,15 +288,24 @@ public class VideoUtils {
             grabber = new FFmpegFrameGrabber(inputPath);
             grabber.start();
 
-            // 创建Frame录制器
-            recorder = new FFmpegFrameRecorder(outputPath, grabber.getImageWidth(), grabber.getImageHeight());
+            // 创建Frame录制器（超过分辨率上限时由录制器缩放）
+            int outputHeight = options.outputHeight(grabber.getImageWidth(), grabber.getImageHeight());
+            int outputWidth = options.outputWidth(grabber.getImageWidth(), grabber.getImageHeight());
+            recorder = new FFmpegFrameRecorder(outputPath, outputWidth, outputHeight);
             recorder.setVideoCodec(org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_H264);
             recorder.setFormat("mp4");
             recorder.setFrameRate(grabber.getFrameRate());
-            recorder.setVideoBitrate(grabber.getVideoBitrate() > 0 ? grabber.getVideoBitrate() : 2000000);
+            int sourceBitrate = grabber.getVideoBitrate() > 0 ? grabber.getVideoBitrate() : 2000000;
+            recorder.setVideoBitrate(options.outputBitrate(sourceBitrate, grabber.getImageWidth(), grabber.getImageHeight()));
+            applyKeyframeInterval(recorder, options, grabber.getFrameRate());
+            if (faststart) {
+                // mp4 muxer 选项，avformat_write_header 时生效
+                recorder.setOption("movflags", "faststart");
+            }
 
-            // 如果有音频流，也复制音频
-            if (grabber.getAudioChannels() > 0) {
+            // 如果有音频流且不丢弃音频，也复制音频
+            boolean keepAudio = grabber.getAudioChannels() > 0 && !options.dropAudio();
+            if (keepAudio) {
                 recorder.setAudioChannels(grabber.getAudioChannels());
                 recorder.setAudioCodec(org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_AAC);
                 recorder.setSampleRate(grabber.getSampleRate());
@@ -144,15 +315,19 @@ public class VideoUtils {
             recorder.start();
 
             // 逐帧转码
+            int totalFrames = grabber.getLengthInFrames();
             Frame frame;
             int frameCount = 0;
-            while ((frame = grabber.grab()) != null) {
+            while ((frame = keepAudio ? grabber.grab() : grabber.grabImage()) != null) {
                 recorder.record(frame);
                 frameCount++;
 
                 // 每处理1000帧输出一次日志
                 if (frameCount % 1000 == 0) {
                     log.debug("已处理 {} 帧", frameCount);
+                    if (progressListener != null && totalFrames > 0) {
+                        progressListener.accept(Math.min(1.0, (double) frameCount / totalFrames));
+                    }
                 }
             }
 
@@ -195,118 +370,894 @@ public class VideoUtils {
     }
 
     /**
-     * 应用 faststart 优化到视频文件
-     * faststart 将 moov atom 移到文件开头，使视频支持浏览器流式播放（边下载边播放）
+     * 分段并行转码时每段的最短时长（微秒），过短的视频直接串行转码
+     */
+    private static final long MIN_SEGMENT_DURATION_US = 10_000_000L;
+
+    /**
+     * 分段并行重新编码视频为H264格式（输出已包含faststart）
+     * <p>
+     * 按时间将视频切分为若干段，每段使用独立的抓取器定位到段起点（从之前最近的关键帧开始解码），
+     * 在线程池中同时编码为独立的MP4，最后按数据包复制拼接为一个文件。
+     * 分段输出的首帧均为关键帧且不含B帧，拼接时只需平移时间戳。
+     * 需要保留音频的视频或时长不足以切分的视频退回
+     * {@link #reencodeToH264(String, String, boolean, TranscodeOptions, DoubleConsumer)}
+     * </p>
      *
-     * @param videoPath 视频文件路径
-     * @throws BusinessException faststart 应用失败时抛出
+     * @param inputPath 输入视频路径
+     * @param outputPath 输出视频路径
+     * @param segments 期望的分段数
+     * @param pool 执行分段编码的线程池
+     * @param options 转码参数（音频、关键帧间隔、分辨率上限）
+     * @param progressListener 进度回调（0.0~1.0），可为null
+     * @throws BusinessException 编码失败时抛出
      */
-    public static void applyFaststart(String videoPath) {
-        log.info("开始应用 faststart 优化: {}", videoPath);
+    public static void reencodeToH264Parallel(String inputPath, String outputPath, int segments,
+                                              ForkJoinPool pool, TranscodeOptions options,
+                                              DoubleConsumer progressListener) {
+        long lengthInTime;
+        int width;
+        int height;
+        double frameRate;
+        int videoBitrate;
+        int totalFrames;
+        int audioChannels;
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(inputPath)) {
+            grabber.start();
+            lengthInTime = grabber.getLengthInTime();
+            width = options.outputWidth(grabber.getImageWidth(), grabber.getImageHeight());
+            height = options.outputHeight(grabber.getImageWidth(), grabber.getImageHeight());
+            frameRate = grabber.getFrameRate();
+            videoBitrate = options.outputBitrate(grabber.getVideoBitrate() > 0 ? grabber.getVideoBitrate() : 2000000,
+                    grabber.getImageWidth(), grabber.getImageHeight());
+            totalFrames = grabber.getLengthInFrames();
+            audioChannels = grabber.getAudioChannels();
+        } catch (FrameGrabber.Exception e) {
+            log.error("获取视频信息失败: {}", inputPath, e);
+            throw new BusinessException("视频文件解析失败，请确认文件格式正确", e);
+        }
 
-        Path videoFile = Paths.get(videoPath);
-        if (!Files.exists(videoFile)) {
-            throw new BusinessException("视频文件不存在: " + videoPath);
+        int segmentCount = (int) Math.min(segments, lengthInTime / MIN_SEGMENT_DURATION_US);
+        if (segmentCount < 2 || (audioChannels > 0 && !options.dropAudio())) {
+            log.info("视频不适合分段并行转码（分段数: {}, 音频声道: {}），改为串行转码", segmentCount, audioChannels);
+            reencodeToH264(inputPath, outputPath, true, options, progressListener);
+            return;
+        }
+
+        log.info("开始分段并行转码，输入: {}, 输出: {}, 分段数: {}", inputPath, outputPath, segmentCount);
+
+        Path segmentDir = Paths.get(outputPath + ".segments");
+        List<Path> segmentFiles = new ArrayList<>();
+        AtomicInteger encodedFrames = new AtomicInteger();
+        try {
+            Files.createDirectories(segmentDir);
+
+            List<Callable<Integer>> segmentTasks = new ArrayList<>();
+            long segmentLength = lengthInTime / segmentCount;
+            for (int i = 0; i < segmentCount; i++) {
+                long startTime = i * segmentLength;
+                long endTime = i == segmentCount - 1 ? Long.MAX_VALUE : (i + 1) * segmentLength;
+                Path segmentFile = segmentDir.resolve(String.format("segment_%03d.mp4", i));
+                segmentFiles.add(segmentFile);
+                segmentTasks.add(() -> encodeSegment(inputPath, segmentFile.toString(), startTime, endTime,
+                        width, height, frameRate, videoBitrate, options, () -> {
+                            int count = encodedFrames.incrementAndGet();
+                            if (progressListener != null && totalFrames > 0 && count % 1000 == 0) {
+                                progressListener.accept(Math.min(1.0, (double) count / totalFrames));
+                            }
+                        }));
+            }
+
+            // 等待全部分段完成，任一分段失败则整体失败
+            for (Future<Integer> future : pool.invokeAll(segmentTasks)) {
+                future.get();
+            }
+
+            concatSegments(segmentFiles, outputPath, width, height, frameRate);
+
+            log.info("分段并行转码完成，共处理 {} 帧", encodedFrames.get());
+        } catch (Exception e) {
+            try {
+                Files.deleteIfExists(Paths.get(outputPath));
+            } catch (IOException deleteEx) {
+                log.warn("删除不完整的输出文件失败: {}", outputPath, deleteEx);
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            log.error("分段并行转码失败", cause);
+            throw new BusinessException("视频重新编码失败: " + cause.getMessage(), cause);
+        } finally {
+            for (Path segmentFile : segmentFiles) {
+                try {
+                    Files.deleteIfExists(segmentFile);
+                } catch (IOException e) {
+                    log.warn("删除分段文件失败: {}", segmentFile, e);
+                }
+            }
+            try {
+                Files.deleteIfExists(segmentDir);
+            } catch (IOException e) {
+                log.warn("删除分段目录失败: {}", segmentDir, e);
+            }
         }
+    }
 
-        // 创建临时输出文件
-        String tempOutput = videoPath + ".faststart.tmp.mp4";
-        Path tempFile = Paths.get(tempOutput);
+    /**
+     * 编码一个时间段 [startTime, endTime) 的视频帧为独立的MP4
+     *
+     * @return 编码的帧数
+     */
+    private static int encodeSegment(String inputPath, String segmentPath, long startTime, long endTime,
+                                     int width, int height, double frameRate, int videoBitrate,
+                                     TranscodeOptions options, Runnable onFrame) throws Exception {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(inputPath);
+             FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(segmentPath, width, height, 0)) {
+            grabber.start();
+            if (startTime > 0) {
+                // 定位到起点之前最近的关键帧并向后解码到起点
+                grabber.setTimestamp(startTime);
+            }
+
+            recorder.setVideoCodec(org.bytedeco.ffmpeg.global.avcodec.AV_CODEC_ID_H264);
+            recorder.setFormat("mp4");
+            recorder.setFrameRate(frameRate);
+            recorder.setVideoBitrate(videoBitrate);
+            // 不使用B帧，保证分段拼接时解码时间戳单调递增
+            recorder.setVideoOption("bf", "0");
+            applyKeyframeInterval(recorder, options, frameRate);
+            recorder.start();
 
-        ProcessBuilder processBuilder = new ProcessBuilder(
-            "ffmpeg",
-            "-i", videoPath,
-            "-c", "copy",          // 不重新编码，只复制流
-            "-movflags", "faststart",  // 应用 faststart 标志
-            "-y",                  // 覆盖输出文件
-            tempOutput
-        );
+            int frameCount = 0;
+            Frame frame;
+            while ((frame = grabber.grabImage()) != null) {
+                if (frame.timestamp < startTime) {
+                    continue;
+                }
+                if (frame.timestamp >= endTime) {
+                    break;
+                }
+                recorder.record(frame);
+                frameCount++;
+                onFrame.run();
+            }
+            recorder.stop();
 
-        // 合并标准错误和标准输出
-        processBuilder.redirectErrorStream(true);
+            log.debug("分段编码完成: {}, 帧数: {}", segmentPath, frameCount);
+            return frameCount;
+        }
+    }
 
-        Process process = null;
+    /**
+     * 按数据包复制将多个分段拼接为一个MP4（应用 faststart）
+     */
+    private static void concatSegments(List<Path> segmentFiles, String outputPath,
+                                       int width, int height, double frameRate) throws Exception {
+        List<FFmpegFrameGrabber> grabbers = new ArrayList<>();
+        FFmpegFrameRecorder recorder = null;
         try {
-            // 启动 FFmpeg 进程
-            process = processBuilder.start();
+            for (Path segmentFile : segmentFiles) {
+                FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(segmentFile.toString());
+                grabbers.add(grabber);
+                grabber.start();
+            }
 
-            // 读取输出（用于日志记录和错误诊断）
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
+            // 以第一段的格式上下文作为输出流参数和时间基准
+            FFmpegFrameGrabber first = grabbers.get(0);
+            AVRational timeBase = first.getFormatContext().streams(first.getVideoStream()).time_base();
+
+            recorder = new FFmpegFrameRecorder(outputPath, width, height, 0);
+            recorder.setFormat("mp4");
+            recorder.setFrameRate(frameRate);
+            recorder.setOption("movflags", "faststart");
+            recorder.start(first.getFormatContext());
+
+            long offset = 0;
+            for (FFmpegFrameGrabber grabber : grabbers) {
+                int videoStream = grabber.getVideoStream();
+                AVRational segmentTimeBase = grabber.getFormatContext().streams(videoStream).time_base();
+                long segmentEnd = 0;
+
+                AVPacket packet;
+                while ((packet = grabber.grabPacket()) != null) {
+                    if (packet.stream_index() != videoStream) {
+                        continue;
+                    }
+                    long pts = avutil.av_rescale_q(packet.pts(), segmentTimeBase, timeBase);
+                    long dts = avutil.av_rescale_q(packet.dts(), segmentTimeBase, timeBase);
+                    long duration = avutil.av_rescale_q(packet.duration(), segmentTimeBase, timeBase);
+                    segmentEnd = Math.max(segmentEnd, pts + duration);
+
+                    packet.pts(pts + offset);
+                    packet.dts(dts + offset);
+                    packet.duration(duration);
+                    packet.stream_index(first.getVideoStream());
+                    recorder.recordPacket(packet);
                 }
+                offset += segmentEnd;
+            }
+            recorder.stop();
+        } finally {
+            if (recorder != null) {
+                try {
+                    recorder.release();
+                } catch (Exception e) {
+                    log.warn("关闭录制器失败", e);
+                }
+            }
+            for (FFmpegFrameGrabber grabber : grabbers) {
+                try {
+                    grabber.close();
+                } catch (Exception e) {
+                    log.warn("关闭抓取器失败", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按转码参数设置固定关键帧间隔，使关键帧均匀分布便于定位
+     * （使用 libx264 时同时关闭场景切换插入的额外关键帧，OpenH264 只使用 gop_size）
+     */
+    private static void applyKeyframeInterval(FFmpegFrameRecorder recorder, TranscodeOptions options, double frameRate) {
+        if (options.keyframeInterval() <= 0 || frameRate <= 0) {
+            return;
+        }
+        int gopSize = Math.max(1, (int) Math.round(frameRate * options.keyframeInterval()));
+        recorder.setGopSize(gopSize);
+        recorder.setVideoOption("keyint_min", String.valueOf(gopSize));
+        recorder.setVideoOption("sc_threshold", "0");
+    }
+
+    /**
+     * 转码参数
+     *
+     * @param dropAudio 是否丢弃音频
+     * @param keyframeInterval 固定关键帧间隔（秒），不大于0时使用编码器默认值
+     * @param maxHeight 输出高度上限（像素，按比例缩放），不大于0时保持原分辨率
+     */
+    public record TranscodeOptions(boolean dropAudio, double keyframeInterval, int maxHeight) {
+
+        /**
+         * 默认参数：保留音频、编码器默认关键帧间隔、原分辨率
+         */
+        public static final TranscodeOptions DEFAULT = new TranscodeOptions(false, 0, 0);
+
+        /**
+         * 计算输出高度（偶数，编码器要求）
+         */
+        public int outputHeight(int width, int height) {
+            if (maxHeight <= 0 || height <= maxHeight) {
+                return height;
             }
+            return maxHeight & ~1;
+        }
 
-            // 等待进程完成（最多等待5分钟）
-            boolean finished = process.waitFor(5, TimeUnit.MINUTES);
+        /**
+         * 按输出高度等比例计算输出宽度（偶数，编码器要求）
+         */
+        public int outputWidth(int width, int height) {
+            int outputHeight = outputHeight(width, height);
+            if (outputHeight == height) {
+                return width;
+            }
+            return (int) Math.round((double) width * outputHeight / height / 2) * 2;
+        }
 
-            if (!finished) {
-                process.destroy();
-                throw new BusinessException("FFmpeg 处理超时（超过5分钟）");
+        /**
+         * 按输出像素数等比例缩小码率
+         */
+        public int outputBitrate(int bitrate, int width, int height) {
+            int outputHeight = outputHeight(width, height);
+            if (outputHeight == height) {
+                return bitrate;
             }
+            double ratio = (double) outputWidth(width, height) * outputHeight / ((double) width * height);
+            return (int) Math.round(bitrate * ratio);
+        }
+    }
+
+    /**
+     * 扫描视频包（不解码）建立关键帧索引
+     *
+     * @param videoPath 视频文件路径
+     * @return 关键帧索引
+     * @throws BusinessException 读取失败时抛出
+     */
+    public static KeyframeIndex buildKeyframeIndex(String videoPath) {
+        FFmpegFrameGrabber grabber = null;
+        try {
+            grabber = new FFmpegFrameGrabber(videoPath);
+            grabber.start();
 
-            int exitCode = process.exitValue();
-            if (exitCode != 0) {
-                log.error("FFmpeg 执行失败，退出码: {}, 输出:\n{}", exitCode, output);
-                throw new BusinessException("FFmpeg 执行失败，退出码: " + exitCode);
+            AVFormatContext formatContext = grabber.getFormatContext();
+            int videoStream = grabber.getVideoStream();
+            AVRational timeBase = formatContext.streams(videoStream).time_base();
+            AVRational microseconds = avutil.av_make_q(1, 1000000);
+            // 与 FFmpegFrameGrabber 返回的帧时间戳一致，以容器起始时间为0
+            long startTime = formatContext.start_time() != avutil.AV_NOPTS_VALUE ? formatContext.start_time() : 0;
+
+            // 关键帧的 帧号、时间戳、字节偏移
+            List<long[]> keyframes = new ArrayList<>();
+            int frameCount = 0;
+            AVPacket packet;
+            while ((packet = grabber.grabPacket()) != null) {
+                try {
+                    if (packet.stream_index() != videoStream) {
+                        continue;
+                    }
+                    if ((packet.flags() & avcodec.AV_PKT_FLAG_KEY) != 0 && packet.pts() != avutil.AV_NOPTS_VALUE) {
+                        keyframes.add(new long[]{
+                                frameCount,
+                                avutil.av_rescale_q(packet.pts(), timeBase, microseconds) - startTime,
+                                packet.pos()
+                        });
+                    }
+                    frameCount++;
+                } finally {
+                    avcodec.av_packet_unref(packet);
+                }
             }
 
-            // 验证临时文件
-            if (!Files.exists(tempFile)) {
-                throw new BusinessException("FFmpeg 未生成输出文件");
+            keyframes.sort(java.util.Comparator.comparingLong(entry -> entry[1]));
+            long[] frames = new long[keyframes.size()];
+            long[] timestamps = new long[keyframes.size()];
+            long[] offsets = new long[keyframes.size()];
+            for (int i = 0; i < keyframes.size(); i++) {
+                frames[i] = keyframes.get(i)[0];
+                timestamps[i] = keyframes.get(i)[1];
+                offsets[i] = keyframes.get(i)[2];
             }
+            log.debug("关键帧索引建立完成: {}, 帧数: {}, 关键帧数: {}", videoPath, frameCount, timestamps.length);
+            return new KeyframeIndex(grabber.getFrameRate(), frameCount, frames, timestamps, offsets);
 
-            long tempFileSize = Files.size(tempFile);
-            if (tempFileSize == 0) {
-                throw new BusinessException("FFmpeg 生成的文件大小为 0");
+        } catch (Exception e) {
+            log.error("建立关键帧索引失败: {}", videoPath, e);
+            throw new BusinessException("建立关键帧索引失败: " + e.getMessage(), e);
+        } finally {
+            try {
+                if (grabber != null) {
+                    grabber.stop();
+                    grabber.release();
+                }
+            } catch (Exception e) {
+                log.warn("关闭抓取器失败", e);
             }
+        }
+    }
+
+    /**
+     * 关键帧索引
+     *
+     * @param frameRate 帧率
+     * @param totalFrames 视频帧数
+     * @param keyframeFrames 关键帧帧号
+     * @param keyframeTimestamps 关键帧时间戳（微秒，升序）
+     * @param keyframeOffsets 关键帧数据包在文件中的字节偏移（未知时为-1）
+     */
+    public record KeyframeIndex(double frameRate, int totalFrames, long[] keyframeFrames,
+                                long[] keyframeTimestamps, long[] keyframeOffsets) {
+
+        /**
+         * 帧号对应的时间戳（微秒），按平均帧率换算
+         * 可变帧率视频只是近似值，需要精确到帧时应从 {@link #keyframeFrameBefore(long)} 对应的关键帧开始逐帧计数
+         */
+        public long frameTimestamp(long frameNumber) {
+            return Math.round(frameNumber * 1_000_000.0 / frameRate);
+        }
 
-            // 替换原文件
-            long originalSize = Files.size(videoFile);
-            Files.move(tempFile, videoFile, StandardCopyOption.REPLACE_EXISTING);
+        /**
+         * 不晚于指定时间戳的最近关键帧时间戳，没有时返回0
+         */
+        public long keyframeBefore(long timestamp) {
+            int index = indexBefore(keyframeTimestamps, timestamp);
+            return index >= 0 ? keyframeTimestamps[index] : 0;
+        }
 
-            log.info("faststart 优化完成: {} (原始: {} MB, 优化后: {} MB)",
-                    videoPath,
-                    originalSize / 1024 / 1024,
-                    tempFileSize / 1024 / 1024);
+        /**
+         * 不晚于指定帧号的最近关键帧在索引中的位置，没有时返回-1
+         */
+        public int keyframeIndexBeforeFrame(long frameNumber) {
+            return indexBefore(keyframeFrames, frameNumber);
+        }
 
-        } catch (IOException e) {
-            log.error("文件操作失败", e);
-            // 清理临时文件
+        /**
+         * 不晚于指定帧号的最近关键帧帧号，没有时返回0（从视频开头计数）
+         */
+        public long keyframeFrameBefore(long frameNumber) {
+            int index = keyframeIndexBeforeFrame(frameNumber);
+            return index >= 0 ? keyframeFrames[index] : 0;
+        }
+
+        /**
+         * 不晚于指定帧号的最近关键帧时间戳，没有时返回0
+         */
+        public long keyframeTimestampBeforeFrame(long frameNumber) {
+            int index = keyframeIndexBeforeFrame(frameNumber);
+            return index >= 0 ? keyframeTimestamps[index] : 0;
+        }
+
+        private static int indexBefore(long[] sorted, long value) {
+            int index = java.util.Arrays.binarySearch(sorted, value);
+            return index >= 0 ? index : -index - 2;
+        }
+    }
+
+    /**
+     * 单次顺序解码提取多个帧：帧号升序处理，下一目标帧所在GOP在当前位置之后时向前跳到该GOP的关键帧，
+     * 其余情况继续顺序解码，整个过程只打开一次视频且不会回退。
+     * 从关键帧开始逐帧计数定位目标帧，不按帧率换算时间戳，可变帧率视频同样精确
+     *
+     * @param videoPath 视频文件路径
+     * @param index 关键帧索引
+     * @param frameNumbers 帧号（升序、不重复）
+     * @param handler 帧处理回调（帧缓冲区会被复用，需在回调内完成转换）
+     * @throws BusinessException 解码失败时抛出
+     */
+    public static void extractFrames(String videoPath, KeyframeIndex index, long[] frameNumbers,
+                                     java.util.function.BiConsumer<Long, Frame> handler) {
+        if (frameNumbers.length == 0) {
+            return;
+        }
+
+        FFmpegFrameGrabber grabber = null;
+        try {
+            grabber = new FFmpegFrameGrabber(videoPath);
+            grabber.start();
+
+            // 最后解码帧的帧号
+            long position = -1;
+            int extracted = 0;
+            for (long frameNumber : frameNumbers) {
+                long keyframe = index.keyframeFrameBefore(frameNumber);
+                if (position < 0 || keyframe > position) {
+                    grabber.setTimestamp(index.keyframeTimestampBeforeFrame(frameNumber));
+                    position = keyframe - 1;
+                }
+
+                Frame frame = null;
+                while (position < frameNumber && (frame = grabber.grabImage()) != null) {
+                    position++;
+                }
+                if (frame == null) {
+                    log.warn("帧号超出视频范围，停止提取: {}, 帧号: {}", videoPath, frameNumber);
+                    break;
+                }
+                handler.accept(frameNumber, frame);
+                extracted++;
+            }
+            log.info("批量提取帧完成: {}, 请求 {} 帧，提取 {} 帧", videoPath, frameNumbers.length, extracted);
+
+        } catch (FFmpegFrameGrabber.Exception e) {
+            log.error("批量提取帧失败: {}", videoPath, e);
+            throw new BusinessException("批量提取帧失败: " + e.getMessage(), e);
+        } finally {
             try {
-                Files.deleteIfExists(tempFile);
-            } catch (IOException cleanupEx) {
-                log.warn("清理临时文件失败: {}", tempOutput, cleanupEx);
+                if (grabber != null) {
+                    grabber.stop();
+                    grabber.release();
+                }
+            } catch (Exception e) {
+                log.warn("关闭抓取器失败", e);
             }
-            throw new BusinessException("faststart 优化失败: " + e.getMessage(), e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("FFmpeg 进程被中断", e);
-            // 清理临时文件
+        }
+    }
+
+    /**
+     * 按时间范围流复制截取片段（不重新编码）
+     * 起始位置需为关键帧时间戳（由关键帧索引给出），否则片段开头会花屏；结束位置之后的包不再写入
+     *
+     * @param inputPath 输入视频路径
+     * @param outputPath 输出片段路径（mp4，已应用 faststart）
+     * @param startTime 起始关键帧时间戳（微秒，以容器起始时间为0）
+     * @param endTime 结束时间戳（微秒，不包含）
+     * @throws BusinessException 截取失败时抛出
+     */
+    public static void cutClip(String inputPath, String outputPath, long startTime, long endTime) {
+        log.info("开始截取片段，输入: {}, 输出: {}, 范围: {} ~ {} 微秒", inputPath, outputPath, startTime, endTime);
+
+        FFmpegFrameGrabber grabber = null;
+        FFmpegFrameRecorder recorder = null;
+        try {
+            grabber = new FFmpegFrameGrabber(inputPath);
+            grabber.start();
+
+            AVFormatContext formatContext = grabber.getFormatContext();
+            int videoStream = grabber.getVideoStream();
+            AVRational microseconds = avutil.av_make_q(1, 1000000);
+            long containerStart = formatContext.start_time() != avutil.AV_NOPTS_VALUE ? formatContext.start_time() : 0;
+
+            // 定位到起始关键帧（不解码）
+            AVRational videoTimeBase = formatContext.streams(videoStream).time_base();
+            long seekTarget = avutil.av_rescale_q(startTime + containerStart, microseconds, videoTimeBase);
+            if (avformat.av_seek_frame(formatContext, videoStream, seekTarget, avformat.AVSEEK_FLAG_BACKWARD) < 0) {
+                throw new BusinessException("定位起始关键帧失败");
+            }
+
+            recorder = new FFmpegFrameRecorder(outputPath, grabber.getImageWidth(), grabber.getImageHeight(),
+                    grabber.getAudioChannels());
+            recorder.setFormat("mp4");
+            recorder.setFrameRate(grabber.getFrameRate());
+            recorder.setOption("movflags", "faststart");
+            recorder.start(formatContext);
+
+            int packetCount = 0;
+            AVPacket packet;
+            while ((packet = grabber.grabPacket()) != null) {
+                try {
+                    AVRational timeBase = formatContext.streams(packet.stream_index()).time_base();
+                    long offset = avutil.av_rescale_q(startTime + containerStart, microseconds, timeBase);
+                    boolean isVideo = packet.stream_index() == videoStream;
+                    // 视频按解码时间判断结束，保证被引用的帧都已写入
+                    long position = isVideo && packet.dts() != avutil.AV_NOPTS_VALUE ? packet.dts() : packet.pts();
+                    if (position == avutil.AV_NOPTS_VALUE) {
+                        continue;
+                    }
+                    long time = avutil.av_rescale_q(position, timeBase, microseconds) - containerStart;
+                    if (time >= endTime) {
+                        if (isVideo) {
+                            break;
+                        }
+                        continue;
+                    }
+                    if (!isVideo && time < startTime) {
+                        continue;
+                    }
+
+                    packet.pts(packet.pts() != avutil.AV_NOPTS_VALUE ? packet.pts() - offset : avutil.AV_NOPTS_VALUE);
+                    packet.dts(packet.dts() != avutil.AV_NOPTS_VALUE ? packet.dts() - offset : avutil.AV_NOPTS_VALUE);
+                    recorder.recordPacket(packet);
+                    packetCount++;
+                } finally {
+                    avcodec.av_packet_unref(packet);
+                }
+            }
+            recorder.stop();
+
+            log.info("片段截取完成，共写入 {} 个数据包", packetCount);
+
+        } catch (Exception e) {
             try {
-                Files.deleteIfExists(tempFile);
-            } catch (IOException cleanupEx) {
-                log.warn("清理临时文件失败: {}", tempOutput, cleanupEx);
+                Files.deleteIfExists(Paths.get(outputPath));
+            } catch (IOException deleteEx) {
+                log.warn("删除不完整的片段失败: {}", outputPath, deleteEx);
+            }
+            log.error("片段截取失败", e);
+            throw new BusinessException("片段截取失败: " + e.getMessage(), e);
+        } finally {
+            if (recorder != null) {
+                try {
+                    recorder.release();
+                } catch (Exception e) {
+                    log.warn("关闭录制器失败", e);
+                }
             }
-            throw new BusinessException("faststart 优化被中断", e);
-        } catch (BusinessException e) {
-            // 清理临时文件
             try {
-                Files.deleteIfExists(tempFile);
-            } catch (IOException cleanupEx) {
-                log.warn("清理临时文件失败: {}", tempOutput, cleanupEx);
+                if (grabber != null) {
+                    grabber.stop();
+                    grabber.release();
+                }
+            } catch (Exception e) {
+                log.warn("关闭抓取器失败", e);
+            }
+        }
+    }
+
+    /**
+     * HLS 主播放列表文件名
+     */
+    public static final String HLS_MASTER_PLAYLIST = "master.m3u8";
+
+    /**
+     * 将视频打包为多码率 HLS（fMP4 分片），只解码一次，每帧依次送入各码率的编码器
+     * 各码率使用相同的固定关键帧间隔（等于分片时长），保证分片边界对齐，便于播放器切换码率
+     *
+     * @param inputPath 输入视频路径
+     * @param outputDir 输出目录（需已存在），写入 master.m3u8、各码率播放列表、初始化分片和媒体分片
+     * @param renditions 码率档位（高度大于源视频的档位会被跳过，全部跳过时按源分辨率输出最低码率）
+     * @param segmentDuration 分片时长（秒）
+     * @param uriPrefix 主播放列表中各码率播放列表URI的前缀（如 "key/"），可为空字符串
+     * @throws BusinessException 打包失败时抛出
+     */
+    public static void packageHls(String inputPath, Path outputDir, List<HlsRendition> renditions,
+                                  int segmentDuration, String uriPrefix) {
+        log.info("开始打包HLS，输入: {}, 输出目录: {}, 档位: {}", inputPath, outputDir, renditions);
+
+        FFmpegFrameGrabber grabber = null;
+        List<FFmpegFrameRecorder> recorders = new ArrayList<>();
+
+        try {
+            grabber = new FFmpegFrameGrabber(inputPath);
+            grabber.start();
+
+            int sourceWidth = grabber.getImageWidth();
+            int sourceHeight = grabber.getImageHeight();
+            double frameRate = grabber.getFrameRate();
+            boolean keepAudio = grabber.getAudioChannels() > 0;
+
+            List<HlsRendition> selected = renditions.stream()
+                    .filter(r -> r.height() <= sourceHeight)
+                    .toList();
+            if (selected.isEmpty()) {
+                int lowestBitrate = renditions.stream().mapToInt(HlsRendition::bitrate).min().orElse(800000);
+                selected = List.of(new HlsRendition(sourceHeight, lowestBitrate));
+            }
+
+            StringBuilder master = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:7\n#EXT-X-INDEPENDENT-SEGMENTS\n");
+            TranscodeOptions keyframeOptions = new TranscodeOptions(!keepAudio, segmentDuration, 0);
+            for (int i = 0; i < selected.size(); i++) {
+                HlsRendition rendition = selected.get(i);
+                TranscodeOptions options = new TranscodeOptions(!keepAudio, segmentDuration, rendition.height());
+                int width = options.outputWidth(sourceWidth, sourceHeight);
+                int height = options.outputHeight(sourceWidth, sourceHeight);
+                String name = "v" + i;
+
+                FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(
+                        outputDir.resolve(name + ".m3u8").toString(), width, height, keepAudio ? grabber.getAudioChannels() : 0);
+                recorder.setVideoCodec(avcodec.AV_CODEC_ID_H264);
+                recorder.setFormat("hls");
+                recorder.setFrameRate(frameRate);
+                recorder.setVideoBitrate(rendition.bitrate());
+                applyKeyframeInterval(recorder, keyframeOptions, frameRate);
+                if (keepAudio) {
+                    recorder.setAudioCodec(avcodec.AV_CODEC_ID_AAC);
+                    recorder.setSampleRate(grabber.getSampleRate());
+                    recorder.setAudioBitrate(128000);
+                }
+                // hls muxer 选项：点播列表、fMP4 分片、分片文件名相对于播放列表
+                recorder.setOption("hls_time", String.valueOf(segmentDuration));
+                recorder.setOption("hls_playlist_type", "vod");
+                recorder.setOption("hls_segment_type", "fmp4");
+                recorder.setOption("hls_flags", "independent_segments");
+                recorder.setOption("hls_fmp4_init_filename", name + "_init.mp4");
+                recorder.setOption("hls_segment_filename", outputDir.resolve(name + "_%05d.m4s").toString());
+                recorders.add(recorder);
+                recorder.start();
+
+                int bandwidth = rendition.bitrate() + (keepAudio ? 128000 : 0);
+                master.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(bandwidth)
+                        .append(",RESOLUTION=").append(width).append('x').append(height);
+                if (frameRate > 0) {
+                    master.append(",FRAME-RATE=").append(String.format(java.util.Locale.ROOT, "%.3f", frameRate));
+                }
+                master.append('\n').append(uriPrefix).append(name).append(".m3u8\n");
+            }
+
+            Frame frame;
+            int frameCount = 0;
+            while ((frame = keepAudio ? grabber.grab() : grabber.grabImage()) != null) {
+                for (FFmpegFrameRecorder recorder : recorders) {
+                    recorder.record(frame);
+                }
+                if (frame.image != null && ++frameCount % 1000 == 0) {
+                    log.debug("HLS打包已处理 {} 帧", frameCount);
+                }
+            }
+
+            // 先结束各码率列表（写入 #EXT-X-ENDLIST），再写主播放列表，主播放列表存在即表示打包完成
+            for (FFmpegFrameRecorder recorder : recorders) {
+                recorder.stop();
             }
-            throw e;
+            Files.writeString(outputDir.resolve(HLS_MASTER_PLAYLIST), master.toString());
+
+            log.info("HLS打包完成，共处理 {} 帧，档位数: {}", frameCount, selected.size());
+
+        } catch (Exception e) {
+            log.error("HLS打包失败", e);
+            throw new BusinessException("HLS打包失败: " + e.getMessage(), e);
         } finally {
-            if (process != null && process.isAlive()) {
-                process.destroy();
+            for (FFmpegFrameRecorder recorder : recorders) {
+                try {
+                    recorder.release();
+                } catch (Exception e) {
+                    log.warn("关闭录制器失败", e);
+                }
+            }
+
+            try {
+                if (grabber != null) {
+                    grabber.stop();
+                    grabber.release();
+                }
+            } catch (Exception e) {
+                log.warn("关闭抓取器失败", e);
             }
         }
     }
 
+    /**
+     * HLS 码率档位
+     *
+     * @param height 输出高度（像素）
+     * @param bitrate 视频码率（bps）
+     */
+    public record HlsRendition(int height, int bitrate) {
+    }
+
+    /**
+     * 时间轴精灵图单边尺寸上限（JPEG 限制），超出时自动加大缩略图间隔
+     */
+    private static final int MAX_SPRITE_SIZE = 65500;
+
+    /**
+     * 生成低分辨率代理视频和时间轴精灵图（只解码一次）
+     * 每帧送入代理视频编码器，到达下一个缩略图时间点的帧同时缩放绘制到精灵图；
+     * WebVTT 中每条提示对应一段时间区间，内容为 {@code 精灵图URI#xywh=x,y,w,h}，可直接用于播放器的预览缩略图轨道
+     *
+     * @param inputPath 输入视频路径
+     * @param proxyPath 代理视频输出路径（mp4，已应用 faststart）
+     * @param spritePath 精灵图输出路径（jpg）
+     * @param vttPath WebVTT 索引输出路径
+     * @param options 预览参数
+     * @throws BusinessException 生成失败时抛出
+     */
+    public static void generatePreview(String inputPath, Path proxyPath, Path spritePath, Path vttPath,
+                                       PreviewOptions options) {
+        log.info("开始生成预览，输入: {}, 参数: {}", inputPath, options);
+
+        FFmpegFrameGrabber grabber = null;
+        FFmpegFrameRecorder recorder = null;
+        Graphics2D spriteGraphics = null;
+
+        try {
+            grabber = new FFmpegFrameGrabber(inputPath);
+            grabber.start();
+
+            int sourceWidth = grabber.getImageWidth();
+            int sourceHeight = grabber.getImageHeight();
+            double frameRate = grabber.getFrameRate();
+            boolean keepAudio = grabber.getAudioChannels() > 0;
+
+            // 代理视频：限制高度、固定关键帧间隔，拖动进度条时定位快
+            TranscodeOptions proxyOptions = new TranscodeOptions(!keepAudio, options.keyframeInterval(), options.proxyHeight());
+            recorder = new FFmpegFrameRecorder(proxyPath.toString(),
+                    proxyOptions.outputWidth(sourceWidth, sourceHeight),
+                    proxyOptions.outputHeight(sourceWidth, sourceHeight),
+                    keepAudio ? grabber.getAudioChannels() : 0);
+            recorder.setVideoCodec(avcodec.AV_CODEC_ID_H264);
+            recorder.setFormat("mp4");
+            recorder.setFrameRate(frameRate);
+            recorder.setVideoBitrate(options.proxyBitrate());
+            applyKeyframeInterval(recorder, proxyOptions, frameRate);
+            recorder.setOption("movflags", "faststart");
+            if (keepAudio) {
+                recorder.setAudioCodec(avcodec.AV_CODEC_ID_AAC);
+                recorder.setSampleRate(grabber.getSampleRate());
+                recorder.setAudioBitrate(64000);
+            }
+            recorder.start();
+
+            // 精灵图：缩略图数超出单张上限时加大间隔
+            long duration = Math.max(0, grabber.getLengthInTime());
+            int tileWidth = options.tileWidth();
+            int tileHeight = Math.max(2, (int) Math.round((double) sourceHeight * tileWidth / sourceWidth));
+            int maxTiles = Math.max(1, MAX_SPRITE_SIZE / tileHeight) * options.columns();
+            long interval = Math.max(Math.round(options.spriteInterval() * 1_000_000),
+                    (duration + maxTiles - 1) / maxTiles);
+            int tileCount = (int) Math.max(1, (duration + interval - 1) / interval);
+            int columns = Math.min(options.columns(), tileCount);
+            int rows = (tileCount + columns - 1) / columns;
+            BufferedImage sprite = new BufferedImage(columns * tileWidth, rows * tileHeight, BufferedImage.TYPE_INT_RGB);
+            spriteGraphics = sprite.createGraphics();
+            spriteGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+            Java2DFrameConverter converter = new Java2DFrameConverter();
+            StringBuilder vtt = new StringBuilder("WEBVTT\n");
+            int tile = 0;
+            int frameCount = 0;
+            Frame frame;
+            while ((frame = keepAudio ? grabber.grab() : grabber.grabImage()) != null) {
+                recorder.record(frame);
+                if (frame.image == null) {
+                    continue;
+                }
+                if (tile < tileCount && frame.timestamp >= tile * interval) {
+                    BufferedImage image = converter.getBufferedImage(frame);
+                    // 帧间隔大于缩略图间隔时（如可变帧率），同一帧填充多个缩略图
+                    while (tile < tileCount && frame.timestamp >= tile * interval) {
+                        int x = tile % columns * tileWidth;
+                        int y = tile / columns * tileHeight;
+                        spriteGraphics.drawImage(image, x, y, tileWidth, tileHeight, null);
+                        long cueEnd = tile == tileCount - 1 ? Math.max(duration, (tile + 1) * interval) : (tile + 1) * interval;
+                        vtt.append('\n').append(formatVttTime(tile * interval))
+                                .append(" --> ").append(formatVttTime(cueEnd)).append('\n')
+                                .append(options.spriteUri()).append("#xywh=")
+                                .append(x).append(',').append(y).append(',')
+                                .append(tileWidth).append(',').append(tileHeight).append('\n');
+                        tile++;
+                    }
+                }
+                if (++frameCount % 1000 == 0) {
+                    log.debug("预览生成已处理 {} 帧", frameCount);
+                }
+            }
+            recorder.stop();
+
+            ImageIO.write(sprite, "jpg", spritePath.toFile());
+            Files.writeString(vttPath, vtt.toString());
+
+            log.info("预览生成完成，共处理 {} 帧，缩略图数: {}, 间隔: {} ms", frameCount, tile, interval / 1000);
+
+        } catch (Exception e) {
+            log.error("预览生成失败", e);
+            throw new BusinessException("预览生成失败: " + e.getMessage(), e);
+        } finally {
+            if (spriteGraphics != null) {
+                spriteGraphics.dispose();
+            }
+
+            try {
+                if (recorder != null) {
+                    recorder.release();
+                }
+            } catch (Exception e) {
+                log.warn("关闭录制器失败", e);
+            }
+
+            try {
+                if (grabber != null) {
+                    grabber.stop();
+                    grabber.release();
+                }
+            } catch (Exception e) {
+                log.warn("关闭抓取器失败", e);
+            }
+        }
+    }
+
+    /**
+     * 格式化 WebVTT 时间（hh:mm:ss.mmm）
+     */
+    private static String formatVttTime(long timestamp) {
+        long millis = timestamp / 1000;
+        return String.format(Locale.ROOT, "%02d:%02d:%02d.%03d",
+                millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000);
+    }
+
+    /**
+     * 预览参数
+     *
+     * @param proxyHeight 代理视频高度上限（像素）
+     * @param proxyBitrate 代理视频码率（bps）
+     * @param keyframeInterval 代理视频关键帧间隔（秒）
+     * @param spriteInterval 时间轴缩略图间隔（秒）
+     * @param tileWidth 缩略图宽度（像素，高度按比例计算）
+     * @param columns 精灵图每行缩略图数
+     * @param spriteUri WebVTT 中引用精灵图的URI（相对于 WebVTT 文件）
+     */
+    public record PreviewOptions(int proxyHeight, int proxyBitrate, double keyframeInterval,
+                                 double spriteInterval, int tileWidth, int columns, String spriteUri) {
+    }
+
+    /**
+     * 应用 faststart 优化到视频文件
+     * faststart 将 moov atom 移到文件开头，使视频支持浏览器流式播放（边下载边播放）
+     * 只移动 moov 并修正块偏移，所有流原样保留；moov 已在开头时不修改文件
+     *
+     * @param videoPath 视频文件路径
+     * @throws BusinessException faststart 应用失败时抛出
+     */
+    public static void applyFaststart(String videoPath) {
+        log.info("开始应用 faststart 优化: {}", videoPath);
+
+        Path videoFile = Paths.get(videoPath);
+        if (!Files.exists(videoFile)) {
+            throw new BusinessException("视频文件不存在: " + videoPath);
+        }
+
+        try {
+            if (FaststartUtils.relocateMoov(videoFile)) {
+                log.info("faststart 优化完成: {} ({} MB)", videoPath, Files.size(videoFile) / 1024 / 1024);
+            } else {
+                log.info("视频无需 faststart 优化，保持原文件: {}", videoPath);
+            }
+        } catch (IOException e) {
+            log.error("faststart 优化失败: {}", videoPath, e);
+            throw new BusinessException("faststart 优化失败: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 视频信息实体
      */
@@ -318,6 +1269,8 @@ public class VideoUtils {
         private int totalFrames;   // 总帧数
         private String format;     // 格式
         private String codec;      // 视频编码格式
+        private String audioCodec; // 音频编码格式（无音频时为null）
+        private int audioChannels; // 音频声道数（无音频时为0）
 
         public int getDuration() {
             return duration;
@@ -374,6 +1327,22 @@ public class VideoUtils {
         public void setCodec(String codec) {
             this.codec = codec;
         }
+
+        public String getAudioCodec() {
+            return audioCodec;
+        }
+
+        public void setAudioCodec(String audioCodec) {
+            this.audioCodec = audioCodec;
+        }
+
+        public int getAudioChannels() {
+            return audioChannels;
+        }
+
+        public void setAudioChannels(int audioChannels) {
+            this.audioChannels = audioChannels;
+        }
     }
 
     /**
@@ -407,42 +1376,8 @@ public class VideoUtils {
 
             log.info("开始H264转码: {} -> {}", inputPath, outputPath);
 
-            // 构建FFmpeg命令
-            // -i: 输入文件
-            // -c:v libx264: 使用H264编码器
-            // -preset fast: 编码速度预设
-            // -crf 23: 质量参数 (18-28, 越小质量越好)
-            // -c:a aac: 音频使用AAC编码
-            // -b:a 128k: 音频比特率
-            // -y: 覆盖输出文件
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                    "ffmpeg",
-                    "-i", inputPath,
-                    "-c:v", "libx264",
-                    "-preset", "fast",
-                    "-crf", "23",
-                    "-c:a", "aac",
-                    "-b:a", "128k",
-                    "-y",
-                    outputPath
-            );
-
-            processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
-
-            // 读取FFmpeg输出
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    log.debug("FFmpeg: {}", line);
-                }
-            }
-
-            // 等待转码完成
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new BusinessException("视频转码失败，FFmpeg退出码: " + exitCode);
-            }
+            // 在进程内转码（H264 视频 + AAC 音频），同时写入 faststart
+            reencodeToH264(inputPath, outputPath, true, null);
 
             // 检查输出文件是否生成
             if (!outputFile.exists() || outputFile.length() == 0) {
@@ -452,11 +1387,8 @@ public class VideoUtils {
             log.info("H264转码完成: {}", outputPath);
             return outputPath;
 
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             log.error("视频转码失败: {}", inputPath, e);
-            if (e instanceof InterruptedException) {
-                Thread.currentThread().interrupt();
-            }
             throw new BusinessException("视频转码失败: " + e.getMessage(), e);
         }
     }
@@ -468,25 +1400,29 @@ public class VideoUtils {
      * @return true如果是H264编码
      */
     private static boolean isH264Encoded(String videoPath) {
+        // 只读取容器头和流信息，不打开解码器
+        AVFormatContext formatContext = new AVFormatContext(null);
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                    "ffprobe",
-                    "-v", "error",
-                    "-select_streams", "v:0",
-                    "-show_entries", "stream=codec_name",
-                    "-of", "default=noprint_wrappers=1:nokey=1",
-                    videoPath
-            );
-
-            Process process = processBuilder.start();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String codecName = reader.readLine();
-                log.debug("视频编码格式: {}", codecName);
-                return "h264".equalsIgnoreCase(codecName);
+            if (avformat.avformat_open_input(formatContext, videoPath, null, null) < 0) {
+                log.warn("打开视频文件失败，假定需要转码: {}", videoPath);
+                return false;
+            }
+            if (avformat.avformat_find_stream_info(formatContext, (PointerPointer<?>) null) < 0) {
+                log.warn("读取视频流信息失败，假定需要转码: {}", videoPath);
+                return false;
+            }
+
+            for (int i = 0; i < formatContext.nb_streams(); i++) {
+                AVCodecParameters codecParameters = formatContext.streams(i).codecpar();
+                if (codecParameters.codec_type() == avutil.AVMEDIA_TYPE_VIDEO) {
+                    log.debug("视频编码格式: {}", avcodec.avcodec_get_name(codecParameters.codec_id()).getString());
+                    return codecParameters.codec_id() == avcodec.AV_CODEC_ID_H264;
+                }
             }
-        } catch (IOException e) {
-            log.warn("检查视频编码格式失败，假定需要转码: {}", videoPath, e);
             return false;
+        } finally {
+            // 立即释放本地内存，不依赖GC
+            avformat.avformat_close_input(formatContext);
         }
     }
 }
@@ -0,0 +1,105 @@
+package ustb.hyy.app.backend.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import lombok.Data;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+
+/**
+ * HLS 自适应码率打包配置
+ * 导入完成和结果视频登记后在后台生成多码率 fMP4 分片，弱网环境下播放器可按带宽切换码率
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.hls")
+@Data
+public class HlsConfig {
+
+    /**
+     * 是否启用HLS打包（关闭时仍可通过 MP4 渐进式下载播放）
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 分片时长（秒），同时作为各码率的关键帧间隔
+     */
+    private Integer segmentDuration = 4;
+
+    /**
+     * 打包线程数（打包为CPU密集型操作，默认单线程避免影响导入转码）
+     */
+    private Integer poolSize = 1;
+
+    /**
+     * 等待队列容量，队列满时放弃本次打包（视频仍可通过MP4播放）
+     */
+    private Integer queueCapacity = 50;
+
+    /**
+     * 码率档位（高度大于源视频的档位会被跳过）
+     */
+    private List<Rendition> renditions = new ArrayList<>(List.of(
+            new Rendition(1080, 5000),
+            new Rendition(720, 2800),
+            new Rendition(480, 1200),
+            new Rendition(360, 700)
+    ));
+
+    /**
+     * 码率档位配置
+     */
+    @Data
+    public static class Rendition {
+
+        /**
+         * 输出高度（像素）
+         */
+        private Integer height;
+
+        /**
+         * 视频码率（kbps）
+         */
+        private Integer bitrate;
+
+        public Rendition() {
+        }
+
+        public Rendition(Integer height, Integer bitrate) {
+            this.height = height;
+            this.bitrate = bitrate;
+        }
+    }
+
+    /**
+     * 转换为打包使用的码率档位
+     */
+    public List<VideoUtils.HlsRendition> getHlsRenditions() {
+        return renditions.stream()
+                .map(r -> new VideoUtils.HlsRendition(r.getHeight(), r.getBitrate() * 1000))
+                .toList();
+    }
+
+    /**
+     * 创建HLS打包线程池Bean
+     */
+    @Bean
+    public ThreadPoolTaskExecutor hlsPackagerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("hls-packager-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
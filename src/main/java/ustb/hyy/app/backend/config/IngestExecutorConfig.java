@@ -0,0 +1,109 @@
+package ustb.hyy.app.backend.config;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import lombok.Data;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+
+/**
+ * 视频导入线程池配置
+ * 上传请求只负责落盘和创建任务，解析/转码/faststart 在该线程池中执行，
+ * 避免长时间占用 Tomcat 线程和数据库连接
+ *
+ * @author 侯阳洋
+ * @since 2025-10-20
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.ingest")
+@Data
+public class IngestExecutorConfig {
+
+    /**
+     * 并发导入线程数
+     * 导入线程大部分时间在读写文件或等待转码调度，CPU密集的转码并发由 transcodeConcurrency 控制，
+     * 该值应不小于 transcodeConcurrency + transcodeQueueCapacity，否则转码等待队列无法排满
+     */
+    private Integer poolSize = 8;
+
+    /**
+     * 等待队列容量，队列满时拒绝新的导入
+     */
+    private Integer queueCapacity = 20;
+
+    /**
+     * 同时执行的转码任务数（每个转码任务内部已分段并行占满CPU）
+     */
+    private Integer transcodeConcurrency = 1;
+
+    /**
+     * 转码等待队列容量，已满时拒绝新的上传（429）
+     */
+    private Integer transcodeQueueCapacity = 6;
+
+    /**
+     * 分段并行转码的分段数（同时也是转码线程池并行度），不大于0时使用CPU核数
+     */
+    private Integer transcodeSegments = 0;
+
+    /**
+     * analysis 导入配置的固定关键帧间隔（秒）
+     */
+    private Double analysisKeyframeInterval = 1.0;
+
+    /**
+     * analysis 导入配置的输出高度上限（像素），0表示不限制
+     */
+    private Integer analysisMaxHeight = 0;
+
+    /**
+     * 获取导入配置对应的转码参数
+     *
+     * @param ingestProfile 导入配置（standard/analysis）
+     * @return 转码参数
+     */
+    public VideoUtils.TranscodeOptions getTranscodeOptions(String ingestProfile) {
+        if ("analysis".equals(ingestProfile)) {
+            return new VideoUtils.TranscodeOptions(true, analysisKeyframeInterval, analysisMaxHeight);
+        }
+        return VideoUtils.TranscodeOptions.DEFAULT;
+    }
+
+    /**
+     * 获取实际使用的分段数
+     */
+    public int getEffectiveTranscodeSegments() {
+        return transcodeSegments != null && transcodeSegments > 0
+                ? transcodeSegments
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 创建视频导入线程池Bean
+     */
+    @Bean
+    public ThreadPoolTaskExecutor videoIngestExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("video-ingest-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 创建分段并行转码线程池Bean
+     * 所有导入共享同一个池，并发导入时分段编码在池内排队，不会超出CPU核数
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool videoTranscodePool() {
+        return new ForkJoinPool(getEffectiveTranscodeSegments());
+    }
+}
@@ -0,0 +1,98 @@
+package ustb.hyy.app.backend.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import lombok.Data;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+
+/**
+ * 预览配置
+ * 导入完成后在后台生成低分辨率代理视频和时间轴精灵图（附 WebVTT 索引），
+ * 拖动进度条预览和快速浏览只需加载几十KB的图片或低码率视频
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.preview")
+@Data
+public class PreviewConfig {
+
+    /**
+     * 精灵图在 WebVTT 中的引用URI（相对于 WebVTT 的请求路径 /api/videos/{taskId}/timeline-vtt）
+     */
+    private static final String SPRITE_URI = "timeline";
+
+    /**
+     * 是否启用预览生成
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 代理视频高度上限（像素）
+     */
+    private Integer proxyHeight = 360;
+
+    /**
+     * 代理视频码率（kbps）
+     */
+    private Integer proxyBitrate = 600;
+
+    /**
+     * 代理视频关键帧间隔（秒）
+     */
+    private Double keyframeInterval = 1.0;
+
+    /**
+     * 时间轴缩略图间隔（秒），视频过长时自动加大以保证精灵图不超过JPEG尺寸上限
+     */
+    private Double interval = 5.0;
+
+    /**
+     * 时间轴缩略图宽度（像素，高度按比例计算）
+     */
+    private Integer tileWidth = 160;
+
+    /**
+     * 精灵图每行缩略图数
+     */
+    private Integer columns = 10;
+
+    /**
+     * 生成线程数（生成需完整解码一次视频，默认单线程避免影响导入转码）
+     */
+    private Integer poolSize = 1;
+
+    /**
+     * 等待队列容量，队列满时跳过（首次请求预览时会重新提交）
+     */
+    private Integer queueCapacity = 50;
+
+    /**
+     * 转换为生成使用的预览参数
+     */
+    public VideoUtils.PreviewOptions getPreviewOptions() {
+        return new VideoUtils.PreviewOptions(proxyHeight, proxyBitrate * 1000, keyframeInterval,
+                interval, tileWidth, columns, SPRITE_URI);
+    }
+
+    /**
+     * 创建预览生成线程池Bean
+     */
+    @Bean
+    public ThreadPoolTaskExecutor previewGeneratorExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("preview-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
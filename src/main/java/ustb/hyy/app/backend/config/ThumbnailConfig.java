@@ -0,0 +1,63 @@
+package ustb.hyy.app.backend.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import lombok.Data;
+
+/**
+ * 事件缩略图配置
+ * 结果提交后在后台一次顺序解码生成全部事件/追踪物体的缩略图和精灵图
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.thumbnail")
+@Data
+public class ThumbnailConfig {
+
+    /**
+     * 缩略图宽度（像素，高度按比例计算）
+     */
+    private Integer width = 320;
+
+    /**
+     * 精灵图每行缩略图数
+     */
+    private Integer columns = 10;
+
+    /**
+     * 生成缩略图使用的视频类型（帧号与原始视频一致）
+     */
+    private String videoType = "original";
+
+    /**
+     * 生成线程数
+     */
+    private Integer poolSize = 1;
+
+    /**
+     * 等待队列容量，队列满时跳过（首次查询缩略图时会重新提交）
+     */
+    private Integer queueCapacity = 50;
+
+    /**
+     * 创建缩略图生成线程池Bean
+     */
+    @Bean
+    public ThreadPoolTaskExecutor thumbnailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
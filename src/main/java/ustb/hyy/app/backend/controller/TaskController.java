@@ -1,11 +1,20 @@
 package ustb.hyy.app.backend.controller;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,21 +26,34 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ustb.hyy.app.backend.common.response.PageResult;
 import ustb.hyy.app.backend.common.response.Result;
+import ustb.hyy.app.backend.common.util.FileStreamUtils;
+import ustb.hyy.app.backend.dto.request.ChunkUploadInitRequest;
 import ustb.hyy.app.backend.dto.request.ProgressUpdateRequest;
+import ustb.hyy.app.backend.dto.request.ResultChunkRequest;
+import ustb.hyy.app.backend.dto.request.ResultFinalizeRequest;
 import ustb.hyy.app.backend.dto.request.ResultSubmitRequest;
 import ustb.hyy.app.backend.dto.request.TaskUploadRequest;
+import ustb.hyy.app.backend.dto.response.ChunkUploadResponse;
+import ustb.hyy.app.backend.dto.response.ResultChunkResponse;
 import ustb.hyy.app.backend.dto.response.TaskResponse;
 import ustb.hyy.app.backend.dto.response.TaskResultResponse;
 import ustb.hyy.app.backend.dto.response.TaskStatusResponse;
+import ustb.hyy.app.backend.dto.response.ThumbnailIndexResponse;
 import ustb.hyy.app.backend.service.AnalysisTaskService;
+import ustb.hyy.app.backend.service.ChunkUploadService;
+import ustb.hyy.app.backend.service.EventClipService;
+import ustb.hyy.app.backend.service.ThumbnailService;
 
 /**
  * 任务管理Controller
@@ -48,11 +70,14 @@ import ustb.hyy.app.backend.service.AnalysisTaskService;
 public class TaskController {
 
     private final AnalysisTaskService taskService;
+    private final ChunkUploadService chunkUploadService;
+    private final EventClipService eventClipService;
+    private final ThumbnailService thumbnailService;
 
     /**
      * 上传视频并创建分析任务
      */
-    @Operation(summary = "上传视频并创建分析任务", description = "上传视频文件并创建分析任务，任务创建后需手动调用开始分析接口")
+    @Operation(summary = "上传视频并创建分析任务", description = "上传视频文件并创建分析任务，任务以INGESTING状态立即返回，后台导入完成后变为PENDING，需手动调用开始分析接口")
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public Result<TaskResponse> uploadTask(@Validated @ModelAttribute TaskUploadRequest request) {
         log.info("接收到任务上传请求，文件名: {}", request.getVideo().getOriginalFilename());
@@ -60,6 +85,64 @@ public class TaskController {
         return Result.success("任务创建成功", response);
     }
 
+    /**
+     * 初始化分片上传
+     */
+    @Operation(summary = "初始化分片上传", description = "创建可断点续传的分片上传会话，返回uploadId")
+    @PostMapping("/uploads")
+    public Result<ChunkUploadResponse> initChunkUpload(@Validated @RequestBody ChunkUploadInitRequest request) {
+        log.info("初始化分片上传，文件名: {}, 大小: {}", request.getFilename(), request.getTotalSize());
+        ChunkUploadResponse response = chunkUploadService.initUpload(request);
+        return Result.success("分片上传会话创建成功", response);
+    }
+
+    /**
+     * 查询分片上传状态
+     */
+    @Operation(summary = "查询分片上传状态", description = "返回已接收字节数，连接中断后客户端从该偏移量继续上传")
+    @GetMapping("/uploads/{uploadId}")
+    public Result<ChunkUploadResponse> getChunkUploadStatus(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId) {
+        return Result.success(chunkUploadService.getUploadStatus(uploadId));
+    }
+
+    /**
+     * 上传分片
+     */
+    @Operation(summary = "上传分片", description = "请求体为分片原始字节，按offset追加写入，offset必须等于已接收字节数（小于时视为重传）")
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Result<ChunkUploadResponse> uploadChunk(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId,
+            @Parameter(description = "分片起始偏移量（字节）") @RequestParam long offset,
+            HttpServletRequest servletRequest) throws IOException {
+        ChunkUploadResponse response = chunkUploadService.appendChunk(uploadId, offset, servletRequest.getInputStream());
+        return Result.success(response);
+    }
+
+    /**
+     * 完成分片上传并创建分析任务
+     */
+    @Operation(summary = "完成分片上传", description = "全部分片接收完成后调用，处理视频并创建分析任务")
+    @PostMapping("/uploads/{uploadId}/complete")
+    public Result<TaskResponse> completeChunkUpload(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId) {
+        log.info("完成分片上传，uploadId: {}", uploadId);
+        TaskResponse response = taskService.completeChunkUpload(uploadId);
+        return Result.success("任务创建成功", response);
+    }
+
+    /**
+     * 取消分片上传
+     */
+    @Operation(summary = "取消分片上传", description = "删除上传会话及已接收的数据")
+    @DeleteMapping("/uploads/{uploadId}")
+    public Result<String> abortChunkUpload(
+            @Parameter(description = "上传会话ID") @PathVariable String uploadId) {
+        log.info("取消分片上传，uploadId: {}", uploadId);
+        chunkUploadService.abortUpload(uploadId);
+        return Result.success("上传已取消");
+    }
+
     /**
      * 手动开始任务分析
      */
@@ -152,15 +235,151 @@ public class TaskController {
         return Result.success("结果提交成功");
     }
 
+    /**
+     * 流式提交分析结果（AI模块回调）
+     */
+    @Operation(summary = "流式提交分析结果", description = "请求体格式与提交分析结果相同，服务端边读取边校验并分块写入，适合长视频的大量结果")
+    @PostMapping(value = "/{taskId:[0-9]+}/result/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Result<String> submitResultStream(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            HttpServletRequest request) throws IOException {
+        log.info("接收到流式结果提交，taskId: {}, 大小: {}", taskId, request.getContentLengthLong());
+        taskService.submitResultStream(taskId, request.getInputStream());
+        return Result.success("结果提交成功");
+    }
+
+    /**
+     * 分块提交分析结果（AI模块在分析过程中回调）
+     */
+    @Operation(summary = "分块提交分析结果", description = "分析过程中按序号追加动态参数、事件、追踪物体，同一序号重复提交只写入一次")
+    @PostMapping("/{taskId:[0-9]+}/result/chunks")
+    public Result<ResultChunkResponse> submitResultChunk(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            @Validated @RequestBody ResultChunkRequest request) {
+        log.debug("接收到结果分块，taskId: {}, seq: {}", taskId, request.getSeq());
+        return Result.success(taskService.submitResultChunk(taskId, request));
+    }
+
+    /**
+     * 完成分块结果提交（AI模块回调）
+     */
+    @Operation(summary = "完成分块结果提交", description = "全部分块提交后调用，校验分块完整性并更新任务最终状态和全局分析结果")
+    @PostMapping("/{taskId:[0-9]+}/result/finalize")
+    public Result<String> finalizeResult(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            @Validated @RequestBody ResultFinalizeRequest request) {
+        log.info("接收到结果提交完成，taskId: {}, status: {}, 分块总数: {}",
+                taskId, request.getStatus(), request.getTotalChunks());
+        taskService.finalizeResult(taskId, request);
+        return Result.success("结果提交成功");
+    }
+
     /**
      * 获取分析结果
      */
     @Operation(summary = "获取分析结果", description = "获取任务完整的分析结果，包括动态参数、异常事件、追踪物体及统计信息")
     @GetMapping("/{taskId:[0-9]+}/result")
-    public Result<TaskResultResponse> getTaskResult(@Parameter(description = "任务ID") @PathVariable Long taskId) {
+    public ResponseEntity<Result<TaskResultResponse>> getTaskResult(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            WebRequest webRequest) {
         log.info("查询任务结果，taskId: {}", taskId);
-        TaskResultResponse response = taskService.getTaskResult(taskId);
-        return Result.success(response);
+
+        // 结果只在提交和重新分析时变化，浏览器每次都需校验，版本未变时返回304
+        String eTag = taskService.getTaskResultETag(taskId);
+        if (eTag == null) {
+            return ResponseEntity.ok(Result.success(taskService.getTaskResult(taskId)));
+        }
+        if (webRequest.checkNotModified(eTag)) {
+            log.debug("任务结果未修改，taskId: {}", taskId);
+            // checkNotModified 已写入 ETag
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache()).build();
+        }
+
+        TaskResultResponse result = taskService.getTaskResult(taskId);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(eTag).body(Result.success(result));
+    }
+
+    /**
+     * 导出单个异常事件的视频片段
+     */
+    @Operation(summary = "导出事件片段", description = "按事件帧范围（前后加留白）截取视频片段，关键帧对齐、不重新编码")
+    @GetMapping("/{taskId:[0-9]+}/events/{eventId:[0-9]+}/clip")
+    public void getEventClip(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            @Parameter(description = "事件ID") @PathVariable Long eventId,
+            @Parameter(description = "视频类型（original/result/preprocessed）") @RequestParam(defaultValue = "original") String type,
+            @Parameter(description = "事件前后留白（秒）") @RequestParam(defaultValue = "2") double padding,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        log.info("导出事件片段，taskId: {}, eventId: {}, type: {}, padding: {}", taskId, eventId, type, padding);
+        Path clip = eventClipService.getEventClip(taskId, eventId, type, padding);
+
+        response.setContentType("video/mp4");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("event_" + eventId + ".mp4")
+                .build()
+                .toString());
+        FileStreamUtils.sendRange(request, response, clip, 0, Files.size(clip));
+    }
+
+    /**
+     * 批量导出某一类型全部异常事件的视频片段（ZIP）
+     */
+    @Operation(summary = "批量导出事件片段", description = "将任务中指定类型的全部事件片段打包为ZIP下载")
+    @GetMapping("/{taskId:[0-9]+}/events/clips")
+    public void getEventClipsZip(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            @Parameter(description = "事件类型") @RequestParam String eventType,
+            @Parameter(description = "视频类型（original/result/preprocessed）") @RequestParam(defaultValue = "original") String type,
+            @Parameter(description = "事件前后留白（秒）") @RequestParam(defaultValue = "2") double padding,
+            HttpServletResponse response) throws IOException {
+        log.info("批量导出事件片段，taskId: {}, eventType: {}, type: {}, padding: {}", taskId, eventType, type, padding);
+
+        // 先生成全部片段再设置响应头，生成失败时仍按普通错误响应处理
+        List<EventClipService.EventClip> clips = eventClipService.getEventClips(taskId, eventType, type, padding);
+
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("task_" + taskId + "_" + eventType + ".zip")
+                .build()
+                .toString());
+        eventClipService.writeZip(clips, response.getOutputStream());
+    }
+
+    /**
+     * 获取任务全部事件缩略图索引
+     */
+    @Operation(summary = "获取缩略图索引", description = "返回精灵图中每个缩略图的位置以及事件、追踪物体对应的帧号，未生成完成时返回404")
+    @GetMapping("/{taskId:[0-9]+}/thumbnails")
+    public Result<ThumbnailIndexResponse> getThumbnailIndex(@Parameter(description = "任务ID") @PathVariable Long taskId) {
+        return Result.success(thumbnailService.getIndex(taskId));
+    }
+
+    /**
+     * 获取缩略图精灵图
+     */
+    @Operation(summary = "获取缩略图精灵图", description = "全部事件缩略图拼接成的单张JPEG")
+    @GetMapping("/{taskId:[0-9]+}/thumbnails/sprite.jpg")
+    public void getThumbnailSprite(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
+        sendImage(thumbnailService.getSprite(taskId), request, response, webRequest);
+    }
+
+    /**
+     * 获取单帧缩略图
+     */
+    @Operation(summary = "获取单帧缩略图", description = "获取事件起始帧或追踪物体首次出现帧的缩略图")
+    @GetMapping("/{taskId:[0-9]+}/thumbnails/{frameNumber:[0-9]+}.jpg")
+    public void getThumbnail(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            @Parameter(description = "帧号") @PathVariable long frameNumber,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
+        sendImage(thumbnailService.getThumbnail(taskId, frameNumber), request, response, webRequest);
     }
 
     /**
@@ -215,4 +434,17 @@ public class TaskController {
         taskService.updateModelVersion(taskId, modelVersion);
         return Result.success("模型版本更新成功");
     }
+
+    private void sendImage(Path image, HttpServletRequest request, HttpServletResponse response, WebRequest webRequest)
+            throws IOException {
+        long lastModified = Files.getLastModifiedTime(image).toMillis();
+        String eTag = Long.toHexString(Files.size(image)) + "-" + Long.toHexString(lastModified);
+        // 缩略图重新生成后文件会被替换，需重新验证
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return;
+        }
+        response.setContentType(MediaType.IMAGE_JPEG_VALUE);
+        FileStreamUtils.sendRange(request, response, image, 0, Files.size(image));
+    }
 }
@@ -2,6 +2,8 @@ package ustb.hyy.app.backend.controller;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import org.springframework.core.io.Resource;
@@ -17,13 +19,21 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.common.exception.ResourceNotFoundException;
+import ustb.hyy.app.backend.common.util.FileStreamUtils;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+import ustb.hyy.app.backend.service.VideoFrameService;
 import ustb.hyy.app.backend.service.VideoService;
 
 /**
@@ -39,47 +49,96 @@ import ustb.hyy.app.backend.service.VideoService;
 @RequiredArgsConstructor
 public class VideoController {
 
+    private static final String HLS_PLAYLIST_CONTENT_TYPE = "application/vnd.apple.mpegurl";
+
     private final VideoService videoService;
+    private final VideoFrameService videoFrameService;
 
     /**
      * 获取视频流（支持范围请求）
+     * 文件内容通过 sendfile/transferTo 直接发送，不经过JVM堆缓冲
      */
-    @Operation(summary = "获取视频流", description = "支持HTTP Range请求，实现视频流式传输和断点续传")
+    @Operation(summary = "获取视频流", description = "支持HTTP Range请求，实现视频流式传输和断点续传；"
+            + "proxy/timeline/timeline-vtt 为导入后生成的低分辨率代理视频、时间轴精灵图及其 WebVTT 索引，尚未生成时返回404")
     @GetMapping("/{taskId:[0-9]+}/{type}")
-    public ResponseEntity<ResourceRegion> streamVideo(
+    public void streamVideo(
             @Parameter(description = "任务ID") @PathVariable Long taskId,
-            @Parameter(description = "视频类型（original/result/preprocessed）") @PathVariable String type,
-            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader) throws IOException {
+            @Parameter(description = "视频类型（original/result/preprocessed/proxy/timeline/timeline-vtt）") @PathVariable String type,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
 
         log.info("视频流请求 - taskId: {}, type: {}, range: {}", taskId, type, rangeHeader);
 
         // 获取视频元数据
         VideoService.VideoMetadata metadata = videoService.getVideoMetadata(taskId, type);
+
+        // 条件请求（If-None-Match / If-Modified-Since）命中时直接返回304
+        String eTag = metadata.eTag();
+        if (webRequest.checkNotModified(eTag, metadata.lastModified())) {
+            log.debug("视频未修改 - taskId: {}, type: {}", taskId, type);
+            return;
+        }
+
         Resource resource = videoService.getVideoResource(taskId, type);
+        Path file = resource.getFile().toPath();
 
         // 准备响应头
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(metadata.contentType()));
-        headers.setCacheControl(CacheControl.maxAge(3600, java.util.concurrent.TimeUnit.SECONDS));
-        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(metadata.contentType());
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(3600, java.util.concurrent.TimeUnit.SECONDS).getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
         // 使用RFC 5987标准编码文件名，支持UTF-8中文
-        headers.setContentDisposition(
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
                 ContentDisposition.inline()
                         .filename(metadata.filename(), StandardCharsets.UTF_8)
                         .build()
+                        .toString()
         );
 
         // 处理范围请求
-        if (rangeHeader != null && !rangeHeader.isEmpty()) {
-            return handleRangeRequest(resource, metadata, rangeHeader, headers);
+        long fileSize = metadata.fileSize();
+        List<ResourceRegion> regions;
+        try {
+            // If-Range 与当前版本不一致时忽略范围，返回完整内容
+            List<HttpRange> ranges = rangeHeader != null && !rangeHeader.isEmpty()
+                    && isIfRangeSatisfied(request, eTag, metadata.lastModified())
+                    ? HttpRange.parseRanges(rangeHeader)
+                    : List.of();
+            regions = HttpRange.toResourceRegions(ranges, resource);
+        } catch (IllegalArgumentException e) {
+            // 范围格式错误、起始位置超出文件长度或范围总长度超过文件大小
+            log.debug("无法满足的范围请求 - taskId: {}, type: {}, range: {}", taskId, type, rangeHeader);
+            response.reset();
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+            return;
+        }
+
+        if (regions.isEmpty()) {
+            // 完整响应
+            response.setStatus(HttpStatus.OK.value());
+            FileStreamUtils.sendRange(request, response, file, 0, fileSize);
+            return;
         }
 
-        // 完整响应 - 使用ResourceRegion包装整个资源
-        ResourceRegion region = new ResourceRegion(resource, 0, metadata.fileSize());
-        return ResponseEntity
-                .ok()
-                .headers(headers)
-                .body(region);
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        if (regions.size() == 1) {
+            ResourceRegion region = regions.get(0);
+            long start = region.getPosition();
+            long end = start + region.getCount() - 1;
+            log.debug("范围请求 - start: {}, end: {}, length: {}", start, end, region.getCount());
+
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+            FileStreamUtils.sendRange(request, response, file, start, region.getCount());
+            return;
+        }
+
+        // 多范围请求，以 multipart/byteranges 响应
+        log.debug("多范围请求 - 范围数: {}", regions.size());
+        FileStreamUtils.sendMultipartRanges(response, file, regions, metadata.contentType(), fileSize);
     }
 
     /**
@@ -97,37 +156,104 @@ public class VideoController {
     }
 
     /**
-     * 处理范围请求
+     * 获取视频指定帧图片（精确到帧，用于查看异常事件起始帧）
      */
-    private ResponseEntity<ResourceRegion> handleRangeRequest(
-            Resource resource,
-            VideoService.VideoMetadata metadata,
-            String rangeHeader,
-            HttpHeaders headers) throws IOException {
+    @Operation(summary = "获取视频帧", description = "按帧号提取单帧图片（jpg/png），帧号从0开始")
+    @GetMapping("/{taskId:[0-9]+}/{type}/frames/{frameNumber:[0-9]+}")
+    public ResponseEntity<byte[]> getVideoFrame(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            @Parameter(description = "视频类型（original/result/preprocessed）") @PathVariable String type,
+            @Parameter(description = "帧号") @PathVariable Long frameNumber,
+            @Parameter(description = "图片格式（jpg/png）") @RequestParam(defaultValue = "jpg") String format,
+            WebRequest webRequest) {
 
-        long fileSize = metadata.fileSize();
-        List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+        log.info("视频帧请求 - taskId: {}, type: {}, frame: {}, format: {}", taskId, type, frameNumber, format);
 
-        if (ranges.isEmpty()) {
-            // 无效的范围，返回完整内容的第一个字节范围
-            ResourceRegion region = new ResourceRegion(resource, 0, fileSize);
-            return ResponseEntity.ok().headers(headers).body(region);
+        CacheControl cacheControl = CacheControl.maxAge(3600, java.util.concurrent.TimeUnit.SECONDS);
+        String eTag = videoFrameService.getFrameETag(taskId, type, frameNumber, format);
+        if (webRequest.checkNotModified(eTag)) {
+            // checkNotModified 已写入 ETag
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
         }
 
-        // 只处理第一个范围（简化实现）
-        HttpRange range = ranges.get(0);
-        long start = range.getRangeStart(fileSize);
-        long end = range.getRangeEnd(fileSize);
-        long contentLength = end - start + 1;
+        VideoFrameService.FrameImage image = videoFrameService.getFrameImage(taskId, type, frameNumber, format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.contentType()))
+                .cacheControl(cacheControl)
+                .eTag(image.eTag())
+                .body(image.data());
+    }
 
-        log.debug("范围请求 - start: {}, end: {}, length: {}", start, end, contentLength);
+    /**
+     * 获取HLS主播放列表
+     * 主播放列表引用的子路径包含打包标识，视频替换后标识变化，因此主播放列表每次校验，其余文件长期缓存
+     */
+    @Operation(summary = "获取HLS主播放列表", description = "多码率自适应播放入口，尚未打包完成时返回404，客户端可回退到MP4")
+    @GetMapping("/{taskId:[0-9]+}/{type}/hls/" + VideoUtils.HLS_MASTER_PLAYLIST)
+    public void getHlsMasterPlaylist(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            @Parameter(description = "视频类型（original/result/preprocessed）") @PathVariable String type,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
 
-        // 创建ResourceRegion，Spring会自动设置正确的响应头
-        ResourceRegion region = new ResourceRegion(resource, start, contentLength);
+        VideoService.HlsPackage hlsPackage = videoService.getHlsPackage(taskId, type);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if (webRequest.checkNotModified("\"" + hlsPackage.key() + "\"")) {
+            return;
+        }
+
+        Path file = hlsPackage.directory().resolve(VideoUtils.HLS_MASTER_PLAYLIST);
+        response.setContentType(HLS_PLAYLIST_CONTENT_TYPE);
+        FileStreamUtils.sendRange(request, response, file, 0, Files.size(file));
+    }
+
+    /**
+     * 获取HLS码率播放列表、初始化分片和媒体分片
+     */
+    @Operation(summary = "获取HLS分片", description = "打包标识与当前视频版本一致时返回，内容不变，可长期缓存")
+    @GetMapping("/{taskId:[0-9]+}/{type}/hls/{key:[A-Za-z0-9_-]+}/{filename:[A-Za-z0-9_-]+\\.(?:m3u8|m4s|mp4)}")
+    public void getHlsFile(
+            @Parameter(description = "任务ID") @PathVariable Long taskId,
+            @Parameter(description = "视频类型（original/result/preprocessed）") @PathVariable String type,
+            @Parameter(description = "打包标识") @PathVariable String key,
+            @Parameter(description = "文件名") @PathVariable String filename,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        VideoService.HlsPackage hlsPackage = videoService.getHlsPackage(taskId, type);
+        Path file = hlsPackage.directory().resolve(filename);
+        if (!hlsPackage.key().equals(key) || !Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("HLS文件不存在：" + filename);
+        }
 
-        return ResponseEntity
-                .status(HttpStatus.PARTIAL_CONTENT)
-                .headers(headers)
-                .body(region);
+        if (filename.endsWith(".m3u8")) {
+            response.setContentType(HLS_PLAYLIST_CONTENT_TYPE);
+        } else if (filename.endsWith(".m4s")) {
+            response.setContentType("video/iso.segment");
+        } else {
+            response.setContentType("video/mp4");
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(365, java.util.concurrent.TimeUnit.DAYS).cachePublic().immutable().getHeaderValue());
+        FileStreamUtils.sendRange(request, response, file, 0, Files.size(file));
+    }
+
+    /**
+     * 判断 If-Range 条件是否成立：ETag 需强匹配，日期需与最后修改时间（秒级）一致
+     */
+    private boolean isIfRangeSatisfied(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null || ifRange.isEmpty()) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(eTag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified / 1000 * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
 }
@@ -0,0 +1,59 @@
+package ustb.hyy.app.backend.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 分块结果提交记录实体
+ * 每个 (任务ID, 分块序号) 一条，用于分块重试时的幂等判断和 finalize 时的完整性校验
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+@Entity
+@Table(name = "result_chunks",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"task_id", "seq"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultChunk extends BaseEntity {
+
+    /**
+     * 关联的任务ID
+     */
+    @Column(nullable = false)
+    private Long taskId;
+
+    /**
+     * 分块序号（从0开始）
+     */
+    @Column(nullable = false)
+    private Integer seq;
+
+    /**
+     * 分块包含的动态参数数
+     */
+    @Column(nullable = false)
+    private Integer metricCount;
+
+    /**
+     * 分块包含的异常事件数
+     */
+    @Column(nullable = false)
+    private Integer eventCount;
+
+    /**
+     * 分块包含的追踪物体片段数
+     */
+    @Column(nullable = false)
+    private Integer objectCount;
+}
@@ -89,4 +89,11 @@ public class TaskConfig extends BaseEntity {
     @Column(nullable = false)
     @Builder.Default
     private Double frameRate = 25.0;
+
+    /**
+     * 导入配置（standard, analysis）
+     */
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String ingestProfile = "standard";
 }
@@ -1,5 +1,10 @@
 package ustb.hyy.app.backend.domain.entity;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
 import org.hibernate.annotations.Type;
 
 import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
@@ -9,11 +14,14 @@ import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import ustb.hyy.app.backend.common.util.TrajectoryCodec;
 import ustb.hyy.app.backend.domain.enums.ObjectCategory;
 
 /**
@@ -24,7 +32,7 @@ import ustb.hyy.app.backend.domain.enums.ObjectCategory;
  */
 @Entity
 @Table(name = "tracking_objects", indexes = {
-        @Index(name = "idx_task_object", columnList = "task_id,object_id"),
+        @Index(name = "uk_tracking_object_task_object", columnList = "task_id,object_id", unique = true),
         @Index(name = "idx_task_category", columnList = "task_id,category")
 })
 @Getter
@@ -81,5 +89,89 @@ public class TrackingObject extends BaseEntity {
      */
     @Type(JsonBinaryType.class)
     @Column(columnDefinition = "jsonb")
-    private Object trajectory;  // 使用 Object 类型以支持灵活的 JSON 格式
+    private Object trajectory;  // 使用 Object 类型以支持灵活的 JSON 格式；标准格式的新轨迹存入 trajectoryData
+
+    /**
+     * 压缩轨迹数据（帧号差分变长整数、int16 边界框、8位置信度，格式见 {@link TrajectoryCodec}）
+     * 只保存整数边界框的轨迹，置信度量化后有损
+     */
+    @Column(columnDefinition = "bytea")
+    private byte[] trajectoryData;
+
+    /**
+     * 已解码的压缩轨迹（首次访问时解码）
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private TrajectoryCodec.Trajectory decodedTrajectory;
+
+    /**
+     * 获取压缩轨迹（已按帧号排序），首次访问时解码并缓存
+     *
+     * @return 轨迹，没有压缩轨迹时返回null
+     */
+    public TrajectoryCodec.Trajectory getCompactTrajectory() {
+        if (decodedTrajectory == null && trajectoryData != null) {
+            decodedTrajectory = TrajectoryCodec.decode(trajectoryData);
+        }
+        return decodedTrajectory;
+    }
+
+    /**
+     * 获取 JSON 格式输出的轨迹（JSON轨迹与压缩轨迹按帧号归并，同一帧 JSON 轨迹在前）
+     * 分块结果按到达顺序追加，重试的分块晚于后续分块到达时轨迹不按帧号排列，输出前统一排序
+     *
+     * @return 可直接序列化为原 JSON 格式的轨迹
+     */
+    public Object getTrajectoryForOutput() {
+        TrajectoryCodec.Trajectory compact = getCompactTrajectory();
+        Object sortedTrajectory = trajectory instanceof List<?> list ? sortByFrame(list) : trajectory;
+        if (compact == null) {
+            return sortedTrajectory;
+        }
+        if (!(sortedTrajectory instanceof List<?> legacy) || legacy.isEmpty()) {
+            return compact;
+        }
+
+        // 两部分均已按帧号排序，按帧号归并；没有帧号的 JSON 点原位输出
+        List<Map<String, Object>> points = compact.toList();
+        List<Object> merged = new ArrayList<>(legacy.size() + points.size());
+        int i = 0;
+        int j = 0;
+        while (i < legacy.size() && j < points.size()) {
+            Object point = legacy.get(i);
+            if (!(point instanceof Map<?, ?> map) || !(map.get("frame") instanceof Number frame)
+                    || frame.longValue() <= compact.frame(j)) {
+                merged.add(point);
+                i++;
+            } else {
+                merged.add(points.get(j++));
+            }
+        }
+        merged.addAll(legacy.subList(i, legacy.size()));
+        merged.addAll(points.subList(j, points.size()));
+        return merged;
+    }
+
+    /**
+     * JSON 轨迹按帧号稳定排序，已有序或存在没有帧号的点时原样返回
+     */
+    private static List<?> sortByFrame(List<?> points) {
+        long previous = Long.MIN_VALUE;
+        boolean sorted = true;
+        for (Object point : points) {
+            if (!(point instanceof Map<?, ?> map) || !(map.get("frame") instanceof Number frame)) {
+                return points;
+            }
+            sorted &= frame.longValue() >= previous;
+            previous = frame.longValue();
+        }
+        if (sorted) {
+            return points;
+        }
+        List<Object> copy = new ArrayList<>(points);
+        copy.sort(Comparator.comparingLong(point -> ((Number) ((Map<?, ?>) point).get("frame")).longValue()));
+        return copy;
+    }
 }
@@ -0,0 +1,73 @@
+package ustb.hyy.app.backend.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 内容寻址的视频文件实体
+ * 同一视频重复上传时多个任务共享同一个处理后的文件，按引用计数回收
+ *
+ * @author 侯阳洋
+ * @since 2025-10-21
+ */
+@Entity
+@Table(name = "video_blobs",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"content_hash", "ingest_profile"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VideoBlob extends BaseEntity {
+
+    /**
+     * 上传文件内容的SHA-256（十六进制）
+     */
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    /**
+     * 处理该文件时使用的导入配置（同一内容按不同导入配置分别存储）
+     */
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String ingestProfile = "standard";
+
+    /**
+     * 处理后的视频文件路径（相对于codes目录）
+     */
+    @Column(nullable = false, unique = true, length = 500)
+    private String videoPath;
+
+    /**
+     * 上传文件大小（字节）
+     */
+    @Column(nullable = false)
+    private Long fileSize;
+
+    /**
+     * 视频时长（秒）
+     */
+    @Column(nullable = false)
+    private Integer videoDuration;
+
+    /**
+     * 视频帧率
+     */
+    @Column(nullable = false)
+    private Double frameRate;
+
+    /**
+     * 引用该文件的任务数
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer refCount = 1;
+}
@@ -0,0 +1,106 @@
+package ustb.hyy.app.backend.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 视频文件探测结果实体
+ * 以 (文件路径, 文件大小, 修改时间) 作为指纹，文件变化后重新探测
+ *
+ * @author 侯阳洋
+ * @since 2025-10-21
+ */
+@Entity
+@Table(name = "video_probes")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VideoProbe extends BaseEntity {
+
+    /**
+     * 视频文件绝对路径
+     */
+    @Column(nullable = false, unique = true, length = 1000)
+    private String filePath;
+
+    /**
+     * 探测时的文件大小（字节）
+     */
+    @Column(nullable = false)
+    private Long fileSize;
+
+    /**
+     * 探测时的文件修改时间（毫秒时间戳）
+     */
+    @Column(nullable = false)
+    private Long lastModified;
+
+    /**
+     * 视频Content-Type
+     */
+    @Column(nullable = false, length = 100)
+    private String contentType;
+
+    /**
+     * 是否已通过FFmpeg探测视频信息
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean probed = false;
+
+    /**
+     * 宽度（像素）
+     */
+    private Integer width;
+
+    /**
+     * 高度（像素）
+     */
+    private Integer height;
+
+    /**
+     * 帧率
+     */
+    private Double frameRate;
+
+    /**
+     * 总帧数
+     */
+    private Integer totalFrames;
+
+    /**
+     * 时长（秒）
+     */
+    private Integer duration;
+
+    /**
+     * 容器格式
+     */
+    @Column(length = 100)
+    private String format;
+
+    /**
+     * 视频编码格式
+     */
+    @Column(length = 50)
+    private String codec;
+
+    /**
+     * 音频编码格式
+     */
+    @Column(length = 50)
+    private String audioCodec;
+
+    /**
+     * 音频声道数
+     */
+    private Integer audioChannels;
+}
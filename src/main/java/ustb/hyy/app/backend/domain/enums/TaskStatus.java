@@ -10,6 +10,11 @@ import lombok.Getter;
  */
 @Getter
 public enum TaskStatus {
+    /**
+     * 导入中（上传完成后在后台解析、转码、faststart优化）
+     */
+    INGESTING("导入中"),
+
     /**
      * 待处理
      */
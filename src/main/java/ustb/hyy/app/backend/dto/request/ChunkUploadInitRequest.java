@@ -0,0 +1,78 @@
+package ustb.hyy.app.backend.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+/**
+ * 分片上传初始化请求
+ * 除文件信息外，其余字段与 {@link TaskUploadRequest} 含义一致，在上传完成创建任务时使用
+ *
+ * @author 侯阳洋
+ * @since 2025-10-20
+ */
+@Data
+public class ChunkUploadInitRequest {
+
+    /**
+     * 原始文件名（支持mp4/avi/mov/mkv）
+     */
+    @NotBlank(message = "文件名不能为空")
+    private String filename;
+
+    /**
+     * 文件总大小（字节，最大2GB）
+     */
+    @NotNull(message = "文件大小不能为空")
+    @Min(value = 1, message = "文件大小必须大于0")
+    @Max(value = 2L * 1024 * 1024 * 1024, message = "视频文件不能超过2GB")
+    private Long totalSize;
+
+    /**
+     * 任务名称（默认使用文件名）
+     */
+    private String name;
+
+    /**
+     * 超时比例（如"1:4"，默认"1:4"）
+     */
+    @Pattern(regexp = "^\\d+:\\d+$", message = "超时比例格式不正确，应为\"分子:分母\"格式，如\"1:4\"")
+    private String timeoutRatio;
+
+    /**
+     * 是否启用视频预处理（默认false）
+     */
+    private Boolean enablePreprocessing;
+
+    /**
+     * 预处理强度（mild/moderate/strong，默认moderate）
+     */
+    @Pattern(regexp = "^(mild|moderate|strong)$", message = "预处理强度只能为：mild, moderate, strong")
+    private String preprocessingStrength;
+
+    /**
+     * 是否启用熔池增强（默认true）
+     */
+    private Boolean preprocessingEnhancePool;
+
+    /**
+     * 是否启用追踪轨迹合并（默认false）
+     */
+    private Boolean enableTrackingMerge;
+
+    /**
+     * 追踪合并策略（auto/adhesion/ingot_crown/conservative/aggressive，默认auto）
+     */
+    @Pattern(regexp = "^(auto|adhesion|ingot_crown|conservative|aggressive)$", message = "追踪合并策略只能为：auto, adhesion, ingot_crown, conservative, aggressive")
+    private String trackingMergeStrategy;
+
+    /**
+     * 导入配置（standard/analysis，默认standard）
+     * analysis：丢弃音频、固定短关键帧间隔、按配置限制分辨率，文件更小且定位更快
+     */
+    @Pattern(regexp = "^(standard|analysis)$", message = "导入配置只能为：standard, analysis")
+    private String ingestProfile;
+}
@@ -0,0 +1,44 @@
+package ustb.hyy.app.backend.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 分块结果提交请求（AI模块在分析过程中追加结果）
+ * 同一任务的每个分块序号只写入一次，重试的分块直接返回成功
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+@Data
+public class ResultChunkRequest {
+
+    /**
+     * 分块序号（从0开始连续递增）
+     */
+    @NotNull(message = "分块序号不能为空")
+    @Min(value = 0, message = "分块序号不能小于0")
+    private Integer seq;
+
+    /**
+     * 本分块的动态参数
+     */
+    @Valid
+    private List<ResultSubmitRequest.DynamicMetricData> dynamicMetrics;
+
+    /**
+     * 本分块的异常事件
+     */
+    @Valid
+    private List<ResultSubmitRequest.AnomalyEventData> anomalyEvents;
+
+    /**
+     * 本分块的追踪物体片段（与已有的同一物体合并帧范围和轨迹）
+     */
+    @Valid
+    private List<ResultSubmitRequest.TrackingObjectData> trackingObjects;
+}
@@ -0,0 +1,41 @@
+package ustb.hyy.app.backend.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 分块结果提交完成请求
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+@Data
+public class ResultFinalizeRequest {
+
+    /**
+     * 任务状态
+     */
+    @NotBlank(message = "任务状态不能为空")
+    @Pattern(regexp = "^(COMPLETED|COMPLETED_TIMEOUT|FAILED)$", message = "任务状态无效")
+    private String status;
+
+    /**
+     * 失败原因（仅status=FAILED时）
+     */
+    private String failureReason;
+
+    /**
+     * 全局频率分析结果
+     */
+    private Map<String, Object> globalAnalysis;
+
+    /**
+     * 已发送的分块总数（可选），提供时校验序号 0 ~ totalChunks-1 是否全部到达
+     */
+    @Min(value = 0, message = "分块总数不能小于0")
+    private Integer totalChunks;
+}
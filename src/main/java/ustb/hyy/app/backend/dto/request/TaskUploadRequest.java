@@ -58,4 +58,11 @@ public class TaskUploadRequest {
      */
     @Pattern(regexp = "^(auto|adhesion|ingot_crown|conservative|aggressive)$", message = "追踪合并策略只能为：auto, adhesion, ingot_crown, conservative, aggressive")
     private String trackingMergeStrategy;
+
+    /**
+     * 导入配置（standard/analysis，默认standard）
+     * analysis：丢弃音频、固定短关键帧间隔、按配置限制分辨率，文件更小且定位更快
+     */
+    @Pattern(regexp = "^(standard|analysis)$", message = "导入配置只能为：standard, analysis")
+    private String ingestProfile;
 }
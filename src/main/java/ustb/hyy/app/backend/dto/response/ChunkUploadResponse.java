@@ -0,0 +1,47 @@
+package ustb.hyy.app.backend.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分片上传状态响应DTO
+ *
+ * @author 侯阳洋
+ * @since 2025-10-20
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChunkUploadResponse {
+
+    /**
+     * 上传会话ID
+     */
+    private String uploadId;
+
+    /**
+     * 原始文件名
+     */
+    private String filename;
+
+    /**
+     * 文件总大小（字节）
+     */
+    private Long totalSize;
+
+    /**
+     * 已接收字节数（即下一个分片的起始偏移量，断点续传时从此处继续）
+     */
+    private Long receivedSize;
+
+    /**
+     * 是否已接收全部数据
+     */
+    private Boolean completed;
+}
@@ -0,0 +1,44 @@
+package ustb.hyy.app.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分块结果提交响应DTO
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultChunkResponse {
+
+    /**
+     * 分块序号
+     */
+    private Integer seq;
+
+    /**
+     * 是否为重复提交（分块此前已写入，本次未做任何修改）
+     */
+    private Boolean duplicate;
+
+    /**
+     * 本次写入的动态参数数
+     */
+    private Integer metricCount;
+
+    /**
+     * 本次写入的异常事件数
+     */
+    private Integer eventCount;
+
+    /**
+     * 本次写入的追踪物体片段数
+     */
+    private Integer objectCount;
+}
@@ -118,5 +118,6 @@ public class TaskResponse {
         private Boolean enableTrackingMerge;
         private String trackingMergeStrategy;
         private Double frameRate;
+        private String ingestProfile;
     }
 }
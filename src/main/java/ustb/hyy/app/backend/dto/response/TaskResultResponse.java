@@ -117,6 +117,11 @@ public class TaskResultResponse {
         private String category;
         private Integer firstFrame;
         private Integer lastFrame;
+        /**
+         * 轨迹点数组（格式同提交时的 trajectory）
+         * 标准格式的轨迹以压缩格式保存，其中 confidence 为 8 位量化后的值（保留 3 位小数，误差不超过约 0.002），
+         * frame 和 bbox 与提交时一致
+         */
         private Object trajectory;  // 改为 Object 类型以支持灵活的 JSON 格式
     }
 }
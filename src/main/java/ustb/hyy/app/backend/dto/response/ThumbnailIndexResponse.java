@@ -0,0 +1,91 @@
+package ustb.hyy.app.backend.dto.response;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 缩略图索引响应DTO
+ * 前端加载一张精灵图后按索引中的坐标裁剪显示各事件/追踪物体的缩略图
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ThumbnailIndexResponse {
+
+    /**
+     * 任务ID
+     */
+    private Long taskId;
+
+    /**
+     * 缩略图宽度（像素）
+     */
+    private Integer tileWidth;
+
+    /**
+     * 缩略图高度（像素）
+     */
+    private Integer tileHeight;
+
+    /**
+     * 精灵图宽度（像素）
+     */
+    private Integer spriteWidth;
+
+    /**
+     * 精灵图高度（像素）
+     */
+    private Integer spriteHeight;
+
+    /**
+     * 缩略图列表（按帧号排序）
+     */
+    private List<Tile> tiles;
+
+    /**
+     * 异常事件ID → 缩略图帧号（事件起始帧）
+     */
+    private Map<Long, Integer> eventFrames;
+
+    /**
+     * 追踪物体记录ID → 缩略图帧号（首次出现帧）
+     */
+    private Map<Long, Integer> objectFrames;
+
+    /**
+     * 精灵图中的一个缩略图
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Tile {
+
+        /**
+         * 帧号
+         */
+        private Integer frameNumber;
+
+        /**
+         * 在精灵图中的横坐标，超出精灵图容量时为空（只能单独获取）
+         */
+        private Integer x;
+
+        /**
+         * 在精灵图中的纵坐标
+         */
+        private Integer y;
+    }
+}
@@ -3,14 +3,17 @@ package ustb.hyy.app.backend.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.LockModeType;
 import ustb.hyy.app.backend.domain.entity.AnalysisTask;
 import ustb.hyy.app.backend.domain.enums.TaskStatus;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 分析任务Repository
@@ -68,4 +71,22 @@ public interface AnalysisTaskRepository extends JpaRepository<AnalysisTask, Long
      * @return 任务分页列表
      */
     Page<AnalysisTask> findByCreatedAtBetween(LocalDateTime startTime, LocalDateTime endTime, Pageable pageable);
+
+    /**
+     * 根据ID查询并加排他锁（结果完成时使用，等待进行中的分块写入结束）
+     *
+     * @param id 任务ID
+     * @return 任务
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<AnalysisTask> findForUpdateById(Long id);
+
+    /**
+     * 根据ID查询并加共享锁（写入结果分块时使用，分块之间可以并发，与结果完成互斥）
+     *
+     * @param id 任务ID
+     * @return 任务
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    Optional<AnalysisTask> findForShareById(Long id);
 }
@@ -1,7 +1,9 @@
 package ustb.hyy.app.backend.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ustb.hyy.app.backend.domain.entity.AnomalyEvent;
 import ustb.hyy.app.backend.domain.enums.EventType;
@@ -37,9 +39,13 @@ public interface AnomalyEventRepository extends JpaRepository<AnomalyEvent, Long
     /**
      * 根据任务ID删除所有异常事件
      *
+     * 直接执行批量删除，不逐条加载实体（长视频的结果有数十万行）
+     *
      * @param taskId 任务ID
      */
-    void deleteByTaskId(Long taskId);
+    @Modifying
+    @Query("DELETE FROM AnomalyEvent e WHERE e.taskId = :taskId")
+    void deleteByTaskId(@Param("taskId") Long taskId);
 
     /**
      * 统计任务的各类型事件数量
@@ -3,6 +3,9 @@ package ustb.hyy.app.backend.repository;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ustb.hyy.app.backend.domain.entity.DynamicMetric;
@@ -38,9 +41,13 @@ public interface DynamicMetricRepository extends JpaRepository<DynamicMetric, Lo
     /**
      * 根据任务ID删除所有动态参数
      *
+     * 直接执行批量删除，不逐条加载实体（长视频的结果有数十万行）
+     *
      * @param taskId 任务ID
      */
-    void deleteByTaskId(Long taskId);
+    @Modifying
+    @Query("DELETE FROM DynamicMetric m WHERE m.taskId = :taskId")
+    void deleteByTaskId(@Param("taskId") Long taskId);
 
     /**
      * 统计任务的动态参数数量
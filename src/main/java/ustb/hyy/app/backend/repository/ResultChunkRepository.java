@@ -0,0 +1,62 @@
+package ustb.hyy.app.backend.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import ustb.hyy.app.backend.domain.entity.ResultChunk;
+
+/**
+ * 分块结果提交记录Repository
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+@Repository
+public interface ResultChunkRepository extends JpaRepository<ResultChunk, Long> {
+
+    /**
+     * 登记分块，已存在相同 (taskId, seq) 时不做任何修改
+     * 并发重试同一分块时，后到的请求在唯一约束上等待先到的事务结束，提交后返回0，回滚后返回1
+     *
+     * @return 新登记返回1，分块已存在返回0
+     */
+    @Modifying
+    @Query(value = "INSERT INTO result_chunks (id, task_id, seq, metric_count, event_count, object_count, created_at, updated_at) "
+            + "VALUES (:id, :taskId, :seq, :metricCount, :eventCount, :objectCount, now(), now()) "
+            + "ON CONFLICT (task_id, seq) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") Long id, @Param("taskId") Long taskId, @Param("seq") Integer seq,
+                       @Param("metricCount") Integer metricCount, @Param("eventCount") Integer eventCount,
+                       @Param("objectCount") Integer objectCount);
+
+    /**
+     * 判断分块是否已登记
+     *
+     * @param taskId 任务ID
+     * @param seq    分块序号
+     * @return 已登记返回true
+     */
+    boolean existsByTaskIdAndSeq(Long taskId, Integer seq);
+
+    /**
+     * 查询任务已登记的分块序号（升序）
+     *
+     * @param taskId 任务ID
+     * @return 分块序号列表
+     */
+    @Query("SELECT c.seq FROM ResultChunk c WHERE c.taskId = :taskId ORDER BY c.seq")
+    List<Integer> findSeqsByTaskId(@Param("taskId") Long taskId);
+
+    /**
+     * 根据任务ID删除所有分块记录（重新分析时调用）
+     *
+     * @param taskId 任务ID
+     */
+    @Modifying
+    @Query("DELETE FROM ResultChunk c WHERE c.taskId = :taskId")
+    void deleteByTaskId(@Param("taskId") Long taskId);
+}
@@ -0,0 +1,226 @@
+package ustb.hyy.app.backend.repository;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.common.exception.BusinessException;
+import ustb.hyy.app.backend.common.util.PgBinaryCopyWriter;
+import ustb.hyy.app.backend.common.util.SnowflakeIdGenerator;
+import ustb.hyy.app.backend.domain.enums.EventType;
+import ustb.hyy.app.backend.dto.request.ResultSubmitRequest;
+
+/**
+ * 分析结果批量写入Repository（PostgreSQL COPY）
+ * <p>
+ * 动态参数、异常事件通过 {@code COPY ... FROM STDIN (FORMAT binary)} 流式写入，
+ * 不创建实体、不进入持久化上下文，一次往返写入全部行；ID 按块从雪花算法生成器获取。
+ * 使用当前事务的数据库连接，需在事务中调用，COPY 进行期间不能在同一事务中执行其他 SQL。
+ * </p>
+ *
+ * @author 侯阳洋
+ * @since 2025-10-23
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class ResultCopyRepository {
+
+    private static final String METRICS_COPY_SQL = "COPY dynamic_metrics "
+            + "(id, task_id, frame_number, timestamp, brightness, pool_area, pool_perimeter, created_at, updated_at) "
+            + "FROM STDIN (FORMAT binary)";
+
+    private static final String EVENTS_COPY_SQL = "COPY anomaly_events "
+            + "(id, task_id, event_type, start_frame, end_frame, object_id, metadata, created_at, updated_at) "
+            + "FROM STDIN (FORMAT binary)";
+
+    /**
+     * 每次从ID生成器获取的ID数
+     */
+    private static final int ID_BLOCK_SIZE = 4096;
+
+    private final DataSource dataSource;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 打开任务动态参数的写入器
+     *
+     * @param taskId 任务ID
+     * @return 写入器（写完后调用 finish，最后必须 close）
+     */
+    public CopyWriter<ResultSubmitRequest.DynamicMetricData> openMetricWriter(Long taskId) {
+        return new CopyWriter<>(METRICS_COPY_SQL, "动态参数", (writer, id, createdAt, data) -> {
+            writer.startRow(9);
+            writer.writeLong(id);
+            writer.writeLong(taskId);
+            writer.writeInt(data.getFrameNumber());
+            writer.writeNumeric(BigDecimal.valueOf(data.getTimestamp()));
+            writer.writeNumeric(data.getBrightness() != null ? BigDecimal.valueOf(data.getBrightness()) : null);
+            writer.writeInt(data.getPoolArea());
+            writer.writeNumeric(data.getPoolPerimeter() != null ? BigDecimal.valueOf(data.getPoolPerimeter()) : null);
+            writer.writeTimestamp(createdAt);
+            writer.writeTimestamp(createdAt);
+        });
+    }
+
+    /**
+     * 打开任务异常事件的写入器
+     *
+     * @param taskId 任务ID
+     * @return 写入器（写完后调用 finish，最后必须 close）
+     */
+    public CopyWriter<ResultSubmitRequest.AnomalyEventData> openEventWriter(Long taskId) {
+        return new CopyWriter<>(EVENTS_COPY_SQL, "异常事件", (writer, id, createdAt, data) -> {
+            writer.startRow(9);
+            writer.writeLong(id);
+            writer.writeLong(taskId);
+            writer.writeText(EventType.valueOf(data.getEventType()).name());
+            writer.writeInt(data.getStartFrame());
+            writer.writeInt(data.getEndFrame());
+            writer.writeInt(data.getObjectId());
+            writer.writeJsonb(toJson(data.getMetadata()));
+            writer.writeTimestamp(createdAt);
+            writer.writeTimestamp(createdAt);
+        });
+    }
+
+    /**
+     * 批量写入任务动态参数
+     *
+     * @param taskId  任务ID
+     * @param metrics 动态参数
+     * @return 写入行数
+     */
+    public long copyMetrics(Long taskId, Iterable<ResultSubmitRequest.DynamicMetricData> metrics) {
+        try (CopyWriter<ResultSubmitRequest.DynamicMetricData> writer = openMetricWriter(taskId)) {
+            for (ResultSubmitRequest.DynamicMetricData data : metrics) {
+                writer.write(data);
+            }
+            return writer.finish();
+        }
+    }
+
+    /**
+     * 批量写入任务异常事件
+     *
+     * @param taskId 任务ID
+     * @param events 异常事件
+     * @return 写入行数
+     */
+    public long copyEvents(Long taskId, Iterable<ResultSubmitRequest.AnomalyEventData> events) {
+        try (CopyWriter<ResultSubmitRequest.AnomalyEventData> writer = openEventWriter(taskId)) {
+            for (ResultSubmitRequest.AnomalyEventData data : events) {
+                writer.write(data);
+            }
+            return writer.finish();
+        }
+    }
+
+    private String toJson(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("序列化事件元数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowEncoder<T> {
+        void encode(PgBinaryCopyWriter writer, long id, LocalDateTime createdAt, T row) throws IOException;
+    }
+
+    /**
+     * 单张表的 COPY 写入器，未调用 finish 就关闭时取消 COPY（已写入的行全部丢弃）
+     */
+    public class CopyWriter<T> implements AutoCloseable {
+
+        private final String table;
+        private final RowEncoder<T> encoder;
+        private final Connection connection;
+        private final PGCopyOutputStream copyStream;
+        private final PgBinaryCopyWriter writer;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        private long[] ids = new long[0];
+        private int idIndex;
+        private long rowCount;
+        private boolean finished;
+
+        private CopyWriter(String sql, String table, RowEncoder<T> encoder) {
+            this.table = table;
+            this.encoder = encoder;
+            this.connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                this.copyStream = new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql);
+                this.writer = new PgBinaryCopyWriter(copyStream);
+            } catch (SQLException | IOException e) {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+                throw new BusinessException("开始批量写入" + table + "失败: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * 写入一行
+         */
+        public void write(T row) {
+            if (idIndex == ids.length) {
+                ids = idGenerator.nextIds(ID_BLOCK_SIZE);
+                idIndex = 0;
+            }
+            try {
+                encoder.encode(writer, ids[idIndex++], createdAt, row);
+            } catch (IOException e) {
+                throw new BusinessException("批量写入" + table + "失败: " + e.getMessage(), e);
+            }
+            rowCount++;
+        }
+
+        /**
+         * 结束 COPY，服务端在此时校验并写入全部行
+         *
+         * @return 写入行数
+         */
+        public long finish() {
+            try {
+                writer.finish();
+                copyStream.endCopy();
+                finished = true;
+            } catch (IOException | SQLException e) {
+                throw new BusinessException("批量写入" + table + "失败: " + e.getMessage(), e);
+            }
+            log.debug("批量写入{}完成，行数: {}", table, rowCount);
+            return rowCount;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (!finished && copyStream.isActive()) {
+                    copyStream.cancelCopy();
+                }
+            } catch (SQLException e) {
+                log.warn("取消批量写入{}失败", table, e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+    }
+}
@@ -4,7 +4,9 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ustb.hyy.app.backend.domain.entity.TrackingObject;
@@ -45,6 +47,35 @@ public interface TrackingObjectRepository extends JpaRepository<TrackingObject,
      */
     Optional<TrackingObject> findByTaskIdAndObjectId(Long taskId, Integer objectId);
 
+    /**
+     * 批量写入追踪物体，已存在相同 (taskId, objectId) 时合并：帧范围取并集，轨迹追加到末尾，类别保持不变
+     * 压缩轨迹由多个分段直接拼接组成，可直接用 || 追加；轨迹按分块到达顺序追加，读取时按帧号排序（见 TrackingObject#getTrajectoryForOutput）
+     * 同一批内 objectId 不能重复（ON CONFLICT 不能在一条语句中更新同一行两次）
+     *
+     * @param taskId 任务ID
+     * @param rows   JSON数组，元素字段为 id、object_id、category、first_frame、last_frame、trajectory、
+     *               trajectory_data（Base64）
+     * @return 写入（插入或更新）行数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO tracking_objects "
+            + "(id, task_id, object_id, category, first_frame, last_frame, trajectory, trajectory_data, created_at, updated_at) "
+            + "SELECT r.id, :taskId, r.object_id, r.category, r.first_frame, r.last_frame, r.trajectory, "
+            + "decode(r.trajectory_data, 'base64'), now(), now() "
+            + "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(id BIGINT, object_id INTEGER, category VARCHAR, "
+            + "first_frame INTEGER, last_frame INTEGER, trajectory JSONB, trajectory_data TEXT) "
+            + "ON CONFLICT (task_id, object_id) DO UPDATE SET "
+            + "first_frame = LEAST(tracking_objects.first_frame, EXCLUDED.first_frame), "
+            + "last_frame = GREATEST(tracking_objects.last_frame, EXCLUDED.last_frame), "
+            + "trajectory = CASE WHEN EXCLUDED.trajectory IS NULL THEN tracking_objects.trajectory "
+            + "WHEN tracking_objects.trajectory IS NULL THEN EXCLUDED.trajectory "
+            + "ELSE tracking_objects.trajectory || EXCLUDED.trajectory END, "
+            + "trajectory_data = CASE WHEN EXCLUDED.trajectory_data IS NULL THEN tracking_objects.trajectory_data "
+            + "WHEN tracking_objects.trajectory_data IS NULL THEN EXCLUDED.trajectory_data "
+            + "ELSE tracking_objects.trajectory_data || EXCLUDED.trajectory_data END, "
+            + "updated_at = now()", nativeQuery = true)
+    int upsertBatch(@Param("taskId") Long taskId, @Param("rows") String rows);
+
     /**
      * 根据任务ID删除所有追踪物体
      *
@@ -61,6 +92,15 @@ public interface TrackingObjectRepository extends JpaRepository<TrackingObject,
     @Query("SELECT t.category, COUNT(t) FROM TrackingObject t WHERE t.taskId = :taskId GROUP BY t.category")
     List<Object[]> countByCategory(Long taskId);
 
+    /**
+     * 查询任务所有追踪物体的首次出现帧号（不加载轨迹数据）
+     *
+     * @param taskId 任务ID
+     * @return [id, firstFrame]
+     */
+    @Query("SELECT t.id, t.firstFrame FROM TrackingObject t WHERE t.taskId = :taskId")
+    List<Object[]> findFirstFramesByTaskId(Long taskId);
+
     /**
      * 批量保存追踪物体
      *
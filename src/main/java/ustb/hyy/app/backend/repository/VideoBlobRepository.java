@@ -0,0 +1,47 @@
+package ustb.hyy.app.backend.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+import ustb.hyy.app.backend.domain.entity.VideoBlob;
+
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+
+/**
+ * 内容寻址视频文件Repository
+ *
+ * @author 侯阳洋
+ * @since 2025-10-21
+ */
+@Repository
+public interface VideoBlobRepository extends JpaRepository<VideoBlob, Long> {
+
+    /**
+     * 根据内容哈希和导入配置查询（不加锁，用于导入前判断能否复用）
+     *
+     * @param contentHash   内容哈希
+     * @param ingestProfile 导入配置
+     * @return 视频文件
+     */
+    Optional<VideoBlob> findByContentHashAndIngestProfile(String contentHash, String ingestProfile);
+
+    /**
+     * 根据内容哈希和导入配置查询并加行锁（修改引用计数时使用）
+     *
+     * @param contentHash   内容哈希
+     * @param ingestProfile 导入配置
+     * @return 视频文件
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<VideoBlob> findForUpdateByContentHashAndIngestProfile(String contentHash, String ingestProfile);
+
+    /**
+     * 根据文件路径查询并加行锁（删除任务释放引用时使用）
+     *
+     * @param videoPath 视频文件路径
+     * @return 视频文件
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<VideoBlob> findForUpdateByVideoPath(String videoPath);
+}
@@ -0,0 +1,25 @@
+package ustb.hyy.app.backend.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ustb.hyy.app.backend.domain.entity.VideoProbe;
+
+import java.util.Optional;
+
+/**
+ * 视频探测结果Repository
+ *
+ * @author 侯阳洋
+ * @since 2025-10-21
+ */
+@Repository
+public interface VideoProbeRepository extends JpaRepository<VideoProbe, Long> {
+
+    /**
+     * 根据文件路径查询
+     *
+     * @param filePath 文件绝对路径
+     * @return 探测结果
+     */
+    Optional<VideoProbe> findByFilePath(String filePath);
+}
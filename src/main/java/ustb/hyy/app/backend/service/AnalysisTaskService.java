@@ -1,11 +1,16 @@
 package ustb.hyy.app.backend.service;
 
+import java.io.InputStream;
+
 import org.springframework.data.domain.Pageable;
 
 import ustb.hyy.app.backend.common.response.PageResult;
 import ustb.hyy.app.backend.dto.request.ProgressUpdateRequest;
+import ustb.hyy.app.backend.dto.request.ResultChunkRequest;
+import ustb.hyy.app.backend.dto.request.ResultFinalizeRequest;
 import ustb.hyy.app.backend.dto.request.ResultSubmitRequest;
 import ustb.hyy.app.backend.dto.request.TaskUploadRequest;
+import ustb.hyy.app.backend.dto.response.ResultChunkResponse;
 import ustb.hyy.app.backend.dto.response.TaskResponse;
 import ustb.hyy.app.backend.dto.response.TaskResultResponse;
 import ustb.hyy.app.backend.dto.response.TaskStatusResponse;
@@ -26,6 +31,14 @@ public interface AnalysisTaskService {
      */
     TaskResponse uploadTask(TaskUploadRequest request);
 
+    /**
+     * 完成分片上传并创建分析任务
+     *
+     * @param uploadId 上传会话ID
+     * @return 任务响应
+     */
+    TaskResponse completeChunkUpload(String uploadId);
+
     /**
      * 手动开始任务分析
      *
@@ -73,6 +86,35 @@ public interface AnalysisTaskService {
      */
     void submitResult(Long taskId, ResultSubmitRequest request);
 
+    /**
+     * 流式提交分析结果（AI模块回调）
+     * 请求体格式与 {@link ResultSubmitRequest} 相同，边读取边校验并分块写入，内存占用与视频长度无关
+     *
+     * @param taskId 任务ID
+     * @param body   请求体（JSON）
+     */
+    void submitResultStream(Long taskId, InputStream body);
+
+    /**
+     * 分块提交分析结果（AI模块在分析过程中回调）
+     * 同一任务的同一分块序号只写入一次，重试时返回 duplicate=true；
+     * 任务结束后只接受已写入分块的重试，新的分块（包括超出总分块数的序号）返回409
+     *
+     * @param taskId  任务ID
+     * @param request 分块结果
+     * @return 分块写入结果
+     */
+    ResultChunkResponse submitResultChunk(Long taskId, ResultChunkRequest request);
+
+    /**
+     * 完成分块结果提交，更新任务最终状态和全局分析结果
+     * 对任务加排他锁，等待进行中的分块写入结束后再校验分块是否齐全
+     *
+     * @param taskId  任务ID
+     * @param request 完成请求
+     */
+    void finalizeResult(Long taskId, ResultFinalizeRequest request);
+
     /**
      * 获取分析结果
      *
@@ -81,6 +123,14 @@ public interface AnalysisTaskService {
      */
     TaskResultResponse getTaskResult(Long taskId);
 
+    /**
+     * 获取分析结果版本标识（用作ETag），结果只在提交结果和重新分析时变化
+     *
+     * @param taskId 任务ID
+     * @return 结果版本ETag，任务尚未完成时返回null
+     */
+    String getTaskResultETag(Long taskId);
+
     /**
      * 分页获取任务列表
      *
@@ -0,0 +1,84 @@
+package ustb.hyy.app.backend.service;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import ustb.hyy.app.backend.dto.request.ChunkUploadInitRequest;
+import ustb.hyy.app.backend.dto.response.ChunkUploadResponse;
+
+/**
+ * 分片上传Service接口
+ * 分片按偏移量顺序追加到同一个文件中，连接中断后可查询已接收字节数并从该偏移量继续上传
+ *
+ * @author 侯阳洋
+ * @since 2025-10-20
+ */
+public interface ChunkUploadService {
+
+    /**
+     * 初始化分片上传会话
+     *
+     * @param request 初始化请求
+     * @return 上传状态
+     */
+    ChunkUploadResponse initUpload(ChunkUploadInitRequest request);
+
+    /**
+     * 查询上传状态（用于断点续传时获取已接收字节数）
+     *
+     * @param uploadId 上传会话ID
+     * @return 上传状态
+     */
+    ChunkUploadResponse getUploadStatus(String uploadId);
+
+    /**
+     * 追加一个分片
+     *
+     * @param uploadId 上传会话ID
+     * @param offset   分片在文件中的起始偏移量
+     * @param data     分片数据流
+     * @return 上传状态
+     */
+    ChunkUploadResponse appendChunk(String uploadId, long offset, InputStream data);
+
+    /**
+     * 认领已接收完整的上传（原子操作，同一上传只有一个请求能认领成功）
+     * 认领后不能再写入分片或取消；调用方需在事务提交后调用 {@link #removeUpload}，回滚时调用 {@link #releaseUpload}
+     *
+     * @param uploadId 上传会话ID
+     * @return 已完成的上传
+     */
+    CompletedUpload claimCompletedUpload(String uploadId);
+
+    /**
+     * 移除上传会话（任务创建提交后调用，上传文件已交给导入）
+     *
+     * @param uploadId 上传会话ID
+     */
+    void removeUpload(String uploadId);
+
+    /**
+     * 释放认领（任务创建回滚时调用），恢复分片文件和会话，客户端可以重新完成
+     *
+     * @param uploadId 上传会话ID
+     */
+    void releaseUpload(String uploadId);
+
+    /**
+     * 取消上传，删除会话和已接收的数据
+     *
+     * @param uploadId 上传会话ID
+     */
+    void abortUpload(String uploadId);
+
+    /**
+     * 已完成的上传
+     *
+     * @param contentHash 上传过程中增量计算的内容SHA-256，哈希状态不可用时为null，需要重新读取文件计算
+     */
+    record CompletedUpload(
+            Path file,
+            ChunkUploadInitRequest request,
+            String contentHash
+    ) {}
+}
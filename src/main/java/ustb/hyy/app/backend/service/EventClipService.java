@@ -0,0 +1,62 @@
+package ustb.hyy.app.backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 异常事件片段导出Service接口
+ * 按事件帧范围（前后各加留白）流复制截取视频片段，生成的片段缓存在磁盘上
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+public interface EventClipService {
+
+    /**
+     * 获取单个事件的视频片段
+     *
+     * @param taskId 任务ID
+     * @param eventId 事件ID
+     * @param type 视频类型（original/result/preprocessed）
+     * @param padding 事件前后留白（秒）
+     * @return 片段文件
+     */
+    Path getEventClip(Long taskId, Long eventId, String type, double padding);
+
+    /**
+     * 获取任务中某一类型的全部事件片段（不存在的片段会先生成）
+     *
+     * @param taskId 任务ID
+     * @param eventType 事件类型
+     * @param type 视频类型（original/result/preprocessed）
+     * @param padding 事件前后留白（秒）
+     * @return 事件片段列表（按起始帧排序）
+     */
+    List<EventClip> getEventClips(Long taskId, String eventType, String type, double padding);
+
+    /**
+     * 将事件片段打包为ZIP写出（片段已是压缩视频，ZIP不再压缩）
+     *
+     * @param clips 事件片段
+     * @param output 输出流
+     * @throws IOException 写出失败时抛出
+     */
+    void writeZip(List<EventClip> clips, OutputStream output) throws IOException;
+
+    /**
+     * 事件片段
+     *
+     * @param name 片段文件名（ZIP条目名）
+     * @param file 片段文件
+     */
+    record EventClip(String name, Path file) {}
+
+    /**
+     * 删除任务的片段缓存（重新分析或删除任务时调用）
+     *
+     * @param taskId 任务ID
+     */
+    void deleteClips(Long taskId);
+}
@@ -0,0 +1,45 @@
+package ustb.hyy.app.backend.service;
+
+import java.nio.file.Path;
+
+/**
+ * HLS打包Service接口
+ * 每个视频文件版本（文件名 + 修改时间）对应一个打包目录，目录名即打包标识，
+ * 视频被替换后标识随之变化，分片可以长期缓存
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+public interface HlsPackager {
+
+    /**
+     * 提交后台打包，未启用、已打包或正在打包时直接返回
+     *
+     * @param video 视频文件
+     */
+    void submit(Path video);
+
+    /**
+     * 计算视频文件当前版本的打包标识
+     *
+     * @param video        视频文件
+     * @param lastModified 文件修改时间（毫秒）
+     * @return 打包标识（只包含字母、数字、下划线和连字符）
+     */
+    String getPackageKey(Path video, long lastModified);
+
+    /**
+     * 获取打包目录，目录中存在主播放列表时表示打包完成
+     *
+     * @param key 打包标识
+     * @return 打包目录
+     */
+    Path getPackageDirectory(String key);
+
+    /**
+     * 删除视频文件所有版本的打包目录（视频文件删除时调用）
+     *
+     * @param video 视频文件
+     */
+    void delete(Path video);
+}
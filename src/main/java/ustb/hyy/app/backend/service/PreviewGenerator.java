@@ -0,0 +1,52 @@
+package ustb.hyy.app.backend.service;
+
+import java.nio.file.Path;
+
+/**
+ * 预览生成Service接口
+ * 每个视频文件版本（文件名 + 修改时间）对应一个预览目录，包含代理视频、时间轴精灵图和 WebVTT 索引，
+ * 视频被替换后目录随之变化，旧版本的预览不会被误用
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+public interface PreviewGenerator {
+
+    /**
+     * 代理视频文件名
+     */
+    String PROXY_FILE = "proxy.mp4";
+
+    /**
+     * 时间轴精灵图文件名
+     */
+    String SPRITE_FILE = "timeline.jpg";
+
+    /**
+     * 时间轴 WebVTT 索引文件名
+     */
+    String VTT_FILE = "timeline.vtt";
+
+    /**
+     * 提交后台生成，未启用、已生成或正在生成时直接返回
+     *
+     * @param video 视频文件
+     */
+    void submit(Path video);
+
+    /**
+     * 获取视频文件指定版本的预览目录，目录存在即表示生成完成
+     *
+     * @param video        视频文件
+     * @param lastModified 文件修改时间（毫秒）
+     * @return 预览目录
+     */
+    Path getPreviewDirectory(Path video, long lastModified);
+
+    /**
+     * 删除视频文件所有版本的预览目录（视频文件删除时调用）
+     *
+     * @param video 视频文件
+     */
+    void delete(Path video);
+}
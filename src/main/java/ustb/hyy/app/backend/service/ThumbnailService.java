@@ -0,0 +1,53 @@
+package ustb.hyy.app.backend.service;
+
+import java.nio.file.Path;
+
+import ustb.hyy.app.backend.dto.response.ThumbnailIndexResponse;
+
+/**
+ * 事件缩略图Service接口
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+public interface ThumbnailService {
+
+    /**
+     * 提交后台生成任务的全部缩略图（结果提交后调用），已在生成时直接返回
+     *
+     * @param taskId 任务ID
+     */
+    void submit(Long taskId);
+
+    /**
+     * 获取缩略图索引，尚未生成时提交生成并抛出 ResourceNotFoundException
+     *
+     * @param taskId 任务ID
+     * @return 缩略图索引
+     */
+    ThumbnailIndexResponse getIndex(Long taskId);
+
+    /**
+     * 获取精灵图文件
+     *
+     * @param taskId 任务ID
+     * @return 精灵图文件
+     */
+    Path getSprite(Long taskId);
+
+    /**
+     * 获取单个缩略图文件
+     *
+     * @param taskId 任务ID
+     * @param frameNumber 帧号
+     * @return 缩略图文件
+     */
+    Path getThumbnail(Long taskId, long frameNumber);
+
+    /**
+     * 删除任务的缩略图（重新分析或删除任务时调用）
+     *
+     * @param taskId 任务ID
+     */
+    void delete(Long taskId);
+}
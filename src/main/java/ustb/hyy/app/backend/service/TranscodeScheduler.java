@@ -0,0 +1,54 @@
+package ustb.hyy.app.backend.service;
+
+/**
+ * 转码调度Service接口
+ * 限制同时执行的转码任务数，等待中的任务按视频时长短作业优先执行
+ *
+ * @author 侯阳洋
+ * @since 2025-10-21
+ */
+public interface TranscodeScheduler {
+
+    /**
+     * 上传前的准入检查，转码等待队列已满时抛出 TooManyRequestsException（429，附带预计等待时间）
+     * 只做检查不预留名额，用于上传开始前尽早拒绝
+     */
+    void checkAdmission();
+
+    /**
+     * 准入并预留一个转码名额，转码等待队列已满时抛出 TooManyRequestsException
+     * 预留的名额计入队列容量，直到交给 {@link #execute} 或调用 {@link Reservation#release()}
+     *
+     * @return 名额预留
+     */
+    Reservation reserve();
+
+    /**
+     * 估算当前排队转码全部完成所需的秒数（用于 Retry-After）
+     *
+     * @return 预计等待秒数，至少为1
+     */
+    long estimateWaitSeconds();
+
+    /**
+     * 排队执行转码任务，阻塞直到任务执行完成
+     * 使用准入时预留的名额，不会在此被拒绝
+     *
+     * @param reservation   准入时预留的名额（入队后即归还）
+     * @param taskId        任务ID
+     * @param videoDuration 视频时长（秒），作为排队优先级
+     * @param job           转码任务
+     */
+    void execute(Reservation reservation, Long taskId, int videoDuration, Runnable job);
+
+    /**
+     * 转码名额预留
+     */
+    interface Reservation {
+
+        /**
+         * 归还名额（不需要转码、导入失败或事务回滚时调用，重复调用无影响）
+         */
+        void release();
+    }
+}
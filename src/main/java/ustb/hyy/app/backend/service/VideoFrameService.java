@@ -0,0 +1,41 @@
+package ustb.hyy.app.backend.service;
+
+/**
+ * 视频单帧提取Service接口
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+public interface VideoFrameService {
+
+    /**
+     * 提取视频指定帧并编码为图片
+     *
+     * @param taskId 任务ID
+     * @param type 视频类型（original/result/preprocessed）
+     * @param frameNumber 帧号（从0开始）
+     * @param format 图片格式（jpg/png）
+     * @return 帧图片
+     */
+    FrameImage getFrameImage(Long taskId, String type, long frameNumber, String format);
+
+    /**
+     * 获取帧图片的ETag（不解码，用于条件请求）
+     *
+     * @param taskId 任务ID
+     * @param type 视频类型
+     * @param frameNumber 帧号
+     * @param format 图片格式（jpg/png）
+     * @return 强ETag
+     */
+    String getFrameETag(Long taskId, String type, long frameNumber, String format);
+
+    /**
+     * 帧图片
+     *
+     * @param data 图片数据
+     * @param contentType Content-Type
+     * @param eTag 强ETag（视频版本 + 帧号 + 格式）
+     */
+    record FrameImage(byte[] data, String contentType, String eTag) {}
+}
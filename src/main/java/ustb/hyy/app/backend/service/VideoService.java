@@ -1,10 +1,13 @@
 package ustb.hyy.app.backend.service;
 
+import java.nio.file.Path;
 import java.util.List;
 
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpRange;
 
+import ustb.hyy.app.backend.common.util.VideoUtils;
+
 /**
  * 视频服务接口
  *
@@ -17,7 +20,8 @@ public interface VideoService {
      * 获取视频资源
      *
      * @param taskId 任务ID
-     * @param type 视频类型（original: 原始视频, result: 结果视频）
+     * @param type 视频类型（original: 原始视频, result: 结果视频, preprocessed: 预处理视频,
+     *             proxy: 低分辨率代理视频, timeline: 时间轴精灵图, timeline-vtt: 时间轴 WebVTT 索引）
      * @return 视频资源
      */
     Resource getVideoResource(Long taskId, String type);
@@ -41,6 +45,34 @@ public interface VideoService {
      */
     VideoMetadata getVideoMetadata(Long taskId, String type);
 
+    /**
+     * 获取视频的关键帧定位索引（帧号 → 时间戳 → 字节偏移）
+     * 优先读取导入时生成的索引文件，不存在或已失效时扫描视频重新建立
+     *
+     * @param taskId 任务ID
+     * @param type 视频类型
+     * @return 关键帧索引
+     */
+    VideoUtils.KeyframeIndex getKeyframeIndex(Long taskId, String type);
+
+    /**
+     * 获取视频当前版本的HLS打包
+     *
+     * @param taskId 任务ID
+     * @param type 视频类型
+     * @return HLS打包信息
+     * @throws ustb.hyy.app.backend.common.exception.ResourceNotFoundException 尚未打包完成时抛出
+     */
+    HlsPackage getHlsPackage(Long taskId, String type);
+
+    /**
+     * HLS打包信息
+     *
+     * @param key 打包标识（视频替换后变化）
+     * @param directory 打包目录
+     */
+    record HlsPackage(String key, Path directory) {}
+
     /**
      * 视频元数据类
      */
@@ -48,6 +80,15 @@ public interface VideoService {
             String filename,
             String contentType,
             long fileSize,
-            Integer duration
-    ) {}
+            Integer duration,
+            long lastModified
+    ) {
+
+        /**
+         * 强ETag，由文件大小和修改时间生成（视频文件写入后不再原地修改）
+         */
+        public String eTag() {
+            return "\"" + Long.toHexString(fileSize) + "-" + Long.toHexString(lastModified) + "\"";
+        }
+    }
 }
@@ -1,45 +1,83 @@
 package ustb.hyy.app.backend.service.impl;
 
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ustb.hyy.app.backend.cache.TaskProgressCache;
+import ustb.hyy.app.backend.cache.VideoFileCache;
+import ustb.hyy.app.backend.cache.VideoProbeCache;
 import ustb.hyy.app.backend.common.exception.BusinessException;
 import ustb.hyy.app.backend.common.exception.ResourceNotFoundException;
+import ustb.hyy.app.backend.common.exception.TooManyRequestsException;
 import ustb.hyy.app.backend.common.response.PageResult;
+import ustb.hyy.app.backend.common.util.JsonStreamUtils;
+import ustb.hyy.app.backend.common.util.SeekIndexUtils;
+import ustb.hyy.app.backend.common.util.SnowflakeIdGenerator;
+import ustb.hyy.app.backend.common.util.TrajectoryCodec;
 import ustb.hyy.app.backend.common.util.VideoUtils;
+import ustb.hyy.app.backend.config.IngestExecutorConfig;
 import ustb.hyy.app.backend.domain.entity.AnalysisTask;
 import ustb.hyy.app.backend.domain.entity.AnomalyEvent;
 import ustb.hyy.app.backend.domain.entity.DynamicMetric;
 import ustb.hyy.app.backend.domain.entity.TaskConfig;
 import ustb.hyy.app.backend.domain.entity.TrackingObject;
-import ustb.hyy.app.backend.domain.enums.EventType;
+import ustb.hyy.app.backend.domain.entity.VideoBlob;
 import ustb.hyy.app.backend.domain.enums.ObjectCategory;
 import ustb.hyy.app.backend.domain.enums.TaskStatus;
+import ustb.hyy.app.backend.dto.request.ChunkUploadInitRequest;
 import ustb.hyy.app.backend.dto.request.ProgressUpdateRequest;
+import ustb.hyy.app.backend.dto.request.ResultChunkRequest;
+import ustb.hyy.app.backend.dto.request.ResultFinalizeRequest;
 import ustb.hyy.app.backend.dto.request.ResultSubmitRequest;
 import ustb.hyy.app.backend.dto.request.TaskUploadRequest;
+import ustb.hyy.app.backend.dto.response.ResultChunkResponse;
 import ustb.hyy.app.backend.dto.response.TaskResponse;
 import ustb.hyy.app.backend.dto.response.TaskResultResponse;
 import ustb.hyy.app.backend.dto.response.TaskStatusResponse;
@@ -48,9 +86,18 @@ import ustb.hyy.app.backend.mq.producer.VideoAnalysisProducer;
 import ustb.hyy.app.backend.repository.AnalysisTaskRepository;
 import ustb.hyy.app.backend.repository.AnomalyEventRepository;
 import ustb.hyy.app.backend.repository.DynamicMetricRepository;
+import ustb.hyy.app.backend.repository.ResultChunkRepository;
+import ustb.hyy.app.backend.repository.ResultCopyRepository;
 import ustb.hyy.app.backend.repository.TaskConfigRepository;
 import ustb.hyy.app.backend.repository.TrackingObjectRepository;
+import ustb.hyy.app.backend.repository.VideoBlobRepository;
 import ustb.hyy.app.backend.service.AnalysisTaskService;
+import ustb.hyy.app.backend.service.ChunkUploadService;
+import ustb.hyy.app.backend.service.EventClipService;
+import ustb.hyy.app.backend.service.HlsPackager;
+import ustb.hyy.app.backend.service.PreviewGenerator;
+import ustb.hyy.app.backend.service.ThumbnailService;
+import ustb.hyy.app.backend.service.TranscodeScheduler;
 
 /**
  * 分析任务Service实现
@@ -63,14 +110,42 @@ import ustb.hyy.app.backend.service.AnalysisTaskService;
 @RequiredArgsConstructor
 public class AnalysisTaskServiceImpl implements AnalysisTaskService {
 
+    /**
+     * 结果提交允许的最终状态
+     */
+    private static final Set<String> RESULT_STATUSES = Set.of("COMPLETED", "COMPLETED_TIMEOUT", "FAILED");
+
+    /**
+     * 追踪物体每条 upsert 语句的行数
+     */
+    private static final int TRACKING_UPSERT_BATCH_SIZE = 500;
+
     private final AnalysisTaskRepository taskRepository;
     private final TaskConfigRepository configRepository;
     private final DynamicMetricRepository metricRepository;
+    private final ResultCopyRepository resultCopyRepository;
+    private final ResultChunkRepository resultChunkRepository;
     private final AnomalyEventRepository eventRepository;
     private final TrackingObjectRepository trackingRepository;
+    private final VideoBlobRepository blobRepository;
     private final VideoAnalysisProducer analysisProducer;
     private final TaskProgressCache progressCache;
+    private final VideoProbeCache probeCache;
+    private final VideoFileCache fileCache;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ChunkUploadService chunkUploadService;
+    private final TranscodeScheduler transcodeScheduler;
+    private final HlsPackager hlsPackager;
+    private final PreviewGenerator previewGenerator;
+    private final EventClipService eventClipService;
+    private final ThumbnailService thumbnailService;
+    private final ThreadPoolTaskExecutor videoIngestExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool videoTranscodePool;
+    private final IngestExecutorConfig ingestConfig;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final SnowflakeIdGenerator idGenerator;
 
     @Value("${app.storage.base-path}")
     private String storageBasePath;
@@ -83,6 +158,9 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
 
     @Value("${app.task.default-timeout-ratio}")
     private String defaultTimeoutRatio;
+
+    @Value("${app.result.stream-chunk-size:1000}")
+    private int resultStreamChunkSize;
     
     /**
      * 获取视频存储路径（绝对路径）
@@ -98,52 +176,56 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
     public TaskResponse uploadTask(TaskUploadRequest request) {
         MultipartFile video = request.getVideo();
 
-        // 1. 校验视频文件
+        // 1. 校验视频文件，预留转码名额，转码队列已满时拒绝（429）
         validateVideoFile(video);
+        TranscodeScheduler.Reservation reservation = reserveTranscode();
 
-        // 2. 处理视频文件（包括解析元数据、检查编码、可能的重新编码和保存）
-        ProcessVideoResult processResult = processAndSaveVideo(video);
-        String videoPath = processResult.videoPath;
-        String originalFilename = processResult.originalFilename;
-        VideoUtils.VideoInfo videoInfo = processResult.videoInfo;
-
-        int videoDuration = videoInfo.getDuration();
-        double frameRate = videoInfo.getFrameRate();
-
-        log.info("视频处理完成 - 时长: {} 秒, 帧率: {} fps, 分辨率: {}x{}, 编码: {}",
-                videoDuration, frameRate, videoInfo.getWidth(), videoInfo.getHeight(), videoInfo.getCodec());
-
-        // 3. 计算超时阈值
-        String timeoutRatio = Optional.ofNullable(request.getTimeoutRatio()).orElse(defaultTimeoutRatio);
-        int timeoutThreshold = calculateTimeoutThreshold(videoDuration, timeoutRatio);
+        // 获取原始文件名
+        String originalFilename = video.getOriginalFilename();
+        if (originalFilename == null || originalFilename.isEmpty()) {
+            originalFilename = "unknown.mp4";
+        }
 
-        // 4. 创建任务
-        AnalysisTask task = AnalysisTask.builder()
-                .name(Optional.ofNullable(request.getName()).orElse(originalFilename))
-                .originalFilename(originalFilename)
-                .videoPath(videoPath)
-                .videoDuration(videoDuration)
-                .status(TaskStatus.PENDING)
-                .timeoutThreshold(timeoutThreshold)
-                .isTimeout(false)
-                .build();
-        task = taskRepository.save(task);
+        // 2. 将视频落盘（内容哈希、解析、转码和faststart优化在后台导入线程中进行）
+        Path tempFile = saveUploadedVideo(video, originalFilename);
 
-        // 5. 创建任务配置
-        TaskConfig config = TaskConfig.builder()
-                .task(task)
-                .timeoutRatio(timeoutRatio)
-                .frameRate(frameRate)
-                .enablePreprocessing(Optional.ofNullable(request.getEnablePreprocessing()).orElse(false))
-                .preprocessingStrength(Optional.ofNullable(request.getPreprocessingStrength()).orElse("moderate"))
-                .preprocessingEnhancePool(Optional.ofNullable(request.getPreprocessingEnhancePool()).orElse(true))
-                .enableTrackingMerge(Optional.ofNullable(request.getEnableTrackingMerge()).orElse(false))
-                .trackingMergeStrategy(Optional.ofNullable(request.getTrackingMergeStrategy()).orElse("auto"))
-                .build();
-        configRepository.save(config);
+        // 3. 创建导入中的任务，事务提交后开始后台导入
+        return createIngestingTask(request, tempFile, originalFilename, null, reservation);
+    }
 
-        // 6. 返回响应（不再自动发送到消息队列，需要手动开始分析）
-        return buildTaskResponse(task, config);
+    @Override
+    @Transactional
+    public TaskResponse completeChunkUpload(String uploadId) {
+        // 原子认领上传，并发或重试的完成请求只有一个能创建任务
+        ChunkUploadService.CompletedUpload upload = chunkUploadService.claimCompletedUpload(uploadId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    chunkUploadService.removeUpload(uploadId);
+                } else {
+                    // 任务创建失败，恢复上传，客户端可以重试完成
+                    chunkUploadService.releaseUpload(uploadId);
+                }
+            }
+        });
+        TranscodeScheduler.Reservation reservation = reserveTranscode();
+        ChunkUploadInitRequest initRequest = upload.request();
+
+        log.info("分片上传已完成，uploadId: {}, 文件名: {}", uploadId, initRequest.getFilename());
+
+        TaskUploadRequest options = new TaskUploadRequest();
+        options.setName(initRequest.getName());
+        options.setTimeoutRatio(initRequest.getTimeoutRatio());
+        options.setEnablePreprocessing(initRequest.getEnablePreprocessing());
+        options.setPreprocessingStrength(initRequest.getPreprocessingStrength());
+        options.setPreprocessingEnhancePool(initRequest.getPreprocessingEnhancePool());
+        options.setEnableTrackingMerge(initRequest.getEnableTrackingMerge());
+        options.setTrackingMergeStrategy(initRequest.getTrackingMergeStrategy());
+        options.setIngestProfile(initRequest.getIngestProfile());
+
+        // 分片文件已是完整视频，直接交给后台导入，无需再次复制（内容哈希已在接收分片时增量计算）
+        return createIngestingTask(options, upload.file(), initRequest.getFilename(), upload.contentHash(), reservation);
     }
 
     @Override
@@ -195,6 +277,11 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
             throw new BusinessException(400, "只能重新分析已完成或失败的任务，当前状态: " + task.getStatus().name());
         }
 
+        // 导入失败的任务没有可用的原始视频
+        if (!Files.exists(Paths.get(toAbsolutePath(task.getVideoPath())))) {
+            throw new BusinessException(400, "原始视频不存在，无法重新分析");
+        }
+
         log.info("开始重新分析任务，taskId: {}, 当前状态: {}", taskId, task.getStatus());
 
         // 1. 尝试删除相关的视频文件（预处理视频和结果视频）
@@ -206,6 +293,9 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
         // 删除动态参数
         metricRepository.deleteByTaskId(taskId);
         
+        // 删除分块提交记录
+        resultChunkRepository.deleteByTaskId(taskId);
+        
         // 删除异常事件
         eventRepository.deleteByTaskId(taskId);
         
@@ -222,9 +312,12 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
         task.setPreprocessedVideoPath(null);
         task.setResultVideoPath(null);
         taskRepository.save(task);
+        fileCache.evict(taskId);
 
-        // 3. 清除Redis缓存的进度信息
+        // 3. 清除Redis缓存的进度信息和旧事件的片段缓存
         progressCache.deleteProgress(taskId);
+        eventClipService.deleteClips(taskId);
+        thumbnailService.delete(taskId);
 
         log.info("任务 {} 状态已重置，旧数据已清除", taskId);
 
@@ -373,112 +466,315 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
 
     @Override
     @Transactional
-    @SuppressWarnings("unchecked")
     public void submitResult(Long taskId, ResultSubmitRequest request) {
-        AnalysisTask task = findTaskById(taskId);
+        AnalysisTask task = findTaskForUpdate(taskId);
 
-        // 1. 更新任务状态和全局分析结果
-        TaskStatus newStatus = TaskStatus.valueOf(request.getStatus());
-        task.setStatus(newStatus);
-        task.setCompletedAt(LocalDateTime.now());
+        // 1. 保存动态参数（COPY 流式写入，长视频有数十万行）
+        if (request.getDynamicMetrics() != null && !request.getDynamicMetrics().isEmpty()) {
+            long count = resultCopyRepository.copyMetrics(taskId, request.getDynamicMetrics());
+            log.info("动态参数写入完成，taskId: {}, 行数: {}", taskId, count);
+        }
 
-        if (newStatus == TaskStatus.FAILED) {
-            task.setFailureReason(request.getFailureReason());
+        // 2. 保存异常事件
+        if (request.getAnomalyEvents() != null && !request.getAnomalyEvents().isEmpty()) {
+            resultCopyRepository.copyEvents(taskId, request.getAnomalyEvents());
         }
 
-        // 保存全局频率分析结果
-        if (request.getGlobalAnalysis() != null) {
-            task.setGlobalAnalysis(request.getGlobalAnalysis());
+        // 3. 保存追踪物体（使用 upsert 逻辑）
+        if (request.getTrackingObjects() != null && !request.getTrackingObjects().isEmpty()) {
+            saveTrackingObjects(taskId, request.getTrackingObjects());
         }
 
-        taskRepository.save(task);
+        // 4. 更新任务状态和全局分析结果
+        completeResult(task, TaskStatus.valueOf(request.getStatus()),
+                request.getFailureReason(), request.getGlobalAnalysis());
+    }
 
-        // 2. 保存动态参数
-        if (request.getDynamicMetrics() != null && !request.getDynamicMetrics().isEmpty()) {
-            List<DynamicMetric> metrics = request.getDynamicMetrics().stream()
-                    .map(data -> DynamicMetric.builder()
-                            .taskId(taskId)
-                            .frameNumber(data.getFrameNumber())
-                            .timestamp(BigDecimal.valueOf(data.getTimestamp()))
-                            .brightness(data.getBrightness() != null ?
-                                    BigDecimal.valueOf(data.getBrightness()) : null)
-                            .poolArea(data.getPoolArea())
-                            .poolPerimeter(data.getPoolPerimeter() != null ?
-                                    BigDecimal.valueOf(data.getPoolPerimeter()) : null)
-                            .build())
-                    .collect(Collectors.toList());
-            metricRepository.saveAll(metrics);
-        }
-
-        // 3. 保存异常事件
-        if (request.getAnomalyEvents() != null && !request.getAnomalyEvents().isEmpty()) {
-            List<AnomalyEvent> events = request.getAnomalyEvents().stream()
-                    .map(data -> AnomalyEvent.builder()
-                            .taskId(taskId)
-                            .eventType(EventType.valueOf(data.getEventType()))
-                            .startFrame(data.getStartFrame())
-                            .endFrame(data.getEndFrame())
-                            .objectId(data.getObjectId())
-                            .metadata(data.getMetadata() != null ? (Map<String, Object>) data.getMetadata() : null)
-                            .build())
-                    .collect(Collectors.toList());
-            eventRepository.saveAll(events);
-        }
-
-        // 4. 保存追踪物体（使用 upsert 逻辑）
-        if (request.getTrackingObjects() != null && !request.getTrackingObjects().isEmpty()) {
-            for (ResultSubmitRequest.TrackingObjectData data : request.getTrackingObjects()) {
-                // 查询是否已存在相同的 objectId
-                Optional<TrackingObject> existingOpt = trackingRepository.findByTaskIdAndObjectId(taskId, data.getObjectId());
-                
-                if (existingOpt.isPresent()) {
-                    // 已存在：更新记录（合并数据）
-                    TrackingObject existing = existingOpt.get();
-                    
-                    // 取最小的 firstFrame 和最大的 lastFrame
-                    existing.setFirstFrame(Math.min(existing.getFirstFrame(), data.getFirstFrame()));
-                    existing.setLastFrame(Math.max(existing.getLastFrame(), data.getLastFrame()));
-                    
-                    // 合并 trajectory（如果新数据有轨迹）
-                    if (data.getTrajectory() != null) {
-                        // trajectory 现在是 List<Map> 格式：[{frame: 100, bbox: [...], confidence: 0.95}, ...]
-                        if (existing.getTrajectory() != null) {
-                            // 现有轨迹存在，需要合并
-                            List<?> existingList = (List<?>) existing.getTrajectory();
-                            List<?> newList = (List<?>) data.getTrajectory();
-                            
-                            List<Object> mergedTrajectory = new ArrayList<>(existingList);
-                            mergedTrajectory.addAll(newList);
-                            existing.setTrajectory(mergedTrajectory);
-                        } else {
-                            // 现有轨迹为空，直接使用新轨迹
-                            existing.setTrajectory(data.getTrajectory());
+    @Override
+    @Transactional
+    public void submitResultStream(Long taskId, InputStream body) {
+        AnalysisTask task = findTaskForUpdate(taskId);
+
+        String status = null;
+        String failureReason = null;
+        Map<String, Object> globalAnalysis = null;
+        long metricCount = 0;
+        long eventCount = 0;
+        long objectCount = 0;
+
+        // 逐字段读取，大数组逐个元素校验并分块写入，请求体不整体反序列化
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new BusinessException(400, "结果数据必须是JSON对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "status" -> status = parser.getValueAsString();
+                    case "failureReason" -> failureReason = parser.getValueAsString();
+                    case "globalAnalysis" -> globalAnalysis = parser.readValueAs(new TypeReference<Map<String, Object>>() {});
+                    case "dynamicMetrics" -> {
+                        try (ResultCopyRepository.CopyWriter<ResultSubmitRequest.DynamicMetricData> writer =
+                                     resultCopyRepository.openMetricWriter(taskId)) {
+                            metricCount += JsonStreamUtils.readArray(parser, ResultSubmitRequest.DynamicMetricData.class,
+                                    field, resultStreamChunkSize, validator, chunk -> chunk.forEach(writer::write));
+                            writer.finish();
                         }
                     }
-                    
-                    trackingRepository.save(existing);
-                    log.debug("更新追踪物体: taskId={}, objectId={}, firstFrame={}, lastFrame={}", 
-                            taskId, data.getObjectId(), existing.getFirstFrame(), existing.getLastFrame());
-                } else {
-                    // 不存在：创建新记录
-                    TrackingObject newObject = TrackingObject.builder()
-                            .taskId(taskId)
-                            .objectId(data.getObjectId())
-                            .category(ObjectCategory.valueOf(data.getCategory()))
-                            .firstFrame(data.getFirstFrame())
-                            .lastFrame(data.getLastFrame())
-                            .trajectory(data.getTrajectory())
-                            .build();
-                    trackingRepository.save(newObject);
-                    log.debug("创建追踪物体: taskId={}, objectId={}, firstFrame={}, lastFrame={}", 
-                            taskId, data.getObjectId(), data.getFirstFrame(), data.getLastFrame());
+                    case "anomalyEvents" -> {
+                        try (ResultCopyRepository.CopyWriter<ResultSubmitRequest.AnomalyEventData> writer =
+                                     resultCopyRepository.openEventWriter(taskId)) {
+                            eventCount += JsonStreamUtils.readArray(parser, ResultSubmitRequest.AnomalyEventData.class,
+                                    field, resultStreamChunkSize, validator, chunk -> chunk.forEach(writer::write));
+                            writer.finish();
+                        }
+                    }
+                    case "trackingObjects" -> objectCount += JsonStreamUtils.readArray(parser,
+                            ResultSubmitRequest.TrackingObjectData.class, field, resultStreamChunkSize, validator,
+                            chunk -> saveTrackingObjects(taskId, chunk));
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new BusinessException(400, "结果数据格式错误: " + e.getMessage(), e);
+        }
+
+        if (status == null || !RESULT_STATUSES.contains(status)) {
+            throw new BusinessException(400, "任务状态无效: " + status);
+        }
+        log.info("结果流式写入完成，taskId: {}, 动态参数: {}, 异常事件: {}, 追踪物体: {}",
+                taskId, metricCount, eventCount, objectCount);
+
+        completeResult(task, TaskStatus.valueOf(status), failureReason, globalAnalysis);
+    }
+
+    @Override
+    @Transactional
+    public ResultChunkResponse submitResultChunk(Long taskId, ResultChunkRequest request) {
+        // 共享锁：分块之间并发写入，结果完成（排他锁）要等进行中的分块提交后才能校验分块，完成后的分块也不会再写入
+        AnalysisTask task = taskRepository.findForShareById(taskId)
+                .orElseThrow(() -> new ResourceNotFoundException("任务", taskId));
+        Integer seq = request.getSeq();
+        if (RESULT_STATUSES.contains(task.getStatus().name())) {
+            // 完成时已校验分块齐全，已登记的序号均小于总分块数；完成前已写入的分块重试时按重复处理，其余一律拒绝
+            if (resultChunkRepository.existsByTaskIdAndSeq(taskId, seq)) {
+                log.info("任务已结束，忽略已提交分块的重试，taskId: {}, seq: {}", taskId, seq);
+                return ResultChunkResponse.builder()
+                        .seq(seq)
+                        .duplicate(true)
+                        .metricCount(0)
+                        .eventCount(0)
+                        .objectCount(0)
+                        .build();
+            }
+            throw new BusinessException(409, "任务已结束，不能追加结果，seq: " + seq);
+        }
+
+        List<ResultSubmitRequest.DynamicMetricData> metrics =
+                Optional.ofNullable(request.getDynamicMetrics()).orElse(List.of());
+        List<ResultSubmitRequest.AnomalyEventData> events =
+                Optional.ofNullable(request.getAnomalyEvents()).orElse(List.of());
+        List<ResultSubmitRequest.TrackingObjectData> objects =
+                Optional.ofNullable(request.getTrackingObjects()).orElse(List.of());
+
+        // 先登记分块序号，重试的分块登记失败时直接返回，不重复写入
+        int inserted = resultChunkRepository.insertIfAbsent(idGenerator.nextId(), taskId, seq,
+                metrics.size(), events.size(), objects.size());
+        if (inserted == 0) {
+            log.info("分块已提交过，忽略重试，taskId: {}, seq: {}", taskId, seq);
+            return ResultChunkResponse.builder()
+                    .seq(seq)
+                    .duplicate(true)
+                    .metricCount(0)
+                    .eventCount(0)
+                    .objectCount(0)
+                    .build();
+        }
+
+        if (!metrics.isEmpty()) {
+            resultCopyRepository.copyMetrics(taskId, metrics);
+        }
+        if (!events.isEmpty()) {
+            resultCopyRepository.copyEvents(taskId, events);
+        }
+        if (!objects.isEmpty()) {
+            saveTrackingObjects(taskId, objects);
+        }
+
+        // 事务提交后推送本分块数据，前端在分析过程中实时追加曲线和事件
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    Map<String, Object> chunkUpdate = Map.of(
+                        "taskId", taskId,
+                        "seq", seq,
+                        "dynamicMetrics", metrics,
+                        "anomalyEvents", events
+                    );
+                    messagingTemplate.convertAndSend("/topic/tasks/" + taskId + "/result-chunks", chunkUpdate);
+                } catch (Exception e) {
+                    log.error("WebSocket消息推送失败（结果分块），taskId: {}, seq: {}", taskId, seq, e);
                 }
             }
+        });
+
+        log.debug("结果分块写入完成，taskId: {}, seq: {}, 动态参数: {}, 异常事件: {}, 追踪物体: {}",
+                taskId, seq, metrics.size(), events.size(), objects.size());
+        return ResultChunkResponse.builder()
+                .seq(seq)
+                .duplicate(false)
+                .metricCount(metrics.size())
+                .eventCount(events.size())
+                .objectCount(objects.size())
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public void finalizeResult(Long taskId, ResultFinalizeRequest request) {
+        // 排他锁：等待进行中的分块写入提交，之后到达的分块看到最终状态被拒绝
+        AnalysisTask task = findTaskForUpdate(taskId);
+        TaskStatus newStatus = TaskStatus.valueOf(request.getStatus());
+
+        // 重试的完成请求直接返回
+        if (task.getStatus() == newStatus) {
+            log.info("任务已处于最终状态，忽略重复的完成请求，taskId: {}, status: {}", taskId, newStatus);
+            return;
+        }
+        if (RESULT_STATUSES.contains(task.getStatus().name())) {
+            throw new BusinessException(409, "任务已结束，当前状态: " + task.getStatus());
         }
 
+        // 校验分块是否全部到达
+        Integer totalChunks = request.getTotalChunks();
+        if (totalChunks != null) {
+            Set<Integer> received = Set.copyOf(resultChunkRepository.findSeqsByTaskId(taskId));
+            List<Integer> missing = new ArrayList<>();
+            for (int seq = 0; seq < totalChunks && missing.size() < 20; seq++) {
+                if (!received.contains(seq)) {
+                    missing.add(seq);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new BusinessException(409, "分块不完整，缺少序号: " + missing);
+            }
+            if (received.size() > totalChunks) {
+                throw new BusinessException(409, "已到达的分块数 " + received.size() + " 超过声明的总数 " + totalChunks);
+            }
+        }
+
+        completeResult(task, newStatus, request.getFailureReason(), request.getGlobalAnalysis());
+    }
+
+    /**
+     * 保存追踪物体（已存在相同 objectId 时合并帧范围和轨迹）
+     * 本次提交内重复的 objectId 先在内存中合并，再按批执行 INSERT ... ON CONFLICT DO UPDATE，每批一次往返
+     */
+    private void saveTrackingObjects(Long taskId, List<ResultSubmitRequest.TrackingObjectData> objects) {
+        // 1. 按 objectId 合并（同一条语句不能更新同一行两次）
+        Map<Integer, Map<String, Object>> merged = new LinkedHashMap<>();
+        for (ResultSubmitRequest.TrackingObjectData data : objects) {
+            Map<String, Object> row = merged.get(data.getObjectId());
+            if (row == null) {
+                row = new HashMap<>();
+                row.put("object_id", data.getObjectId());
+                row.put("category", ObjectCategory.valueOf(data.getCategory()).name());
+                row.put("first_frame", data.getFirstFrame());
+                row.put("last_frame", data.getLastFrame());
+                merged.put(data.getObjectId(), row);
+            } else {
+                row.put("first_frame", Math.min((Integer) row.get("first_frame"), data.getFirstFrame()));
+                row.put("last_frame", Math.max((Integer) row.get("last_frame"), data.getLastFrame()));
+            }
+
+            // 标准格式的轨迹压缩为二进制，其他格式仍按 JSON 保存
+            byte[] compact = TrajectoryCodec.encode(data.getTrajectory());
+            if (compact != null) {
+                byte[] existing = (byte[]) row.get("trajectory_data");
+                row.put("trajectory_data", existing == null ? compact : concatBytes(existing, compact));
+            } else {
+                row.put("trajectory", concatTrajectory(row.get("trajectory"), data.getTrajectory()));
+            }
+        }
+
+        // 2. 分批 upsert，与已有记录的合并在数据库中完成
+        List<Map<String, Object>> rows = new ArrayList<>(merged.values());
+        for (int from = 0; from < rows.size(); from += TRACKING_UPSERT_BATCH_SIZE) {
+            List<Map<String, Object>> batch = rows.subList(from, Math.min(from + TRACKING_UPSERT_BATCH_SIZE, rows.size()));
+            long[] ids = idGenerator.nextIds(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).put("id", ids[i]);
+            }
+            try {
+                trackingRepository.upsertBatch(taskId, objectMapper.writeValueAsString(batch));
+            } catch (JsonProcessingException e) {
+                throw new BusinessException("序列化追踪物体失败: " + e.getMessage(), e);
+            }
+        }
+        log.debug("追踪物体写入完成，taskId: {}, 提交数: {}, 合并后: {}", taskId, objects.size(), rows.size());
+    }
+
+    /**
+     * 拼接两段轨迹（trajectory 为 List<Map> 格式：[{frame: 100, bbox: [...], confidence: 0.95}, ...]）
+     */
+    private Object concatTrajectory(Object existing, Object added) {
+        if (existing == null) {
+            return added;
+        }
+        if (added == null) {
+            return existing;
+        }
+        List<Object> trajectory = new ArrayList<>((List<?>) existing);
+        trajectory.addAll((List<?>) added);
+        return trajectory;
+    }
+
+    /**
+     * 拼接两段压缩轨迹（编码格式支持分段直接拼接）
+     */
+    private byte[] concatBytes(byte[] existing, byte[] added) {
+        byte[] merged = Arrays.copyOf(existing, existing.length + added.length);
+        System.arraycopy(added, 0, merged, existing.length, added.length);
+        return merged;
+    }
+
+    /**
+     * 更新任务最终状态和全局分析结果，并在提交后触发缩略图生成、推送完成状态
+     */
+    private void completeResult(AnalysisTask task, TaskStatus newStatus, String failureReason,
+                                Map<String, Object> globalAnalysis) {
+        Long taskId = task.getId();
+        task.setStatus(newStatus);
+        task.setCompletedAt(LocalDateTime.now());
+
+        if (newStatus == TaskStatus.FAILED) {
+            task.setFailureReason(failureReason);
+        }
+
+        // 保存全局频率分析结果
+        if (globalAnalysis != null) {
+            task.setGlobalAnalysis(globalAnalysis);
+        }
+
+        taskRepository.save(task);
+
         // 任务完成，清除Redis进度缓存
         progressCache.deleteProgress(taskId);
 
+        // 事务提交后在后台一次解码生成全部事件缩略图
+        if (newStatus == TaskStatus.COMPLETED || newStatus == TaskStatus.COMPLETED_TIMEOUT) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    thumbnailService.submit(taskId);
+                }
+            });
+        }
+
         // 通过WebSocket推送任务完成状态更新
         try {
             // 推送到特定任务订阅者
@@ -549,7 +845,7 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
                         .category(o.getCategory().name())
                         .firstFrame(o.getFirstFrame())
                         .lastFrame(o.getLastFrame())
-                        .trajectory(o.getTrajectory())
+                        .trajectory(o.getTrajectoryForOutput())
                         .build())
                 .collect(Collectors.toList());
 
@@ -575,6 +871,17 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
                 .build();
     }
 
+    @Override
+    public String getTaskResultETag(Long taskId) {
+        AnalysisTask task = findTaskById(taskId);
+        if (task.getStatus() != TaskStatus.COMPLETED && task.getStatus() != TaskStatus.COMPLETED_TIMEOUT) {
+            return null;
+        }
+        // 提交结果、重新分析都会更新任务记录，更新时间即可作为结果版本
+        long version = task.getUpdatedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return "\"" + Long.toHexString(taskId) + "-" + Long.toHexString(version) + "\"";
+    }
+
     @Override
     public PageResult<TaskResponse> listTasks(Pageable pageable) {
         Page<AnalysisTask> taskPage = taskRepository.findAll(pageable);
@@ -610,6 +917,9 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
 
         // 删除任务(级联删除所有相关数据)
         taskRepository.delete(task);
+        fileCache.evict(taskId);
+        eventClipService.deleteClips(taskId);
+        thumbnailService.delete(taskId);
         log.info("任务已删除,taskId: {}", taskId);
     }
 
@@ -619,6 +929,18 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
         AnalysisTask task = findTaskById(taskId);
         task.setResultVideoPath(resultVideoPath);
         taskRepository.save(task);
+        fileCache.evict(taskId);
+
+        // 事务提交后在后台生成结果视频的多码率HLS分片
+        if (resultVideoPath != null && !resultVideoPath.isEmpty()) {
+            Path resultFile = Paths.get(toAbsolutePath(resultVideoPath));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    hlsPackager.submit(resultFile);
+                }
+            });
+        }
         log.info("更新任务结果视频路径，taskId: {}, resultVideoPath: {}", taskId, resultVideoPath);
 
         // 清除Redis中的进度缓存，避免前端一直显示"生成结果视频"进度
@@ -642,6 +964,7 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
         AnalysisTask task = findTaskById(taskId);
         task.setPreprocessedVideoPath(preprocessedVideoPath);
         taskRepository.save(task);
+        fileCache.evict(taskId);
         log.info("更新任务预处理视频路径，taskId: {}, preprocessedVideoPath: {}", taskId, preprocessedVideoPath);
 
         // 通过WebSocket推送更新，通知前端重新加载任务信息
@@ -675,6 +998,36 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
         }
     }
 
+    /**
+     * 服务启动时将上次未完成导入的任务标记为失败（导入线程池中的任务不会在重启后恢复）
+     * 导入中的任务引用的是上传文件（表单上传的临时文件或分片上传合并后的文件），事务提交后一并删除
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void failInterruptedIngests() {
+        List<AnalysisTask> tasks = taskRepository.findByStatus(TaskStatus.INGESTING);
+        List<Path> sourceFiles = new ArrayList<>();
+        for (AnalysisTask task : tasks) {
+            task.setStatus(TaskStatus.FAILED);
+            task.setFailureReason("服务重启，视频导入中断，请重新上传");
+            taskRepository.save(task);
+            if (task.getVideoPath() != null && !task.getVideoPath().isEmpty()) {
+                sourceFiles.add(Paths.get(toAbsolutePath(task.getVideoPath())));
+            }
+            log.warn("任务导入因服务重启中断，已标记为失败，taskId: {}", task.getId());
+        }
+
+        if (!sourceFiles.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sourceFiles.forEach(AnalysisTaskServiceImpl.this::deleteQuietly);
+                    log.info("已清理中断导入的上传文件 {} 个", sourceFiles.size());
+                }
+            });
+        }
+    }
+
     // ==================== 私有辅助方法 ====================
 
     private AnalysisTask findTaskById(Long taskId) {
@@ -682,6 +1035,366 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
                 .orElseThrow(() -> new ResourceNotFoundException("任务", taskId));
     }
 
+    /**
+     * 查询任务并加排他锁（结果完成时使用，与分块写入互斥）
+     */
+    private AnalysisTask findTaskForUpdate(Long taskId) {
+        return taskRepository.findForUpdateById(taskId)
+                .orElseThrow(() -> new ResourceNotFoundException("任务", taskId));
+    }
+
+    /**
+     * 创建导入中的任务及任务配置，事务提交后将视频提交到后台导入线程池
+     * 导入完成前视频时长、超时阈值未知，先以0占位，导入完成后回填
+     *
+     * @param request          任务参数（视频文件字段不使用）
+     * @param sourceFile       已完整写入磁盘的上传文件
+     * @param originalFilename 原始文件名
+     * @param contentHash      已计算的内容SHA-256，为null时由导入线程读取文件计算
+     * @param reservation      准入时预留的转码名额，交给导入线程
+     * @return 任务响应
+     */
+    private TaskResponse createIngestingTask(TaskUploadRequest request, Path sourceFile, String originalFilename,
+                                             String contentHash, TranscodeScheduler.Reservation reservation) {
+        // 1. 提前校验超时比例格式
+        String timeoutRatio = Optional.ofNullable(request.getTimeoutRatio()).orElse(defaultTimeoutRatio);
+        calculateTimeoutThreshold(0, timeoutRatio);
+
+        // 2. 创建任务
+        AnalysisTask task = AnalysisTask.builder()
+                .name(Optional.ofNullable(request.getName()).orElse(originalFilename))
+                .originalFilename(originalFilename)
+                .videoPath(toRelativePath(sourceFile))
+                .videoDuration(0)
+                .status(TaskStatus.INGESTING)
+                .timeoutThreshold(0)
+                .isTimeout(false)
+                .build();
+        task = taskRepository.save(task);
+
+        // 3. 创建任务配置（帧率在导入完成后回填）
+        TaskConfig config = TaskConfig.builder()
+                .task(task)
+                .timeoutRatio(timeoutRatio)
+                .enablePreprocessing(Optional.ofNullable(request.getEnablePreprocessing()).orElse(false))
+                .preprocessingStrength(Optional.ofNullable(request.getPreprocessingStrength()).orElse("moderate"))
+                .preprocessingEnhancePool(Optional.ofNullable(request.getPreprocessingEnhancePool()).orElse(true))
+                .enableTrackingMerge(Optional.ofNullable(request.getEnableTrackingMerge()).orElse(false))
+                .trackingMergeStrategy(Optional.ofNullable(request.getTrackingMergeStrategy()).orElse("auto"))
+                .ingestProfile(Optional.ofNullable(request.getIngestProfile()).orElse("standard"))
+                .build();
+        configRepository.save(config);
+
+        // 4. 提交前把导入交给线程池，队列已满时在此拒绝并回滚，不会留下失败的任务；
+        //    导入线程等事务提交后再开始，保证能读到任务记录
+        Long taskId = task.getId();
+        CompletableFuture<Boolean> committed = new CompletableFuture<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                committed.complete(status == STATUS_COMMITTED);
+            }
+        });
+        submitIngest(taskId, sourceFile, originalFilename, contentHash, reservation, committed);
+
+        log.info("任务已创建，等待后台导入，taskId: {}, 文件: {}", taskId, sourceFile);
+
+        // 5. 返回响应（不再自动发送到消息队列，导入完成后需要手动开始分析）
+        return buildTaskResponse(task, config);
+    }
+
+    /**
+     * 提交后台导入（在事务内调用），线程池队列已满时拒绝本次上传（429），由调用方事务回滚
+     * 导入线程等待事务结束，提交后开始导入，回滚时直接退出
+     */
+    private void submitIngest(Long taskId, Path sourceFile, String originalFilename, String contentHash,
+                              TranscodeScheduler.Reservation reservation, CompletableFuture<Boolean> committed) {
+        try {
+            videoIngestExecutor.execute(() -> {
+                try {
+                    if (!committed.join()) {
+                        log.info("任务创建已回滚，取消导入，taskId: {}", taskId);
+                        return;
+                    }
+                    ingestVideo(taskId, sourceFile, originalFilename, contentHash, reservation);
+                } finally {
+                    // 不需要转码或导入失败时归还名额
+                    reservation.release();
+                }
+            });
+            log.info("视频导入已提交到后台线程池，taskId: {}", taskId);
+        } catch (TaskRejectedException e) {
+            log.warn("视频导入线程池已满，拒绝导入，taskId: {}", taskId);
+            throw new TooManyRequestsException("视频导入队列已满，请稍后重试", transcodeScheduler.estimateWaitSeconds());
+        }
+    }
+
+    /**
+     * 准入并预留转码名额，事务回滚时归还（提交后由导入线程负责归还）
+     */
+    private TranscodeScheduler.Reservation reserveTranscode() {
+        TranscodeScheduler.Reservation reservation = transcodeScheduler.reserve();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    reservation.release();
+                }
+            }
+        });
+        return reservation;
+    }
+
+    /**
+     * 后台导入视频（在导入线程池中执行，不占用请求线程和数据库连接）
+     * 相同内容的视频已导入过时直接复用已处理的文件，跳过解析和转码
+     *
+     * @param knownHash 上传时已计算的内容SHA-256，为null时（表单上传或分片哈希状态不可用）读取文件计算
+     */
+    private void ingestVideo(Long taskId, Path sourceFile, String originalFilename, String knownHash,
+                             TranscodeScheduler.Reservation reservation) {
+        log.info("开始后台导入视频，taskId: {}", taskId);
+
+        String contentHash;
+        long fileSize;
+        try {
+            fileSize = Files.size(sourceFile);
+            contentHash = knownHash != null ? knownHash : computeContentHash(taskId, sourceFile);
+        } catch (IOException e) {
+            log.error("读取上传文件失败，taskId: {}", taskId, e);
+            markIngestFailed(taskId, "视频导入失败: " + e.getMessage());
+            deleteQuietly(sourceFile);
+            return;
+        }
+
+        // 同一内容按导入配置分别处理和复用
+        String ingestProfile = configRepository.findByTaskId(taskId)
+                .map(TaskConfig::getIngestProfile)
+                .orElse("standard");
+
+        ProcessVideoResult processResult = null;
+        boolean reusable = blobRepository.findByContentHashAndIngestProfile(contentHash, ingestProfile)
+                .filter(blob -> Files.exists(Paths.get(toAbsolutePath(blob.getVideoPath()))))
+                .isPresent();
+        if (reusable) {
+            log.info("检测到相同内容的视频，复用已处理的文件，taskId: {}, hash: {}", taskId, contentHash);
+        }
+
+        AttachResult attached = null;
+        try {
+            if (!reusable) {
+                processResult = processSavedVideo(taskId, sourceFile, originalFilename, ingestProfile, reservation);
+            }
+            attached = attachVideo(taskId, contentHash, ingestProfile, fileSize, processResult);
+            if (attached.blobMissing()) {
+                // 复用的文件在此期间被最后一个引用删除，改为正常处理
+                log.info("待复用的视频文件已被删除，重新处理上传文件，taskId: {}", taskId);
+                processResult = processSavedVideo(taskId, sourceFile, originalFilename, ingestProfile, reservation);
+                attached = attachVideo(taskId, contentHash, ingestProfile, fileSize, processResult);
+            }
+        } catch (Exception e) {
+            log.error("视频导入失败，taskId: {}", taskId, e);
+            markIngestFailed(taskId, "视频导入失败: " + e.getMessage());
+            return;
+        } finally {
+            // 清理未被引用的导入产物：复用时的上传文件，或并发导入同一内容时多处理出的文件
+            String attachedPath = attached != null ? attached.videoPath() : null;
+            if (processResult == null) {
+                deleteQuietly(sourceFile);
+            } else if (!processResult.videoPath.equals(attachedPath)) {
+                deleteQuietly(Paths.get(toAbsolutePath(processResult.videoPath)));
+            }
+        }
+
+        TaskResponse response = attached.response();
+        if (response == null) {
+            log.warn("导入完成时任务已不存在，已清理视频文件，taskId: {}", taskId);
+            return;
+        }
+
+        progressCache.deleteProgress(taskId);
+        publishTaskStatus(TaskStatusResponse.builder()
+                .taskId(taskId)
+                .status(TaskStatus.PENDING.name())
+                .progress(1.0)
+                .build());
+        try {
+            messagingTemplate.convertAndSend("/topic/tasks/" + taskId + "/update", response);
+        } catch (Exception e) {
+            log.error("WebSocket消息推送失败（视频导入完成），taskId: {}", taskId, e);
+        }
+
+        log.info("视频导入完成，taskId: {}, 路径: {}", taskId, attached.videoPath());
+
+        // 后台生成多码率HLS分片、代理视频和时间轴精灵图（复用已生成的文件时直接返回）
+        Path videoFile = Paths.get(toAbsolutePath(attached.videoPath()));
+        hlsPackager.submit(videoFile);
+        previewGenerator.submit(videoFile);
+    }
+
+    /**
+     * 视频文件与任务关联的结果
+     *
+     * @param response    任务响应，任务已被删除时为null
+     * @param videoPath   任务引用的视频文件路径
+     * @param blobMissing 未处理上传文件且可复用的文件已不存在
+     */
+    private record AttachResult(TaskResponse response, String videoPath, boolean blobMissing) {
+    }
+
+    /**
+     * 在一个短事务中登记（或复用）内容寻址的视频文件并回填任务信息
+     * 并发导入同一内容时唯一约束冲突，重试一次即可复用先提交的文件
+     *
+     * @param processResult 本次处理结果，复用已有文件时为null
+     */
+    private AttachResult attachVideo(Long taskId, String contentHash, String ingestProfile, long fileSize,
+                                     ProcessVideoResult processResult) {
+        try {
+            return transactionTemplate.execute(status -> doAttachVideo(taskId, contentHash, ingestProfile, fileSize, processResult));
+        } catch (DataIntegrityViolationException e) {
+            log.info("相同内容的视频已由其他导入登记，改为复用，taskId: {}", taskId);
+            return transactionTemplate.execute(status -> doAttachVideo(taskId, contentHash, ingestProfile, fileSize, processResult));
+        }
+    }
+
+    private AttachResult doAttachVideo(Long taskId, String contentHash, String ingestProfile, long fileSize,
+                                       ProcessVideoResult processResult) {
+        AnalysisTask task = taskRepository.findById(taskId).orElse(null);
+        if (task == null) {
+            return new AttachResult(null, null, false);
+        }
+
+        VideoBlob blob = blobRepository.findForUpdateByContentHashAndIngestProfile(contentHash, ingestProfile)
+                .orElse(null);
+        if (blob != null && !Files.exists(Paths.get(toAbsolutePath(blob.getVideoPath())))) {
+            log.warn("视频文件已丢失，移除记录，path: {}", blob.getVideoPath());
+            blobRepository.delete(blob);
+            blobRepository.flush();
+            blob = null;
+        }
+
+        if (blob != null) {
+            blob.setRefCount(blob.getRefCount() + 1);
+            blobRepository.save(blob);
+        } else if (processResult != null) {
+            blob = VideoBlob.builder()
+                    .contentHash(contentHash)
+                    .ingestProfile(ingestProfile)
+                    .videoPath(processResult.videoPath)
+                    .fileSize(fileSize)
+                    .videoDuration(processResult.videoInfo.getDuration())
+                    .frameRate(processResult.videoInfo.getFrameRate())
+                    .refCount(1)
+                    .build();
+            blobRepository.saveAndFlush(blob);
+        } else {
+            return new AttachResult(null, null, true);
+        }
+
+        int videoDuration = blob.getVideoDuration();
+        log.info("视频信息 - 时长: {} 秒, 帧率: {} fps, 引用数: {}",
+                videoDuration, blob.getFrameRate(), blob.getRefCount());
+
+        TaskConfig config = configRepository.findByTaskId(taskId).orElse(null);
+        String timeoutRatio = config != null ? config.getTimeoutRatio() : defaultTimeoutRatio;
+
+        task.setVideoPath(blob.getVideoPath());
+        task.setVideoDuration(videoDuration);
+        task.setTimeoutThreshold(calculateTimeoutThreshold(videoDuration, timeoutRatio));
+        task.setStatus(TaskStatus.PENDING);
+        taskRepository.save(task);
+        fileCache.evict(taskId);
+
+        if (config != null) {
+            config.setFrameRate(blob.getFrameRate());
+            configRepository.save(config);
+        }
+        return new AttachResult(buildTaskResponse(task, config), blob.getVideoPath(), false);
+    }
+
+    /**
+     * 计算文件内容的SHA-256（在导入线程中计算，不占用请求线程和数据库连接）
+     * 分片上传在接收时已增量计算，只有表单上传和哈希状态不可用的分片上传需要重新读取文件
+     */
+    private String computeContentHash(Long taskId, Path file) throws IOException {
+        publishIngestProgress(taskId, "校验文件", 0.0);
+        MessageDigest digest = newContentDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            probeCache.evict(file);
+            SeekIndexUtils.delete(file);
+        } catch (IOException e) {
+            log.warn("清理文件失败: {}", file, e);
+        }
+    }
+
+    /**
+     * 将导入失败的任务标记为FAILED
+     */
+    private void markIngestFailed(Long taskId, String reason) {
+        String failureReason = reason != null && reason.length() > 1000 ? reason.substring(0, 1000) : reason;
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findById(taskId).ifPresent(task -> {
+            task.setStatus(TaskStatus.FAILED);
+            task.setFailureReason(failureReason);
+            taskRepository.save(task);
+        }));
+
+        progressCache.deleteProgress(taskId);
+        publishTaskStatus(TaskStatusResponse.builder()
+                .taskId(taskId)
+                .status(TaskStatus.FAILED.name())
+                .failureReason(failureReason)
+                .build());
+    }
+
+    /**
+     * 缓存并推送导入进度
+     */
+    private void publishIngestProgress(Long taskId, String phase, double progress) {
+        TaskStatusResponse statusResponse = TaskStatusResponse.builder()
+                .taskId(taskId)
+                .status(TaskStatus.INGESTING.name())
+                .phase(phase)
+                .progress(progress)
+                .build();
+        progressCache.cacheProgress(taskId, statusResponse);
+        publishTaskStatus(statusResponse);
+    }
+
+    /**
+     * 通过WebSocket推送任务状态（特定任务订阅者和任务列表订阅者）
+     */
+    private void publishTaskStatus(TaskStatusResponse statusResponse) {
+        Long taskId = statusResponse.getTaskId();
+        try {
+            messagingTemplate.convertAndSend("/topic/tasks/" + taskId + "/status", statusResponse);
+            Map<String, Object> listUpdate = Map.of(
+                "taskId", taskId,
+                "status", statusResponse.getStatus(),
+                "progress", Optional.ofNullable(statusResponse.getProgress()).orElse(0.0)
+            );
+            messagingTemplate.convertAndSend("/topic/tasks/updates", listUpdate);
+        } catch (Exception e) {
+            log.error("WebSocket消息推送失败，taskId: {}", taskId, e);
+        }
+    }
+
     private void validateVideoFile(MultipartFile video) {
         if (video.isEmpty()) {
             throw new BusinessException(400, "视频文件不能为空");
@@ -731,77 +1444,124 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
     }
 
     /**
-     * 处理并保存视频文件（包括解析元数据、检查编码、可能的重新编码）
+     * 将上传的视频保存到临时文件
      */
-    private ProcessVideoResult processAndSaveVideo(MultipartFile video) {
-        Path tempFile = null;
-        Path reencodedFile = null;
-
+    private Path saveUploadedVideo(MultipartFile video, String originalFilename) {
         try {
-            // 获取原始文件名
-            String originalFilename = video.getOriginalFilename();
-            if (originalFilename == null || originalFilename.isEmpty()) {
-                originalFilename = "unknown.mp4";
-            }
-
-            // 1. 将上传的视频保存到临时文件
-            String videoStoragePath = getVideoStoragePath();
-            Path storagePath = Paths.get(videoStoragePath);
+            Path storagePath = Paths.get(getVideoStoragePath());
             if (!Files.exists(storagePath)) {
                 Files.createDirectories(storagePath);
             }
 
             // 使用临时文件名
             String tempFilename = "temp_" + System.currentTimeMillis() + "_" + originalFilename;
-            tempFile = storagePath.resolve(tempFilename);
-            Files.copy(video.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Path tempFile = storagePath.resolve(tempFilename);
+            // transferTo 在Tomcat已将上传写入磁盘时直接重命名该文件，避免再复制一遍
+            video.transferTo(tempFile.toFile());
 
             log.info("临时保存视频文件: {}", tempFile);
+            return tempFile;
+        } catch (IOException e) {
+            log.error("视频文件保存失败", e);
+            throw new BusinessException("视频文件处理失败", e);
+        }
+    }
 
-            // 2. 解析视频元数据
+    /**
+     * 处理已保存到磁盘的视频文件（解析元数据、检查编码、可能的重新编码，最终移动到视频存储目录）
+     *
+     * @param taskId           任务ID（用于推送导入进度）
+     * @param tempFile         已完整写入的视频临时文件，处理结束后会被移走或删除
+     * @param originalFilename 原始文件名
+     * @param ingestProfile    导入配置（analysis 配置总是重新编码以丢弃音频、固定关键帧间隔）
+     * @param reservation      准入时预留的转码名额
+     */
+    private ProcessVideoResult processSavedVideo(Long taskId, Path tempFile, String originalFilename,
+                                                 String ingestProfile, TranscodeScheduler.Reservation reservation) {
+        Path reencodedFile = null;
+
+        try {
+            String videoStoragePath = getVideoStoragePath();
+            Path storagePath = Paths.get(videoStoragePath);
+            if (!Files.exists(storagePath)) {
+                Files.createDirectories(storagePath);
+            }
+
+            // 1. 解析视频元数据
+            publishIngestProgress(taskId, "解析视频信息", 0.0);
             String absoluteTempPath = tempFile.toAbsolutePath().toString();
-            VideoUtils.VideoInfo videoInfo = VideoUtils.getVideoInfo(absoluteTempPath);
+            VideoUtils.VideoInfo videoInfo = probeCache.getVideoInfo(tempFile);
 
             log.info("视频元数据解析完成 - 编码: {}, 时长: {} 秒, 帧率: {} fps, 分辨率: {}x{}",
                     videoInfo.getCodec(), videoInfo.getDuration(), videoInfo.getFrameRate(),
                     videoInfo.getWidth(), videoInfo.getHeight());
 
-            // 3. 检查是否需要重新编码
+            // 2. 检查是否需要重新编码或转封装
             String finalFilename;
             Path finalFile;
+            boolean faststartApplied = false;
+            VideoUtils.TranscodeOptions transcodeOptions = ingestConfig.getTranscodeOptions(ingestProfile);
+            boolean needsReencoding = VideoUtils.needsReencoding(videoInfo.getCodec())
+                    || transcodeOptions != VideoUtils.TranscodeOptions.DEFAULT;
+            boolean needsRemux = VideoUtils.needsRemux(videoInfo.getFormat(), originalFilename);
+
+            if (!needsReencoding && needsRemux) {
+                log.info("视频编码格式为 {}，容器格式为 {}，仅需转封装为MP4", videoInfo.getCodec(), videoInfo.getFormat());
+
+                reencodedFile = storagePath.resolve(generateMp4Filename(originalFilename));
+                publishIngestProgress(taskId, "转封装中", 0.1);
+                try {
+                    VideoUtils.remuxToMp4(absoluteTempPath, reencodedFile.toAbsolutePath().toString());
+                } catch (BusinessException e) {
+                    // 个别文件时间戳异常等原因无法直接复制数据包时，退回完整转码
+                    log.warn("视频转封装失败，改为重新编码: {}", e.getMessage());
+                    needsReencoding = true;
+                }
+            }
 
-            if (VideoUtils.needsReencoding(videoInfo.getCodec())) {
-                log.info("视频编码格式为 {}，需要重新编码为H264", videoInfo.getCodec());
+            if (needsReencoding) {
+                log.info("视频编码格式为 {}，导入配置为 {}，需要重新编码为H264", videoInfo.getCodec(), ingestProfile);
 
                 // 生成重新编码后的文件名（强制使用.mp4扩展名）
-                String baseFilename = ustb.hyy.app.backend.util.FilenameUtils.generateUuidFilename(originalFilename);
-                // 确保文件扩展名为.mp4
-                if (!baseFilename.toLowerCase().endsWith(".mp4")) {
-                    int lastDotIndex = baseFilename.lastIndexOf('.');
-                    if (lastDotIndex > 0) {
-                        baseFilename = baseFilename.substring(0, lastDotIndex) + ".mp4";
-                    } else {
-                        baseFilename = baseFilename + ".mp4";
-                    }
-                }
-                finalFilename = baseFilename;
+                finalFilename = generateMp4Filename(originalFilename);
 
                 reencodedFile = storagePath.resolve(finalFilename);
                 String absoluteReencodedPath = reencodedFile.toAbsolutePath().toString();
 
-                // 执行重新编码
-                VideoUtils.reencodeToH264(absoluteTempPath, absoluteReencodedPath);
+                // 经转码调度器排队（短视频优先）后分段并行重新编码
+                // （同时写入faststart，编码进度映射到导入进度的 10%~90%）
+                publishIngestProgress(taskId, "等待转码", 0.1);
+                transcodeScheduler.execute(reservation, taskId, videoInfo.getDuration(), () -> {
+                    publishIngestProgress(taskId, "转码中", 0.1);
+                    VideoUtils.reencodeToH264Parallel(absoluteTempPath, absoluteReencodedPath,
+                            ingestConfig.getEffectiveTranscodeSegments(), videoTranscodePool, transcodeOptions,
+                            progress -> publishIngestProgress(taskId, "转码中", 0.1 + progress * 0.8));
+                });
+                faststartApplied = true;
 
                 // 删除临时文件
-                Files.deleteIfExists(tempFile);
+                deleteQuietly(tempFile);
                 tempFile = null;
 
                 finalFile = reencodedFile;
 
                 // 重新获取视频信息（编码后的视频信息）
-                videoInfo = VideoUtils.getVideoInfo(absoluteReencodedPath);
+                videoInfo = probeCache.getVideoInfo(reencodedFile);
 
                 log.info("视频重新编码完成，新编码: {}", videoInfo.getCodec());
+            } else if (needsRemux) {
+                // 转封装已完成（输出已包含faststart）
+                deleteQuietly(tempFile);
+                tempFile = null;
+
+                finalFile = reencodedFile;
+                finalFilename = finalFile.getFileName().toString();
+
+                // 重新获取视频信息（转封装后的视频信息）
+                videoInfo = probeCache.getVideoInfo(finalFile);
+                faststartApplied = true;
+
+                log.info("视频转封装完成，容器格式: {}", videoInfo.getFormat());
             } else {
                 log.info("视频编码格式为 {}，无需重新编码", videoInfo.getCodec());
 
@@ -809,26 +1569,34 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
                 finalFilename = ustb.hyy.app.backend.util.FilenameUtils.generateUuidFilename(originalFilename);
                 finalFile = storagePath.resolve(finalFilename);
 
-                // 重命名临时文件为正式文件名
+                // 重命名临时文件为正式文件名（探测结果随文件迁移）
                 Files.move(tempFile, finalFile, StandardCopyOption.REPLACE_EXISTING);
+                probeCache.rename(tempFile, finalFile);
                 tempFile = null;
             }
 
-            // 3.5 应用 faststart 优化（使视频支持浏览器流式播放）
-            String absoluteFinalPath = finalFile.toAbsolutePath().toString();
+            // 2.5 应用 faststart 优化（使视频支持浏览器流式播放，转码时已写入则跳过）
+            if (!faststartApplied) {
+                String absoluteFinalPath = finalFile.toAbsolutePath().toString();
+                publishIngestProgress(taskId, "faststart优化", 0.9);
+                try {
+                    VideoUtils.applyFaststart(absoluteFinalPath);
+                    log.info("faststart 优化已应用到原始视频");
+                } catch (Exception e) {
+                    // faststart 失败不应阻止视频上传流程，仅记录警告
+                    log.warn("faststart 优化失败，视频可能无法在浏览器中快速加载: {}", e.getMessage());
+                }
+            }
+
+            // 2.6 建立关键帧定位索引（sidecar 文件），失败时在首次按帧访问时重新建立
             try {
-                VideoUtils.applyFaststart(absoluteFinalPath);
-                log.info("faststart 优化已应用到原始视频");
+                SeekIndexUtils.write(finalFile, VideoUtils.buildKeyframeIndex(finalFile.toAbsolutePath().toString()));
             } catch (Exception e) {
-                // faststart 失败不应阻止视频上传流程，仅记录警告
-                log.warn("faststart 优化失败，视频可能无法在浏览器中快速加载: {}", e.getMessage());
+                log.warn("建立视频定位索引失败: {}", e.getMessage());
             }
 
-            // 4. 返回相对路径
-            Path absolutePath = finalFile.toAbsolutePath().normalize();
-            Path codesDir = getCodesDirectory();
-            Path relativePath = codesDir.relativize(absolutePath);
-            String relativePathStr = relativePath.toString().replace("\\", "/");
+            // 3. 返回相对路径
+            String relativePathStr = toRelativePath(finalFile);
 
             log.info("视频处理完成，原始文件名: {}, 保存文件名: {}, 相对路径: {}",
                     originalFilename, finalFilename, relativePathStr);
@@ -840,13 +1608,9 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
             throw new BusinessException("视频文件处理失败", e);
         } finally {
             // 清理可能残留的临时文件
-            try {
-                if (tempFile != null && Files.exists(tempFile)) {
-                    Files.deleteIfExists(tempFile);
-                    log.debug("已清理临时文件: {}", tempFile);
-                }
-            } catch (IOException e) {
-                log.warn("清理临时文件失败: {}", tempFile, e);
+            if (tempFile != null && Files.exists(tempFile)) {
+                deleteQuietly(tempFile);
+                log.debug("已清理临时文件: {}", tempFile);
             }
         }
     }
@@ -922,6 +1686,30 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
         return currentDir;
     }
     
+    /**
+     * 生成MP4扩展名的存储文件名（转码/转封装后统一使用mp4容器）
+     */
+    private String generateMp4Filename(String originalFilename) {
+        String baseFilename = ustb.hyy.app.backend.util.FilenameUtils.generateUuidFilename(originalFilename);
+        if (!baseFilename.toLowerCase().endsWith(".mp4")) {
+            int lastDotIndex = baseFilename.lastIndexOf('.');
+            if (lastDotIndex > 0) {
+                baseFilename = baseFilename.substring(0, lastDotIndex) + ".mp4";
+            } else {
+                baseFilename = baseFilename + ".mp4";
+            }
+        }
+        return baseFilename;
+    }
+
+    /**
+     * 将文件路径转换为相对于 codes/ 目录的路径（数据库中存储的格式）
+     */
+    private String toRelativePath(Path file) {
+        Path absolutePath = file.toAbsolutePath().normalize();
+        return getCodesDirectory().relativize(absolutePath).toString().replace("\\", "/");
+    }
+
     /**
      * 将相对路径转换为绝对路径
      * @param relativePath 相对于 codes/ 目录的路径
@@ -954,10 +1742,14 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
      * @param deleteOriginalVideo 是否删除原始视频（true: 删除任务时删除原始视频，false: 重新分析时不删除原始视频）
      */
     private void deleteRelatedVideoFiles(AnalysisTask task, boolean deleteOriginalVideo) {
-        // 删除原始视频（仅在删除任务时）
-        if (deleteOriginalVideo && task.getVideoPath() != null) {
+        // 删除原始视频（仅在删除任务时，且该文件已没有其他任务引用）
+        if (deleteOriginalVideo && task.getVideoPath() != null && releaseVideoBlob(task)) {
             try {
                 Path videoPath = Paths.get(toAbsolutePath(task.getVideoPath()));
+                probeCache.evict(videoPath);
+                SeekIndexUtils.delete(videoPath);
+                hlsPackager.delete(videoPath);
+                previewGenerator.delete(videoPath);
                 if (Files.deleteIfExists(videoPath)) {
                     log.info("成功删除原始视频文件，taskId: {}, path: {}", task.getId(), task.getVideoPath());
                 } else {
@@ -974,6 +1766,8 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
         if (task.getPreprocessedVideoPath() != null) {
             try {
                 Path preprocessedPath = Paths.get(toAbsolutePath(task.getPreprocessedVideoPath()));
+                probeCache.evict(preprocessedPath);
+                SeekIndexUtils.delete(preprocessedPath);
                 if (Files.deleteIfExists(preprocessedPath)) {
                     log.info("成功删除预处理视频文件，taskId: {}, path: {}", task.getId(), task.getPreprocessedVideoPath());
                 } else {
@@ -990,6 +1784,9 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
         if (task.getResultVideoPath() != null) {
             try {
                 Path resultPath = Paths.get(toAbsolutePath(task.getResultVideoPath()));
+                probeCache.evict(resultPath);
+                SeekIndexUtils.delete(resultPath);
+                hlsPackager.delete(resultPath);
                 if (Files.deleteIfExists(resultPath)) {
                     log.info("成功删除结果视频文件，taskId: {}, path: {}", task.getId(), task.getResultVideoPath());
                 } else {
@@ -1003,6 +1800,27 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
         }
     }
 
+    /**
+     * 释放任务对原始视频文件的引用
+     *
+     * @return 文件已无其他任务引用（或不在去重存储中），可以删除
+     */
+    private boolean releaseVideoBlob(AnalysisTask task) {
+        VideoBlob blob = blobRepository.findForUpdateByVideoPath(task.getVideoPath()).orElse(null);
+        if (blob == null) {
+            return true;
+        }
+        if (blob.getRefCount() > 1) {
+            blob.setRefCount(blob.getRefCount() - 1);
+            blobRepository.save(blob);
+            log.info("原始视频仍被其他任务引用，保留文件，taskId: {}, path: {}, 剩余引用: {}",
+                    task.getId(), task.getVideoPath(), blob.getRefCount());
+            return false;
+        }
+        blobRepository.delete(blob);
+        return true;
+    }
+
     private TaskResponse buildTaskResponse(AnalysisTask task, TaskConfig config) {
         TaskResponse.TaskConfigData configData = null;
         if (config != null) {
@@ -1015,6 +1833,7 @@ public class AnalysisTaskServiceImpl implements AnalysisTaskService {
                     .preprocessingEnhancePool(config.getPreprocessingEnhancePool())
                     .enableTrackingMerge(config.getEnableTrackingMerge())
                     .trackingMergeStrategy(config.getTrackingMergeStrategy())
+                    .ingestProfile(config.getIngestProfile())
                     .build();
         }
 
@@ -0,0 +1,474 @@
+package ustb.hyy.app.backend.service.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.cache.ChunkUploadCache;
+import ustb.hyy.app.backend.common.exception.BusinessException;
+import ustb.hyy.app.backend.common.exception.ResourceNotFoundException;
+import ustb.hyy.app.backend.common.util.ResumableSha256;
+import ustb.hyy.app.backend.dto.request.ChunkUploadInitRequest;
+import ustb.hyy.app.backend.dto.response.ChunkUploadResponse;
+import ustb.hyy.app.backend.service.ChunkUploadService;
+import ustb.hyy.app.backend.service.TranscodeScheduler;
+
+/**
+ * 分片上传Service实现
+ *
+ * @author 侯阳洋
+ * @since 2025-10-20
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkUploadServiceImpl implements ChunkUploadService {
+
+    /**
+     * 单次 transferFrom 的最大字节数
+     */
+    private static final long TRANSFER_BLOCK_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * 补算哈希时的读取缓冲区大小
+     */
+    private static final int HASH_CATCH_UP_BUFFER_SIZE = 1024 * 1024;
+
+    private static final String PART_FILE_SUFFIX = ".part";
+
+    /**
+     * 认领后的上传文件后缀（不再是分片文件，不会被清理）
+     */
+    private static final String COMPLETED_FILE_SUFFIX = ".uploaded";
+
+    /**
+     * 会话不存在的分片文件的保留时间（覆盖初始化时先创建文件后保存会话的间隔）
+     */
+    private static final long ORPHAN_GRACE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final ChunkUploadCache uploadCache;
+    private final TranscodeScheduler transcodeScheduler;
+
+    @Value("${app.storage.base-path}")
+    private String storageBasePath;
+
+    @Value("${app.storage.temp-subdir}")
+    private String tempSubdir;
+
+    @Override
+    public ChunkUploadResponse initUpload(ChunkUploadInitRequest request) {
+        String filename = request.getFilename();
+        if (!isValidVideoFormat(filename)) {
+            throw new BusinessException(1001, "不支持的视频格式，仅支持mp4/avi/mov/mkv");
+        }
+
+        // 转码队列已满时在上传开始前拒绝，避免客户端传完整个文件后才收到429
+        transcodeScheduler.checkAdmission();
+
+        String uploadId = UUID.randomUUID().toString();
+        try {
+            Files.createDirectories(getUploadDirectory());
+            Files.createFile(getPartFile(uploadId));
+        } catch (IOException e) {
+            log.error("创建分片上传文件失败，uploadId: {}", uploadId, e);
+            throw new BusinessException("创建分片上传会话失败", e);
+        }
+
+        uploadCache.saveSession(new ChunkUploadCache.UploadSession(uploadId, request, System.currentTimeMillis(),
+                new ResumableSha256().exportState()));
+        log.info("分片上传会话已创建，uploadId: {}, 文件名: {}, 大小: {} 字节", uploadId, filename, request.getTotalSize());
+
+        return buildResponse(uploadId, request, 0L);
+    }
+
+    @Override
+    public ChunkUploadResponse getUploadStatus(String uploadId) {
+        ChunkUploadCache.UploadSession session = findSession(uploadId);
+        return buildResponse(uploadId, session.getRequest(), getReceivedSize(uploadId));
+    }
+
+    @Override
+    public ChunkUploadResponse appendChunk(String uploadId, long offset, InputStream data) {
+        ChunkUploadCache.UploadSession session = findSession(uploadId);
+        long totalSize = session.getRequest().getTotalSize();
+        Path partFile = getPartFile(uploadId);
+
+        if (offset < 0 || offset > totalSize) {
+            throw new BusinessException(400, "分片偏移量超出文件范围: " + offset);
+        }
+
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                throw new BusinessException(409, "该上传正在写入其他分片，请稍后重试");
+            }
+
+            try (lock) {
+                if (uploadCache.isCompleting(uploadId)) {
+                    throw new BusinessException(409, "该上传正在完成，不能继续写入分片");
+                }
+                long received = channel.size();
+                if (offset > received) {
+                    throw new BusinessException(409,
+                            String.format("分片偏移量不连续，已接收 %d 字节，请求偏移量 %d", received, offset));
+                }
+                if (offset < received) {
+                    // 客户端重传了部分已接收的数据（例如上次响应丢失），以本次数据为准
+                    log.info("分片重传，截断已接收数据，uploadId: {}, 已接收: {}, 新偏移量: {}", uploadId, received, offset);
+                    channel.truncate(offset);
+                }
+
+                // 持有文件锁后重新读取会话，拿到上一个分片保存的哈希状态
+                ChunkUploadCache.UploadSession current = uploadCache.getSession(uploadId);
+                if (current == null) {
+                    current = session;
+                }
+                ResumableSha256 hasher = resumeHash(uploadId, current.getHashState(), channel, offset);
+
+                // 直接从请求体追加写入最终文件，不经过Tomcat临时文件，写入的同时计算哈希
+                ReadableByteChannel source = Channels.newChannel(hasher != null ? new HashingInputStream(data, hasher) : data);
+                long position = offset;
+                while (position < totalSize) {
+                    long transferred = channel.transferFrom(source, position,
+                            Math.min(TRANSFER_BLOCK_SIZE, totalSize - position));
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+
+                if (position >= totalSize && data.read() != -1) {
+                    channel.truncate(offset);
+                    throw new BusinessException(400, "分片数据超出声明的文件大小");
+                }
+
+                // 保存哈希状态并刷新会话过期时间
+                current.setHashState(hasher != null ? hasher.exportState() : null);
+                uploadCache.saveSession(current);
+                log.debug("分片已写入，uploadId: {}, 偏移量: {}, 长度: {}, 已接收: {}/{}",
+                        uploadId, offset, position - offset, position, totalSize);
+
+                return buildResponse(uploadId, session.getRequest(), position);
+            }
+        } catch (NoSuchFileException e) {
+            // 分片文件已被认领改名
+            throw new BusinessException(409, "该上传已完成，不能继续写入分片");
+        } catch (IOException e) {
+            // 连接中断时已写入的数据保留在文件中，客户端查询状态后从新的偏移量继续即可
+            log.warn("分片写入中断，uploadId: {}, 偏移量: {}, 原因: {}", uploadId, offset, e.getMessage());
+            throw new BusinessException("分片写入失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public CompletedUpload claimCompletedUpload(String uploadId) {
+        ChunkUploadCache.UploadSession session = findSession(uploadId);
+        if (!uploadCache.markCompleting(uploadId)) {
+            throw new BusinessException(409, "该上传正在完成，请勿重复提交");
+        }
+
+        Path partFile = getPartFile(uploadId);
+        Path completedFile = getCompletedFile(uploadId);
+        String contentHash;
+        try {
+            // 持有文件锁确认没有正在写入的分片；之后的分片请求会看到完成标记而被拒绝
+            try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+                FileLock lock = tryLock(channel);
+                if (lock == null) {
+                    throw new BusinessException(409, "该上传正在写入分片，请稍后重试");
+                }
+                try (lock) {
+                    long received = channel.size();
+                    long totalSize = session.getRequest().getTotalSize();
+                    if (received != totalSize) {
+                        throw new BusinessException(409,
+                                String.format("上传尚未完成，已接收 %d / %d 字节", received, totalSize));
+                    }
+                    ChunkUploadCache.UploadSession current = uploadCache.getSession(uploadId);
+                    contentHash = finishHash(uploadId, current != null ? current.getHashState() : null, received);
+                }
+            }
+
+            // 改名后分片文件清理不会再删除该文件
+            Files.move(partFile, completedFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            uploadCache.clearCompleting(uploadId);
+            log.error("认领分片上传文件失败，uploadId: {}", uploadId, e);
+            throw new BusinessException("读取上传文件失败", e);
+        } catch (RuntimeException e) {
+            uploadCache.clearCompleting(uploadId);
+            throw e;
+        }
+
+        log.info("分片上传已认领，uploadId: {}", uploadId);
+        return new CompletedUpload(completedFile, session.getRequest(), contentHash);
+    }
+
+    @Override
+    public void removeUpload(String uploadId) {
+        uploadCache.deleteSession(uploadId);
+        uploadCache.clearCompleting(uploadId);
+    }
+
+    @Override
+    public void releaseUpload(String uploadId) {
+        Path completedFile = getCompletedFile(uploadId);
+        try {
+            if (Files.exists(completedFile)) {
+                Files.move(completedFile, getPartFile(uploadId), StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            log.error("恢复分片上传文件失败，uploadId: {}", uploadId, e);
+        }
+        uploadCache.clearCompleting(uploadId);
+        log.info("分片上传认领已释放，uploadId: {}", uploadId);
+    }
+
+    @Override
+    public void abortUpload(String uploadId) {
+        findSession(uploadId);
+        if (uploadCache.isCompleting(uploadId)) {
+            throw new BusinessException(409, "该上传正在完成，不能取消");
+        }
+        try {
+            Files.deleteIfExists(getPartFile(uploadId));
+        } catch (IOException e) {
+            log.warn("删除分片上传文件失败，uploadId: {}", uploadId, e);
+        }
+        uploadCache.deleteSession(uploadId);
+        log.info("分片上传已取消，uploadId: {}", uploadId);
+    }
+
+    /**
+     * 定期清理已放弃的分片文件
+     * 会话已不存在且文件超过宽限期未更新，或文件超过会话过期时间未更新时删除；
+     * 每个分片都会刷新会话过期时间，因此仍在上传的文件不会被删除
+     */
+    @Scheduled(initialDelayString = "${app.upload.cleanup-interval-ms:3600000}",
+            fixedDelayString = "${app.upload.cleanup-interval-ms:3600000}")
+    public void cleanupAbandonedUploads() {
+        Path uploadDirectory = getUploadDirectory();
+        if (!Files.isDirectory(uploadDirectory)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long sessionExpireMillis = TimeUnit.HOURS.toMillis(ChunkUploadCache.SESSION_EXPIRE_HOURS);
+        int deleted = 0;
+        try (DirectoryStream<Path> partFiles = Files.newDirectoryStream(uploadDirectory, "*" + PART_FILE_SUFFIX)) {
+            for (Path partFile : partFiles) {
+                String filename = partFile.getFileName().toString();
+                String uploadId = filename.substring(0, filename.length() - PART_FILE_SUFFIX.length());
+                try {
+                    long idleMillis = now - Files.getLastModifiedTime(partFile).toMillis();
+                    boolean abandoned = idleMillis > sessionExpireMillis
+                            || (idleMillis > ORPHAN_GRACE_MILLIS && !uploadCache.sessionExists(uploadId));
+                    if (abandoned && Files.deleteIfExists(partFile)) {
+                        deleted++;
+                        log.info("已删除放弃的分片上传文件，uploadId: {}, 未更新时长: {} 分钟",
+                                uploadId, TimeUnit.MILLISECONDS.toMinutes(idleMillis));
+                    }
+                } catch (NoSuchFileException e) {
+                    // 清理期间上传已完成或取消
+                } catch (IOException e) {
+                    log.warn("清理分片上传文件失败: {}", partFile, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("扫描分片上传目录失败: {}", uploadDirectory, e);
+        } catch (Exception e) {
+            // Redis 不可用时无法判断会话是否存在，跳过本次清理
+            log.warn("查询上传会话失败，跳过本次分片文件清理: {}", e.getMessage());
+        }
+
+        if (deleted > 0) {
+            log.info("分片上传文件清理完成，删除 {} 个", deleted);
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private ChunkUploadCache.UploadSession findSession(String uploadId) {
+        ChunkUploadCache.UploadSession session = uploadCache.getSession(uploadId);
+        if (session == null) {
+            throw new ResourceNotFoundException("上传会话", uploadId);
+        }
+        return session;
+    }
+
+    /**
+     * 恢复哈希状态并补算状态之后、本次偏移量之前的数据（上次分片中断或保存状态失败时状态会落后于文件）
+     * 状态缺失、无效或超过本次偏移量（重传截断了已计算的数据）时返回null，完成后由导入线程重新读取文件计算
+     */
+    private ResumableSha256 resumeHash(String uploadId, byte[] state, FileChannel channel, long offset) throws IOException {
+        if (offset == 0) {
+            return new ResumableSha256();
+        }
+        if (state == null) {
+            return null;
+        }
+
+        ResumableSha256 hasher;
+        try {
+            hasher = ResumableSha256.restore(state);
+        } catch (IllegalArgumentException e) {
+            log.warn("上传会话的哈希状态无效，完成后重新计算，uploadId: {}", uploadId);
+            return null;
+        }
+        if (hasher.length() > offset) {
+            log.info("分片重传截断了已计算哈希的数据，完成后重新计算，uploadId: {}", uploadId);
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_CATCH_UP_BUFFER_SIZE);
+        while (hasher.length() < offset) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), offset - hasher.length()));
+            int read = channel.read(buffer, hasher.length());
+            if (read <= 0) {
+                return null;
+            }
+            hasher.update(buffer.array(), 0, read);
+        }
+        return hasher;
+    }
+
+    /**
+     * 由哈希状态得到完整文件的SHA-256，状态不完整时返回null
+     */
+    private String finishHash(String uploadId, byte[] state, long totalSize) {
+        if (state == null) {
+            return null;
+        }
+        try {
+            ResumableSha256 hasher = ResumableSha256.restore(state);
+            if (hasher.length() != totalSize) {
+                log.info("上传会话的哈希状态不完整，导入时重新计算，uploadId: {}", uploadId);
+                return null;
+            }
+            return HexFormat.of().formatHex(hasher.digest());
+        } catch (IllegalArgumentException e) {
+            log.warn("上传会话的哈希状态无效，导入时重新计算，uploadId: {}", uploadId);
+            return null;
+        }
+    }
+
+    private FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // 同一JVM内其他线程正在写入同一上传
+            return null;
+        }
+    }
+
+    private long getReceivedSize(String uploadId) {
+        try {
+            Path partFile = getPartFile(uploadId);
+            return Files.exists(partFile) ? Files.size(partFile) : 0L;
+        } catch (IOException e) {
+            log.error("读取分片上传文件大小失败，uploadId: {}", uploadId, e);
+            throw new BusinessException("读取上传状态失败", e);
+        }
+    }
+
+    private ChunkUploadResponse buildResponse(String uploadId, ChunkUploadInitRequest request, long receivedSize) {
+        return ChunkUploadResponse.builder()
+                .uploadId(uploadId)
+                .filename(request.getFilename())
+                .totalSize(request.getTotalSize())
+                .receivedSize(receivedSize)
+                .completed(receivedSize == request.getTotalSize())
+                .build();
+    }
+
+    private boolean isValidVideoFormat(String filename) {
+        String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
+        return Arrays.asList("mp4", "avi", "mov", "mkv").contains(extension);
+    }
+
+    /**
+     * 分片文件存放目录（与最终视频目录位于同一存储下，完成后可直接重命名）
+     */
+    private Path getUploadDirectory() {
+        return getCodesDirectory().resolve(storageBasePath).resolve(tempSubdir).resolve("uploads").toAbsolutePath();
+    }
+
+    private Path getPartFile(String uploadId) {
+        // uploadId 来自路径参数，只接受UUID格式，防止路径穿越
+        try {
+            UUID.fromString(uploadId);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException("上传会话", uploadId);
+        }
+        return getUploadDirectory().resolve(uploadId + PART_FILE_SUFFIX);
+    }
+
+    private Path getCompletedFile(String uploadId) {
+        return getPartFile(uploadId).resolveSibling(uploadId + COMPLETED_FILE_SUFFIX);
+    }
+
+    /**
+     * 获取 codes/ 目录的绝对路径
+     */
+    private Path getCodesDirectory() {
+        Path currentDir = Paths.get("").toAbsolutePath();
+        if ("backend".equals(currentDir.getFileName().toString())) {
+            return currentDir.getParent();
+        }
+        return currentDir;
+    }
+
+    /**
+     * 读取时同步计算哈希的输入流
+     */
+    private static class HashingInputStream extends FilterInputStream {
+
+        private final ResumableSha256 hasher;
+
+        HashingInputStream(InputStream in, ResumableSha256 hasher) {
+            super(in);
+            this.hasher = hasher;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                hasher.update(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                hasher.update(b, off, read);
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package ustb.hyy.app.backend.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.common.exception.BusinessException;
+import ustb.hyy.app.backend.common.exception.ResourceNotFoundException;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+import ustb.hyy.app.backend.domain.entity.AnomalyEvent;
+import ustb.hyy.app.backend.domain.enums.EventType;
+import ustb.hyy.app.backend.repository.AnomalyEventRepository;
+import ustb.hyy.app.backend.service.EventClipService;
+import ustb.hyy.app.backend.service.VideoService;
+
+/**
+ * 异常事件片段导出Service实现
+ * 起始位置对齐到留白起点之前最近的关键帧，片段只做包复制，几秒内即可完成；
+ * 片段文件名包含视频修改时间，视频被替换后自动生成新片段
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventClipServiceImpl implements EventClipService {
+
+    /**
+     * 事件前后留白上限（秒）
+     */
+    private static final double MAX_PADDING = 30.0;
+
+    private final AnomalyEventRepository eventRepository;
+    private final VideoService videoService;
+
+    /**
+     * 正在生成的片段，同一片段并发请求时只生成一次
+     */
+    private final ConcurrentHashMap<Path, Object> generating = new ConcurrentHashMap<>();
+
+    @Value("${app.storage.base-path}")
+    private String storageBasePath;
+
+    @Value("${app.storage.clips-subdir:clips}")
+    private String clipsSubdir;
+
+    @Override
+    public Path getEventClip(Long taskId, Long eventId, String type, double padding) {
+        validatePadding(padding);
+        AnomalyEvent event = eventRepository.findById(eventId)
+                .filter(e -> taskId.equals(e.getTaskId()))
+                .orElseThrow(() -> new ResourceNotFoundException("异常事件", eventId));
+        return getOrCreateClip(taskId, type, event, padding);
+    }
+
+    @Override
+    public List<EventClip> getEventClips(Long taskId, String eventType, String type, double padding) {
+        validatePadding(padding);
+        EventType parsedType;
+        try {
+            parsedType = EventType.valueOf(eventType.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(400, "不支持的事件类型：" + eventType);
+        }
+
+        List<AnomalyEvent> events = eventRepository.findByTaskIdAndEventTypeOrderByStartFrameAsc(taskId, parsedType);
+        if (events.isEmpty()) {
+            throw new ResourceNotFoundException("任务中没有该类型的异常事件：" + parsedType.name());
+        }
+
+        List<EventClip> clips = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            AnomalyEvent event = events.get(i);
+            String name = String.format("%s_%03d_%d-%d.mp4", parsedType.name(), i + 1,
+                    event.getStartFrame(), getEndFrame(event));
+            clips.add(new EventClip(name, getOrCreateClip(taskId, type, event, padding)));
+        }
+        return clips;
+    }
+
+    @Override
+    public void writeZip(List<EventClip> clips, OutputStream output) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(output);
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        for (EventClip clip : clips) {
+            zip.putNextEntry(new ZipEntry(clip.name()));
+            Files.copy(clip.file(), zip);
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    @Override
+    public void deleteClips(Long taskId) {
+        Path dir = getClipsRoot().resolve(String.valueOf(taskId));
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+            log.info("已删除任务事件片段缓存，taskId: {}", taskId);
+        } catch (IOException e) {
+            log.warn("删除任务事件片段缓存失败，taskId: {}", taskId, e);
+        }
+    }
+
+    private Path getOrCreateClip(Long taskId, String type, AnomalyEvent event, double padding) {
+        VideoService.VideoMetadata metadata = videoService.getVideoMetadata(taskId, type);
+        String filename = String.format("%s-%s-%d-%d.mp4", type.toLowerCase(Locale.ROOT),
+                Long.toHexString(metadata.lastModified()), event.getId(), Math.round(padding * 1000));
+        Path clip = getClipsRoot().resolve(String.valueOf(taskId)).resolve(filename);
+        if (Files.exists(clip)) {
+            return clip;
+        }
+
+        Object lock = generating.computeIfAbsent(clip, key -> new Object());
+        try {
+            synchronized (lock) {
+                if (!Files.exists(clip)) {
+                    createClip(taskId, type, event, padding, clip);
+                }
+            }
+        } finally {
+            generating.remove(clip, lock);
+        }
+        return clip;
+    }
+
+    private void createClip(Long taskId, String type, AnomalyEvent event, double padding, Path clip) {
+        VideoUtils.KeyframeIndex index = videoService.getKeyframeIndex(taskId, type);
+        Path video;
+        try {
+            video = videoService.getVideoResource(taskId, type).getFile().toPath();
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("视频文件不存在");
+        }
+
+        long paddingUs = Math.round(padding * 1_000_000);
+        long start = index.keyframeBefore(Math.max(0, index.frameTimestamp(event.getStartFrame()) - paddingUs));
+        long end = index.frameTimestamp(getEndFrame(event) + 1L) + paddingUs;
+
+        Path tempFile = clip.resolveSibling(".tmp-" + UUID.randomUUID() + ".mp4");
+        try {
+            Files.createDirectories(clip.getParent());
+            VideoUtils.cutClip(video.toString(), tempFile.toString(), start, end);
+            Files.move(tempFile, clip, StandardCopyOption.ATOMIC_MOVE);
+            log.info("事件片段已生成，taskId: {}, eventId: {}, 文件: {}", taskId, event.getId(), clip);
+        } catch (IOException e) {
+            log.error("保存事件片段失败，taskId: {}, eventId: {}", taskId, event.getId(), e);
+            throw new BusinessException("保存事件片段失败", e);
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("清理临时片段失败: {}", tempFile, e);
+            }
+        }
+    }
+
+    private int getEndFrame(AnomalyEvent event) {
+        return event.getEndFrame() != null ? event.getEndFrame() : event.getStartFrame();
+    }
+
+    private void validatePadding(double padding) {
+        if (padding < 0 || padding > MAX_PADDING) {
+            throw new BusinessException(400, "片段留白需在0~" + (int) MAX_PADDING + "秒之间");
+        }
+    }
+
+    private Path getClipsRoot() {
+        // 与视频存储一致，相对路径基于 codes/ 目录
+        Path currentDir = Paths.get("").toAbsolutePath();
+        Path codesDir = "backend".equals(currentDir.getFileName().toString()) ? currentDir.getParent() : currentDir;
+        return codesDir.resolve(storageBasePath).resolve(clipsSubdir).normalize();
+    }
+}
@@ -0,0 +1,71 @@
+package ustb.hyy.app.backend.service.impl;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import ustb.hyy.app.backend.common.util.DerivedArtifactStore;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+import ustb.hyy.app.backend.config.HlsConfig;
+import ustb.hyy.app.backend.service.HlsPackager;
+
+/**
+ * HLS打包Service实现
+ * 打包先写入临时目录，完成后整体重命名为打包目录，读取方不会看到未完成的分片
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Service
+@RequiredArgsConstructor
+public class HlsPackagerImpl implements HlsPackager {
+
+    private final HlsConfig hlsConfig;
+    private final ThreadPoolTaskExecutor hlsPackagerExecutor;
+
+    @Value("${app.storage.base-path}")
+    private String storageBasePath;
+
+    @Value("${app.storage.hls-subdir:hls}")
+    private String hlsSubdir;
+
+    private DerivedArtifactStore store;
+
+    @PostConstruct
+    void init() {
+        // 与视频存储一致，相对路径基于 codes/ 目录
+        Path currentDir = Paths.get("").toAbsolutePath();
+        Path codesDir = "backend".equals(currentDir.getFileName().toString()) ? currentDir.getParent() : currentDir;
+        store = new DerivedArtifactStore("HLS打包", codesDir.resolve(storageBasePath).resolve(hlsSubdir).normalize(),
+                hlsPackagerExecutor);
+    }
+
+    @Override
+    public void submit(Path video) {
+        if (!Boolean.TRUE.equals(hlsConfig.getEnabled())) {
+            return;
+        }
+        store.submit(video, (source, tempDir, key) -> VideoUtils.packageHls(source.toString(), tempDir,
+                hlsConfig.getHlsRenditions(), hlsConfig.getSegmentDuration(), key + "/"));
+    }
+
+    @Override
+    public String getPackageKey(Path video, long lastModified) {
+        return store.getKey(video, lastModified);
+    }
+
+    @Override
+    public Path getPackageDirectory(String key) {
+        return store.getDirectory(key);
+    }
+
+    @Override
+    public void delete(Path video) {
+        store.delete(video);
+    }
+}
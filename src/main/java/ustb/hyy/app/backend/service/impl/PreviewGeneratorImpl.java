@@ -0,0 +1,67 @@
+package ustb.hyy.app.backend.service.impl;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import ustb.hyy.app.backend.common.util.DerivedArtifactStore;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+import ustb.hyy.app.backend.config.PreviewConfig;
+import ustb.hyy.app.backend.service.PreviewGenerator;
+
+/**
+ * 预览生成Service实现
+ * 先写入临时目录，完成后整体重命名为预览目录，读取方不会看到未写完的代理视频或精灵图
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Service
+@RequiredArgsConstructor
+public class PreviewGeneratorImpl implements PreviewGenerator {
+
+    private final PreviewConfig previewConfig;
+    private final ThreadPoolTaskExecutor previewGeneratorExecutor;
+
+    @Value("${app.storage.base-path}")
+    private String storageBasePath;
+
+    @Value("${app.storage.previews-subdir:previews}")
+    private String previewsSubdir;
+
+    private DerivedArtifactStore store;
+
+    @PostConstruct
+    void init() {
+        // 与视频存储一致，相对路径基于 codes/ 目录
+        Path currentDir = Paths.get("").toAbsolutePath();
+        Path codesDir = "backend".equals(currentDir.getFileName().toString()) ? currentDir.getParent() : currentDir;
+        store = new DerivedArtifactStore("预览生成", codesDir.resolve(storageBasePath).resolve(previewsSubdir).normalize(),
+                previewGeneratorExecutor);
+    }
+
+    @Override
+    public void submit(Path video) {
+        if (!Boolean.TRUE.equals(previewConfig.getEnabled())) {
+            return;
+        }
+        store.submit(video, (source, tempDir, key) -> VideoUtils.generatePreview(source.toString(),
+                tempDir.resolve(PROXY_FILE), tempDir.resolve(SPRITE_FILE), tempDir.resolve(VTT_FILE),
+                previewConfig.getPreviewOptions()));
+    }
+
+    @Override
+    public Path getPreviewDirectory(Path video, long lastModified) {
+        return store.getDirectory(store.getKey(video, lastModified));
+    }
+
+    @Override
+    public void delete(Path video) {
+        store.delete(video);
+    }
+}
@@ -0,0 +1,272 @@
+package ustb.hyy.app.backend.service.impl;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.common.exception.BusinessException;
+import ustb.hyy.app.backend.common.exception.ResourceNotFoundException;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+import ustb.hyy.app.backend.config.ThumbnailConfig;
+import ustb.hyy.app.backend.domain.entity.AnomalyEvent;
+import ustb.hyy.app.backend.domain.enums.TaskStatus;
+import ustb.hyy.app.backend.dto.response.ThumbnailIndexResponse;
+import ustb.hyy.app.backend.repository.AnalysisTaskRepository;
+import ustb.hyy.app.backend.repository.AnomalyEventRepository;
+import ustb.hyy.app.backend.repository.TrackingObjectRepository;
+import ustb.hyy.app.backend.service.ThumbnailService;
+import ustb.hyy.app.backend.service.VideoService;
+
+/**
+ * 事件缩略图Service实现
+ * 收集全部事件起始帧和追踪物体首次出现帧，排序去重后对视频做一次顺序解码，
+ * 输出单个缩略图、一张精灵图和索引，前端一次请求即可加载整个缩略图列表
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ThumbnailServiceImpl implements ThumbnailService {
+
+    private static final String INDEX_FILE = "index.json";
+    private static final String SPRITE_FILE = "sprite.jpg";
+    private static final String FRAMES_DIR = "frames";
+
+    /**
+     * JPEG 单边尺寸上限，精灵图超出时多余的缩略图只单独保存
+     */
+    private static final int MAX_SPRITE_SIZE = 65500;
+
+    private final AnalysisTaskRepository taskRepository;
+    private final AnomalyEventRepository eventRepository;
+    private final TrackingObjectRepository trackingRepository;
+    private final VideoService videoService;
+    private final ThumbnailConfig thumbnailConfig;
+    private final ThreadPoolTaskExecutor thumbnailExecutor;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 正在生成缩略图的任务
+     */
+    private final Set<Long> generating = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.storage.base-path}")
+    private String storageBasePath;
+
+    @Value("${app.storage.thumbnails-subdir:thumbnails}")
+    private String thumbnailsSubdir;
+
+    @Override
+    public void submit(Long taskId) {
+        if (!generating.add(taskId)) {
+            return;
+        }
+        try {
+            thumbnailExecutor.execute(() -> {
+                try {
+                    generate(taskId);
+                } catch (Exception e) {
+                    log.error("生成缩略图失败，taskId: {}", taskId, e);
+                } finally {
+                    generating.remove(taskId);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            generating.remove(taskId);
+            log.warn("缩略图生成队列已满，跳过，taskId: {}", taskId);
+        }
+    }
+
+    @Override
+    public ThumbnailIndexResponse getIndex(Long taskId) {
+        Path indexFile = getTaskDirectory(taskId).resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            // 结果已提交但缩略图缺失（如生成时队列已满），重新提交生成
+            taskRepository.findById(taskId)
+                    .filter(task -> task.getStatus() == TaskStatus.COMPLETED
+                            || task.getStatus() == TaskStatus.COMPLETED_TIMEOUT)
+                    .ifPresent(task -> submit(taskId));
+            throw new ResourceNotFoundException("缩略图尚未生成：" + taskId);
+        }
+        try {
+            return objectMapper.readValue(indexFile.toFile(), ThumbnailIndexResponse.class);
+        } catch (IOException e) {
+            log.error("读取缩略图索引失败，taskId: {}", taskId, e);
+            throw new BusinessException("读取缩略图索引失败");
+        }
+    }
+
+    @Override
+    public Path getSprite(Long taskId) {
+        Path sprite = getTaskDirectory(taskId).resolve(SPRITE_FILE);
+        if (!Files.exists(sprite)) {
+            throw new ResourceNotFoundException("缩略图尚未生成：" + taskId);
+        }
+        return sprite;
+    }
+
+    @Override
+    public Path getThumbnail(Long taskId, long frameNumber) {
+        Path thumbnail = getTaskDirectory(taskId).resolve(FRAMES_DIR).resolve(frameNumber + ".jpg");
+        if (!Files.exists(thumbnail)) {
+            throw new ResourceNotFoundException("缩略图不存在：" + frameNumber);
+        }
+        return thumbnail;
+    }
+
+    @Override
+    public void delete(Long taskId) {
+        try {
+            deleteDirectory(getTaskDirectory(taskId));
+        } catch (IOException e) {
+            log.warn("删除缩略图失败，taskId: {}", taskId, e);
+        }
+    }
+
+    private void generate(Long taskId) throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        // 1. 收集需要的帧号
+        Map<Long, Integer> eventFrames = new LinkedHashMap<>();
+        for (AnomalyEvent event : eventRepository.findByTaskIdOrderByStartFrameAsc(taskId)) {
+            eventFrames.put(event.getId(), event.getStartFrame());
+        }
+        Map<Long, Integer> objectFrames = new LinkedHashMap<>();
+        for (Object[] row : trackingRepository.findFirstFramesByTaskId(taskId)) {
+            objectFrames.put((Long) row[0], (Integer) row[1]);
+        }
+
+        String videoType = thumbnailConfig.getVideoType();
+        VideoUtils.KeyframeIndex keyframeIndex = videoService.getKeyframeIndex(taskId, videoType);
+        TreeSet<Long> frameSet = new TreeSet<>();
+        Stream.concat(eventFrames.values().stream(), objectFrames.values().stream())
+                .filter(frame -> frame != null && frame >= 0 && frame < keyframeIndex.totalFrames())
+                .forEach(frame -> frameSet.add(frame.longValue()));
+        long[] frameNumbers = frameSet.stream().mapToLong(Long::longValue).toArray();
+
+        // 2. 计算缩略图和精灵图尺寸
+        Path video = videoService.getVideoResource(taskId, videoType).getFile().toPath();
+        VideoUtils.VideoInfo videoInfo = VideoUtils.getVideoInfo(video.toString());
+        int tileWidth = thumbnailConfig.getWidth();
+        int tileHeight = Math.max(2, (int) Math.round((double) videoInfo.getHeight() * tileWidth / videoInfo.getWidth()));
+        int columns = Math.max(1, Math.min(thumbnailConfig.getColumns(), frameNumbers.length));
+        int maxRows = Math.max(1, MAX_SPRITE_SIZE / tileHeight);
+        int spriteCount = Math.min(frameNumbers.length, maxRows * columns);
+        int rows = Math.max(1, (spriteCount + columns - 1) / columns);
+
+        Path target = getTaskDirectory(taskId);
+        Path tempDir = target.resolveSibling(".tmp-" + taskId);
+        deleteDirectory(tempDir);
+        Files.createDirectories(tempDir.resolve(FRAMES_DIR));
+
+        try {
+            BufferedImage sprite = new BufferedImage(columns * tileWidth, rows * tileHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D spriteGraphics = sprite.createGraphics();
+            List<ThumbnailIndexResponse.Tile> tiles = new ArrayList<>(frameNumbers.length);
+
+            // 3. 一次顺序解码，逐帧写出缩略图并绘制到精灵图
+            try (Java2DFrameConverter converter = new Java2DFrameConverter()) {
+                VideoUtils.extractFrames(video.toString(), keyframeIndex, frameNumbers, (frameNumber, frame) -> {
+                    BufferedImage thumbnail = scale(converter.getBufferedImage(frame), tileWidth, tileHeight);
+                    try {
+                        ImageIO.write(thumbnail, "jpg", tempDir.resolve(FRAMES_DIR).resolve(frameNumber + ".jpg").toFile());
+                    } catch (IOException e) {
+                        throw new BusinessException("保存缩略图失败: " + e.getMessage(), e);
+                    }
+
+                    ThumbnailIndexResponse.Tile.TileBuilder tile = ThumbnailIndexResponse.Tile.builder()
+                            .frameNumber(frameNumber.intValue());
+                    int position = tiles.size();
+                    if (position < spriteCount) {
+                        int x = position % columns * tileWidth;
+                        int y = position / columns * tileHeight;
+                        spriteGraphics.drawImage(thumbnail, x, y, null);
+                        tile.x(x).y(y);
+                    }
+                    tiles.add(tile.build());
+                });
+            } finally {
+                spriteGraphics.dispose();
+            }
+
+            // 4. 写出精灵图和索引，整体替换旧目录
+            ImageIO.write(sprite, "jpg", tempDir.resolve(SPRITE_FILE).toFile());
+            ThumbnailIndexResponse index = ThumbnailIndexResponse.builder()
+                    .taskId(taskId)
+                    .tileWidth(tileWidth)
+                    .tileHeight(tileHeight)
+                    .spriteWidth(sprite.getWidth())
+                    .spriteHeight(sprite.getHeight())
+                    .tiles(tiles)
+                    .eventFrames(eventFrames)
+                    .objectFrames(objectFrames)
+                    .build();
+            objectMapper.writeValue(tempDir.resolve(INDEX_FILE).toFile(), index);
+
+            deleteDirectory(target);
+            Files.move(tempDir, target, StandardCopyOption.ATOMIC_MOVE);
+            log.info("缩略图生成完成，taskId: {}, 缩略图数: {}, 耗时: {} ms",
+                    taskId, tiles.size(), System.currentTimeMillis() - startTime);
+        } finally {
+            deleteDirectory(tempDir);
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private Path getTaskDirectory(Long taskId) {
+        // 与视频存储一致，相对路径基于 codes/ 目录
+        Path currentDir = Paths.get("").toAbsolutePath();
+        Path codesDir = "backend".equals(currentDir.getFileName().toString()) ? currentDir.getParent() : currentDir;
+        return codesDir.resolve(storageBasePath).resolve(thumbnailsSubdir).resolve(String.valueOf(taskId)).normalize();
+    }
+
+    private void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
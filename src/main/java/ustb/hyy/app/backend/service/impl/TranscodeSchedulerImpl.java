@@ -0,0 +1,278 @@
+package ustb.hyy.app.backend.service.impl;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.common.exception.BusinessException;
+import ustb.hyy.app.backend.common.exception.TooManyRequestsException;
+import ustb.hyy.app.backend.config.IngestExecutorConfig;
+import ustb.hyy.app.backend.service.TranscodeScheduler;
+
+/**
+ * 转码调度Service实现
+ * 转码在调用方（导入线程）中执行，调度器只负责按优先级发放执行许可：
+ * 等待中的任务按视频时长升序排列，时长相同时先到先得
+ *
+ * @author 侯阳洋
+ * @since 2025-10-21
+ */
+@Slf4j
+@Service
+public class TranscodeSchedulerImpl implements TranscodeScheduler {
+
+    /**
+     * 转码耗时与视频时长之比的平滑系数
+     */
+    private static final double COST_SMOOTHING = 0.3;
+
+    private final int maxConcurrency;
+    private final int queueCapacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition turnChanged = lock.newCondition();
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>(
+            Comparator.comparingInt(Ticket::videoDuration).thenComparingLong(Ticket::sequence));
+    private final Set<Ticket> running = new HashSet<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 已通过准入但尚未进入等待队列的名额数（受 lock 保护）
+     */
+    private int reserved;
+
+    /**
+     * 每秒视频的转码耗时（秒），用于估算等待时间，初始按实时速度估计
+     */
+    private volatile double secondsPerVideoSecond = 1.0;
+
+    private final Timer waitTimer;
+    private final Timer runTimer;
+    private final Counter rejectedCounter;
+
+    public TranscodeSchedulerImpl(IngestExecutorConfig ingestConfig, MeterRegistry meterRegistry) {
+        this.maxConcurrency = Math.max(1, ingestConfig.getTranscodeConcurrency());
+        this.queueCapacity = Math.max(0, ingestConfig.getTranscodeQueueCapacity());
+
+        Gauge.builder("video.transcode.queue.depth", this, scheduler -> scheduler.waitingCount())
+                .description("等待中的转码任务数")
+                .register(meterRegistry);
+        Gauge.builder("video.transcode.active", this, scheduler -> scheduler.runningCount())
+                .description("正在执行的转码任务数")
+                .register(meterRegistry);
+        Gauge.builder("video.transcode.reserved", this, scheduler -> scheduler.reservedCount())
+                .description("已通过准入、尚未进入转码队列的上传数")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("video.transcode.wait")
+                .description("转码任务排队等待时间")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("video.transcode.run")
+                .description("转码任务执行时间")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("video.transcode.rejected")
+                .description("因转码队列已满被拒绝的上传数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void checkAdmission() {
+        lock.lock();
+        try {
+            if (hasCapacity()) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        throw reject();
+    }
+
+    @Override
+    public Reservation reserve() {
+        lock.lock();
+        try {
+            if (hasCapacity()) {
+                reserved++;
+                return new SlotReservation();
+            }
+        } finally {
+            lock.unlock();
+        }
+        throw reject();
+    }
+
+    @Override
+    public long estimateWaitSeconds() {
+        long pendingVideoSeconds = 0;
+        lock.lock();
+        try {
+            for (Ticket ticket : waiting) {
+                pendingVideoSeconds += ticket.videoDuration();
+            }
+            long now = System.nanoTime();
+            for (Ticket ticket : running) {
+                // 执行中的任务按预计剩余时间计入
+                double elapsed = (now - ticket.startedAt()) / 1e9;
+                pendingVideoSeconds += (long) Math.max(0,
+                        ticket.videoDuration() - elapsed / secondsPerVideoSecond);
+            }
+        } finally {
+            lock.unlock();
+        }
+        long estimate = (long) Math.ceil(pendingVideoSeconds * secondsPerVideoSecond / maxConcurrency);
+        return Math.max(1, estimate);
+    }
+
+    @Override
+    public void execute(Reservation reservation, Long taskId, int videoDuration, Runnable job) {
+        Ticket ticket = acquire(reservation, taskId, videoDuration);
+        long startedAt = ticket.startedAt();
+        try {
+            job.run();
+        } finally {
+            long elapsedNanos = System.nanoTime() - startedAt;
+            release(ticket);
+            runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            if (videoDuration > 0) {
+                double cost = elapsedNanos / 1e9 / videoDuration;
+                secondsPerVideoSecond = secondsPerVideoSecond * (1 - COST_SMOOTHING) + cost * COST_SMOOTHING;
+            }
+            log.info("转码任务结束，taskId: {}, 视频时长: {} 秒, 耗时: {} ms",
+                    taskId, videoDuration, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        }
+    }
+
+    /**
+     * 执行中、等待中和已预留的总数未超过 并发数 + 队列容量（需持有 lock）
+     */
+    private boolean hasCapacity() {
+        return running.size() + waiting.size() + reserved < maxConcurrency + queueCapacity;
+    }
+
+    private TooManyRequestsException reject() {
+        rejectedCounter.increment();
+        long retryAfter = estimateWaitSeconds();
+        log.warn("转码队列已满（执行中: {}, 等待中: {}, 已预留: {}），拒绝上传，预计 {} 秒后可重试",
+                runningCount(), waitingCount(), reservedCount(), retryAfter);
+        return new TooManyRequestsException("视频转码队列已满，请稍后重试", retryAfter);
+    }
+
+    /**
+     * 排队等待执行许可：队首且有空闲许可时出队
+     */
+    private Ticket acquire(Reservation reservation, Long taskId, int videoDuration) {
+        Ticket ticket = new Ticket(taskId, videoDuration, sequence.incrementAndGet(), System.nanoTime());
+        lock.lock();
+        try {
+            // 入队与归还预留在同一把锁内完成，占用数不会出现空档
+            waiting.add(ticket);
+            reservation.release();
+            if (running.size() >= maxConcurrency) {
+                log.info("转码任务进入等待队列，taskId: {}, 视频时长: {} 秒, 等待中: {}",
+                        taskId, videoDuration, waiting.size());
+            }
+            while (running.size() >= maxConcurrency || waiting.peek() != ticket) {
+                turnChanged.await();
+            }
+            waiting.poll();
+            Ticket started = ticket.start(System.nanoTime());
+            running.add(started);
+            // 许可可能不止一个，唤醒下一个队首
+            turnChanged.signalAll();
+            waitTimer.record(started.startedAt() - ticket.startedAt(), TimeUnit.NANOSECONDS);
+            return started;
+        } catch (InterruptedException e) {
+            waiting.remove(ticket);
+            turnChanged.signalAll();
+            Thread.currentThread().interrupt();
+            throw new BusinessException("等待转码时被中断", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Ticket ticket) {
+        lock.lock();
+        try {
+            running.remove(ticket);
+            turnChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int waitingCount() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int reservedCount() {
+        lock.lock();
+        try {
+            return reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int runningCount() {
+        lock.lock();
+        try {
+            return running.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 转码名额预留，归还后不再计入队列容量
+     */
+    private class SlotReservation implements Reservation {
+
+        /**
+         * 是否仍占用名额（受 lock 保护）
+         */
+        private boolean held = true;
+
+        @Override
+        public void release() {
+            lock.lock();
+            try {
+                if (held) {
+                    held = false;
+                    reserved--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 转码排队凭证
+     *
+     * @param startedAt 入队时为入队时间，开始执行后为开始时间（纳秒）
+     */
+    private record Ticket(Long taskId, int videoDuration, long sequence, long startedAt) {
+
+        Ticket start(long now) {
+            return new Ticket(taskId, videoDuration, sequence, now);
+        }
+    }
+}
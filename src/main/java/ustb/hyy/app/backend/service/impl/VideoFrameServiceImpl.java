@@ -0,0 +1,288 @@
+package ustb.hyy.app.backend.service.impl;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.common.exception.BusinessException;
+import ustb.hyy.app.backend.common.exception.ResourceNotFoundException;
+import ustb.hyy.app.backend.common.util.VideoUtils;
+import ustb.hyy.app.backend.service.VideoFrameService;
+import ustb.hyy.app.backend.service.VideoService;
+
+/**
+ * 视频单帧提取Service实现
+ * <ul>
+ *     <li>关键帧索引：读取导入时生成的定位索引，定位目标帧所在GOP的起始关键帧</li>
+ *     <li>抓取器池：热点视频保留已打开的抓取器，连续请求相邻帧时直接向后解码，无需重新打开容器和定位</li>
+ *     <li>帧缓存：按总字节数限制的LRU，缓存编码后的图片</li>
+ * </ul>
+ *
+ * @author 侯阳洋
+ * @since 2025-10-22
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VideoFrameServiceImpl implements VideoFrameService {
+
+    private final VideoService videoService;
+
+    @Value("${app.video.frame-cache-size-mb:64}")
+    private int frameCacheSizeMb;
+
+    @Value("${app.video.grabber-pool-size:8}")
+    private int grabberPoolSize;
+
+    @Value("${app.video.grabber-pool-size-per-video:2}")
+    private int grabberPoolSizePerVideo;
+
+    /**
+     * 编码后的帧图片（访问顺序），总字节数超出上限时淘汰最久未访问的帧
+     */
+    private final LinkedHashMap<String, byte[]> frames = new LinkedHashMap<>(16, 0.75f, true);
+    private long frameBytes;
+    private long maxFrameBytes;
+
+    /**
+     * 空闲抓取器（按视频版本分组，访问顺序），总数超出上限时关闭最久未使用视频的抓取器
+     */
+    private final LinkedHashMap<String, Deque<PooledGrabber>> idleGrabbers = new LinkedHashMap<>(16, 0.75f, true);
+    private int idleGrabberCount;
+
+    @PostConstruct
+    void init() {
+        maxFrameBytes = Math.max(1, frameCacheSizeMb) * 1024L * 1024L;
+    }
+
+    @PreDestroy
+    void destroy() {
+        List<PooledGrabber> toClose = new ArrayList<>();
+        synchronized (idleGrabbers) {
+            idleGrabbers.values().forEach(toClose::addAll);
+            idleGrabbers.clear();
+            idleGrabberCount = 0;
+        }
+        toClose.forEach(PooledGrabber::close);
+    }
+
+    @Override
+    public FrameImage getFrameImage(Long taskId, String type, long frameNumber, String format) {
+        String imageFormat = normalizeFormat(format);
+        if (frameNumber < 0) {
+            throw new BusinessException(400, "帧号不能为负数");
+        }
+
+        VideoService.VideoMetadata metadata = videoService.getVideoMetadata(taskId, type);
+        Path video = getVideoFile(taskId, type);
+        String videoKey = video + "@" + metadata.lastModified();
+        String eTag = toFrameETag(metadata, frameNumber, imageFormat);
+        String contentType = "png".equals(imageFormat) ? "image/png" : "image/jpeg";
+
+        String frameKey = videoKey + "#" + frameNumber + "." + imageFormat;
+        byte[] cached;
+        synchronized (frames) {
+            cached = frames.get(frameKey);
+        }
+        if (cached != null) {
+            return new FrameImage(cached, contentType, eTag);
+        }
+
+        VideoUtils.KeyframeIndex index = videoService.getKeyframeIndex(taskId, type);
+        if (frameNumber >= index.totalFrames()) {
+            throw new ResourceNotFoundException("帧号超出视频范围：" + frameNumber + "，总帧数：" + index.totalFrames());
+        }
+
+        byte[] data = encode(decodeFrame(videoKey, video, index, frameNumber), imageFormat);
+        putFrame(frameKey, data);
+        return new FrameImage(data, contentType, eTag);
+    }
+
+    @Override
+    public String getFrameETag(Long taskId, String type, long frameNumber, String format) {
+        return toFrameETag(videoService.getVideoMetadata(taskId, type), frameNumber, normalizeFormat(format));
+    }
+
+    private String toFrameETag(VideoService.VideoMetadata metadata, long frameNumber, String imageFormat) {
+        return "\"" + metadata.eTag().replace("\"", "") + "-" + frameNumber + "." + imageFormat + "\"";
+    }
+
+    private String normalizeFormat(String format) {
+        String imageFormat = format == null ? "jpg" : format.toLowerCase(Locale.ROOT);
+        if ("jpeg".equals(imageFormat)) {
+            return "jpg";
+        }
+        if (!"jpg".equals(imageFormat) && !"png".equals(imageFormat)) {
+            throw new BusinessException(400, "不支持的图片格式：" + format);
+        }
+        return imageFormat;
+    }
+
+    private Path getVideoFile(Long taskId, String type) {
+        try {
+            return videoService.getVideoResource(taskId, type).getFile().toPath();
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("视频文件不存在");
+        }
+    }
+
+    /**
+     * 解码目标帧：抓取器当前位置位于目标帧所在GOP内且早于目标帧时直接向后解码，否则先定位到GOP起始关键帧。
+     * 从关键帧开始逐帧计数定位目标帧，不按帧率换算时间戳，可变帧率视频同样精确
+     */
+    private Frame decodeFrame(String videoKey, Path video, VideoUtils.KeyframeIndex index, long frameNumber) {
+        long keyframe = index.keyframeFrameBefore(frameNumber);
+
+        PooledGrabber pooled = borrowGrabber(videoKey, video);
+        boolean reusable = false;
+        try {
+            FFmpegFrameGrabber grabber = pooled.grabber;
+            if (pooled.lastFrame < keyframe || pooled.lastFrame >= frameNumber) {
+                grabber.setTimestamp(index.keyframeTimestampBeforeFrame(frameNumber));
+                pooled.lastFrame = keyframe - 1;
+            }
+
+            Frame frame;
+            while ((frame = grabber.grabImage()) != null) {
+                pooled.lastFrame++;
+                if (pooled.lastFrame == frameNumber) {
+                    reusable = true;
+                    // 抓取器复用同一帧缓冲区，归还前需复制
+                    return frame.clone();
+                }
+            }
+            reusable = true;
+            throw new ResourceNotFoundException("帧号超出视频范围：" + frameNumber);
+        } catch (FFmpegFrameGrabber.Exception e) {
+            log.error("解码视频帧失败: {}, 帧号: {}", video, frameNumber, e);
+            throw new BusinessException("解码视频帧失败: " + e.getMessage(), e);
+        } finally {
+            if (reusable) {
+                releaseGrabber(videoKey, pooled);
+            } else {
+                pooled.close();
+            }
+        }
+    }
+
+    private byte[] encode(Frame frame, String imageFormat) {
+        try (Java2DFrameConverter converter = new Java2DFrameConverter()) {
+            BufferedImage image = converter.getBufferedImage(frame);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, imageFormat, output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new BusinessException("编码帧图片失败: " + e.getMessage(), e);
+        } finally {
+            frame.close();
+        }
+    }
+
+    private void putFrame(String frameKey, byte[] data) {
+        synchronized (frames) {
+            byte[] previous = frames.put(frameKey, data);
+            frameBytes += data.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> iterator = frames.values().iterator();
+            while (frameBytes > maxFrameBytes && iterator.hasNext()) {
+                frameBytes -= iterator.next().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private PooledGrabber borrowGrabber(String videoKey, Path video) {
+        synchronized (idleGrabbers) {
+            Deque<PooledGrabber> idle = idleGrabbers.get(videoKey);
+            if (idle != null && !idle.isEmpty()) {
+                idleGrabberCount--;
+                PooledGrabber pooled = idle.pop();
+                if (idle.isEmpty()) {
+                    idleGrabbers.remove(videoKey);
+                }
+                return pooled;
+            }
+        }
+
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(video.toFile());
+        try {
+            grabber.start();
+        } catch (FFmpegFrameGrabber.Exception e) {
+            try {
+                grabber.release();
+            } catch (Exception releaseEx) {
+                log.warn("关闭抓取器失败", releaseEx);
+            }
+            throw new BusinessException("打开视频失败: " + e.getMessage(), e);
+        }
+        return new PooledGrabber(grabber);
+    }
+
+    private void releaseGrabber(String videoKey, PooledGrabber pooled) {
+        List<PooledGrabber> toClose = new ArrayList<>();
+        synchronized (idleGrabbers) {
+            Deque<PooledGrabber> idle = idleGrabbers.computeIfAbsent(videoKey, key -> new ArrayDeque<>());
+            if (idle.size() >= grabberPoolSizePerVideo) {
+                toClose.add(pooled);
+            } else {
+                idle.push(pooled);
+                idleGrabberCount++;
+            }
+
+            // 超出总数上限时关闭最久未使用视频的抓取器
+            Iterator<Deque<PooledGrabber>> iterator = idleGrabbers.values().iterator();
+            while (idleGrabberCount > grabberPoolSize && iterator.hasNext()) {
+                Deque<PooledGrabber> eldest = iterator.next();
+                while (!eldest.isEmpty() && idleGrabberCount > grabberPoolSize) {
+                    toClose.add(eldest.removeLast());
+                    idleGrabberCount--;
+                }
+                if (eldest.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+        toClose.forEach(PooledGrabber::close);
+    }
+
+    /**
+     * 池化的抓取器，记录最后解码帧的帧号用于判断能否向后解码
+     */
+    private static class PooledGrabber {
+
+        private final FFmpegFrameGrabber grabber;
+        private long lastFrame = Long.MAX_VALUE;
+
+        PooledGrabber(FFmpegFrameGrabber grabber) {
+            this.grabber = grabber;
+        }
+
+        void close() {
+            try {
+                grabber.stop();
+                grabber.release();
+            } catch (Exception e) {
+                log.warn("关闭抓取器失败", e);
+            }
+        }
+    }
+}
@@ -2,21 +2,35 @@ package ustb.hyy.app.backend.service.impl;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ustb.hyy.app.backend.cache.VideoFileCache;
+import ustb.hyy.app.backend.cache.VideoProbeCache;
 import ustb.hyy.app.backend.common.exception.BusinessException;
 import ustb.hyy.app.backend.common.exception.ResourceNotFoundException;
+import ustb.hyy.app.backend.common.util.SeekIndexUtils;
+import ustb.hyy.app.backend.common.util.VideoUtils;
 import ustb.hyy.app.backend.domain.entity.AnalysisTask;
 import ustb.hyy.app.backend.repository.AnalysisTaskRepository;
+import ustb.hyy.app.backend.service.HlsPackager;
+import ustb.hyy.app.backend.service.PreviewGenerator;
 import ustb.hyy.app.backend.service.VideoService;
 
 /**
@@ -30,12 +44,47 @@ import ustb.hyy.app.backend.service.VideoService;
 @RequiredArgsConstructor
 public class VideoServiceImpl implements VideoService {
 
+    /**
+     * 预览类型（由原始视频生成）对应的预览文件
+     */
+    private static final Map<String, PreviewFile> PREVIEW_TYPES = Map.of(
+            "proxy", new PreviewFile(PreviewGenerator.PROXY_FILE, "video/mp4"),
+            "timeline", new PreviewFile(PreviewGenerator.SPRITE_FILE, "image/jpeg"),
+            "timeline-vtt", new PreviewFile(PreviewGenerator.VTT_FILE, "text/vtt")
+    );
+
+    private record PreviewFile(String filename, String contentType) {
+    }
+
     private final AnalysisTaskRepository taskRepository;
+    private final VideoProbeCache probeCache;
+    private final VideoFileCache fileCache;
+    private final HlsPackager hlsPackager;
+    private final PreviewGenerator previewGenerator;
+
+    @Value("${app.video.keyframe-index-cache-size:200}")
+    private int indexCacheSize;
+
+    /**
+     * 关键帧索引内存缓存（按视频版本，LRU）
+     */
+    private Map<String, VideoUtils.KeyframeIndex> keyframeIndexes;
+
+    @PostConstruct
+    void init() {
+        int capacity = Math.max(1, indexCacheSize);
+        keyframeIndexes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VideoUtils.KeyframeIndex> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
 
     @Override
     public Resource getVideoResource(Long taskId, String type) {
-        String videoPath = getVideoPath(taskId, type);
-        return loadResource(videoPath);
+        VideoFileCache.VideoFile file = resolveVideoFile(taskId, type);
+        return loadResource(file.path().toString());
     }
 
     @Override
@@ -46,45 +95,112 @@ public class VideoServiceImpl implements VideoService {
 
     @Override
     public VideoMetadata getVideoMetadata(Long taskId, String type) {
-        AnalysisTask task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new ResourceNotFoundException("任务不存在：" + taskId));
+        VideoFileCache.VideoFile file = resolveVideoFile(taskId, type);
+        return new VideoMetadata(
+                file.path().getFileName().toString(),
+                file.contentType(),
+                file.fileSize(),
+                file.duration(),
+                file.lastModified()
+        );
+    }
 
-        String videoPath = getVideoPath(taskId, type);
-        Path path = Paths.get(videoPath);
+    @Override
+    public VideoUtils.KeyframeIndex getKeyframeIndex(Long taskId, String type) {
+        VideoFileCache.VideoFile file = resolveVideoFile(taskId, type);
+        String key = file.path() + "@" + file.lastModified();
+        VideoUtils.KeyframeIndex index = keyframeIndexes.get(key);
+        if (index == null) {
+            // 并发首次访问时可能重复读取，结果相同，不加锁以免阻塞其他视频
+            index = SeekIndexUtils.loadOrBuild(file.path());
+            keyframeIndexes.put(key, index);
+        }
+        return index;
+    }
 
-        if (!Files.exists(path)) {
-            throw new ResourceNotFoundException("视频文件不存在");
+    @Override
+    public HlsPackage getHlsPackage(Long taskId, String type) {
+        VideoFileCache.VideoFile file = resolveVideoFile(taskId, type);
+        String key = hlsPackager.getPackageKey(file.path(), file.lastModified());
+        Path directory = hlsPackager.getPackageDirectory(key);
+        if (!Files.exists(directory.resolve(VideoUtils.HLS_MASTER_PLAYLIST))) {
+            throw new ResourceNotFoundException("HLS分片尚未生成");
         }
+        return new HlsPackage(key, directory);
+    }
 
-        try {
-            long fileSize = Files.size(path);
-            String filename = path.getFileName().toString();
-            String contentType = Files.probeContentType(path);
-
-            // 如果系统无法识别Content-Type，根据文件扩展名设置
-            if (contentType == null) {
-                String lowerFilename = filename.toLowerCase();
-                if (lowerFilename.endsWith(".mp4")) {
-                    contentType = "video/mp4";
-                } else if (lowerFilename.endsWith(".mkv")) {
-                    contentType = "video/x-matroska";
-                } else if (lowerFilename.endsWith(".webm")) {
-                    contentType = "video/webm";
-                } else if (lowerFilename.endsWith(".avi")) {
-                    contentType = "video/x-msvideo";
-                } else if (lowerFilename.endsWith(".mov")) {
-                    contentType = "video/quicktime";
-                } else {
-                    contentType = "video/mp4"; // 最终默认值
-                }
-            }
+    /**
+     * 解析任务视频文件，命中缓存时只读取一次文件属性，不查询数据库
+     * 文件被原地改写（大小或修改时间变化）时刷新缓存中的文件信息
+     */
+    private VideoFileCache.VideoFile resolveVideoFile(Long taskId, String type) {
+        PreviewFile preview = PREVIEW_TYPES.get(type.toLowerCase(Locale.ROOT));
+        if (preview != null) {
+            return resolvePreviewFile(taskId, preview);
+        }
 
-            return new VideoMetadata(
-                    filename,
-                    contentType,
-                    fileSize,
-                    task.getVideoDuration()
+        VideoFileCache.VideoFile file = fileCache.get(taskId, type, () -> loadVideoFile(taskId, type));
+
+        BasicFileAttributes attributes = readAttributes(file.path());
+        if (attributes.size() != file.fileSize()
+                || attributes.lastModifiedTime().toMillis() != file.lastModified()) {
+            file = new VideoFileCache.VideoFile(
+                    file.path(),
+                    attributes.size(),
+                    attributes.lastModifiedTime().toMillis(),
+                    probeCache.getContentType(file.path()),
+                    file.duration()
             );
+            fileCache.put(taskId, type, file);
+        }
+        return file;
+    }
+
+    /**
+     * 解析原始视频当前版本的预览文件，尚未生成时提交生成（如导入时队列已满）
+     */
+    private VideoFileCache.VideoFile resolvePreviewFile(Long taskId, PreviewFile preview) {
+        VideoFileCache.VideoFile original = resolveVideoFile(taskId, "original");
+        Path path = previewGenerator.getPreviewDirectory(original.path(), original.lastModified())
+                .resolve(preview.filename());
+        if (!Files.exists(path)) {
+            previewGenerator.submit(original.path());
+            throw new ResourceNotFoundException("预览尚未生成");
+        }
+
+        BasicFileAttributes attributes = readAttributes(path);
+        return new VideoFileCache.VideoFile(
+                path,
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                preview.contentType(),
+                original.duration()
+        );
+    }
+
+    /**
+     * 查询数据库并读取文件信息（缓存未命中时调用）
+     */
+    private VideoFileCache.VideoFile loadVideoFile(Long taskId, String type) {
+        AnalysisTask task = taskRepository.findById(taskId)
+                .orElseThrow(() -> new ResourceNotFoundException("任务不存在：" + taskId));
+
+        Path path = Paths.get(getVideoPath(task, type)).normalize();
+        BasicFileAttributes attributes = readAttributes(path);
+        return new VideoFileCache.VideoFile(
+                path,
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                probeCache.getContentType(path),
+                task.getVideoDuration()
+        );
+    }
+
+    private BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("视频文件不存在");
         } catch (IOException e) {
             log.error("获取视频元数据失败", e);
             throw new BusinessException("获取视频元数据失败");
@@ -94,10 +210,7 @@ public class VideoServiceImpl implements VideoService {
     /**
      * 获取视频路径
      */
-    private String getVideoPath(Long taskId, String type) {
-        AnalysisTask task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new ResourceNotFoundException("任务不存在：" + taskId));
-
+    private String getVideoPath(AnalysisTask task, String type) {
         String path;
         if ("original".equalsIgnoreCase(type)) {
             path = task.getVideoPath();
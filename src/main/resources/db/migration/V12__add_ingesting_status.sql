@@ -0,0 +1,6 @@
+-- 新增 INGESTING 任务状态
+-- 日期: 2025-10-20
+-- 说明: 上传接口立即返回，视频解析/转码/faststart 在后台执行，期间任务处于 INGESTING 状态
+--       导入完成前 video_duration 和 timeout_threshold 为 0，完成后回填
+
+COMMENT ON COLUMN analysis_tasks.status IS '任务状态：INGESTING, PENDING, PREPROCESSING, ANALYZING, COMPLETED, COMPLETED_TIMEOUT, FAILED';
@@ -0,0 +1,26 @@
+-- 新增内容寻址的视频存储表
+-- 日期: 2025-10-21
+-- 说明: 以上传文件的 SHA-256 标识视频内容，重复上传同一视频时复用已处理（解析/转码）的文件，
+--       多个任务的 video_path 指向同一个文件，通过引用计数决定何时删除
+
+CREATE TABLE video_blobs (
+    id BIGINT PRIMARY KEY,
+    content_hash VARCHAR(64) NOT NULL,
+    video_path VARCHAR(500) NOT NULL,
+    file_size BIGINT NOT NULL,
+    video_duration INTEGER NOT NULL,
+    frame_rate DOUBLE PRECISION NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 1,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_video_blob_hash UNIQUE (content_hash),
+    CONSTRAINT uk_video_blob_path UNIQUE (video_path)
+);
+
+COMMENT ON TABLE video_blobs IS '内容寻址的视频文件（按上传内容去重）';
+COMMENT ON COLUMN video_blobs.content_hash IS '上传文件内容的SHA-256（十六进制）';
+COMMENT ON COLUMN video_blobs.video_path IS '处理后的视频文件路径（相对于codes目录）';
+COMMENT ON COLUMN video_blobs.file_size IS '上传文件大小（字节）';
+COMMENT ON COLUMN video_blobs.video_duration IS '视频时长（秒）';
+COMMENT ON COLUMN video_blobs.frame_rate IS '视频帧率';
+COMMENT ON COLUMN video_blobs.ref_count IS '引用该文件的任务数，为0时删除文件';
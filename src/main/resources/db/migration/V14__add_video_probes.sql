@@ -0,0 +1,32 @@
+-- 新增视频探测结果表
+-- 日期: 2025-10-21
+-- 说明: 持久化 FFmpeg 探测得到的视频信息和 Content-Type，以 (文件路径, 文件大小, 修改时间) 作为指纹，
+--       同一文件只探测一次，重启后仍可复用；内存中另有有界 LRU 缓存
+
+CREATE TABLE video_probes (
+    id BIGINT PRIMARY KEY,
+    file_path VARCHAR(1000) NOT NULL,
+    file_size BIGINT NOT NULL,
+    last_modified BIGINT NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    probed BOOLEAN NOT NULL DEFAULT FALSE,
+    width INTEGER,
+    height INTEGER,
+    frame_rate DOUBLE PRECISION,
+    total_frames INTEGER,
+    duration INTEGER,
+    format VARCHAR(100),
+    codec VARCHAR(50),
+    audio_codec VARCHAR(50),
+    audio_channels INTEGER,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_video_probe_path UNIQUE (file_path)
+);
+
+COMMENT ON TABLE video_probes IS '视频文件探测结果缓存';
+COMMENT ON COLUMN video_probes.file_path IS '视频文件绝对路径';
+COMMENT ON COLUMN video_probes.file_size IS '探测时的文件大小（字节），与修改时间一起判断缓存是否失效';
+COMMENT ON COLUMN video_probes.last_modified IS '探测时的文件修改时间（毫秒时间戳）';
+COMMENT ON COLUMN video_probes.content_type IS '视频Content-Type';
+COMMENT ON COLUMN video_probes.probed IS '是否已通过FFmpeg探测视频信息（仅查询过Content-Type时为false）';
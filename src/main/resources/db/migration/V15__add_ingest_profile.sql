@@ -0,0 +1,23 @@
+-- 新增导入配置（ingest profile）
+-- 日期: 2025-10-22
+-- 说明: standard 保持原有转码行为；analysis 丢弃音频、固定短关键帧间隔并可限制分辨率，
+--       文件更小且按帧定位更快。同一视频内容按不同导入配置分别去重存储
+
+ALTER TABLE task_configs
+ADD COLUMN ingest_profile VARCHAR(20) NOT NULL DEFAULT 'standard';
+
+ALTER TABLE task_configs
+ADD CONSTRAINT check_ingest_profile
+CHECK (ingest_profile IN ('standard', 'analysis'));
+
+COMMENT ON COLUMN task_configs.ingest_profile IS '导入配置：standard(标准), analysis(分析优化：无音频、固定关键帧间隔、限制分辨率)';
+
+-- 去重键由内容哈希改为 (内容哈希, 导入配置)
+ALTER TABLE video_blobs
+ADD COLUMN ingest_profile VARCHAR(20) NOT NULL DEFAULT 'standard';
+
+ALTER TABLE video_blobs DROP CONSTRAINT uk_video_blob_hash;
+ALTER TABLE video_blobs
+ADD CONSTRAINT uk_video_blob_hash_profile UNIQUE (content_hash, ingest_profile);
+
+COMMENT ON COLUMN video_blobs.ingest_profile IS '处理该文件时使用的导入配置';
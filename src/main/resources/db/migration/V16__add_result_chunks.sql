@@ -0,0 +1,23 @@
+-- 新增分块结果提交记录表
+-- 日期: 2025-10-23
+-- 说明: AI模块在分析过程中按序号分块追加结果（动态参数、异常事件、追踪物体片段），
+--       每个 (task_id, seq) 只写入一次，重试的分块直接忽略；最后通过 finalize 接口结束任务
+
+CREATE TABLE result_chunks (
+    id BIGINT PRIMARY KEY,
+    task_id BIGINT NOT NULL,
+    seq INTEGER NOT NULL,
+    metric_count INTEGER NOT NULL DEFAULT 0,
+    event_count INTEGER NOT NULL DEFAULT 0,
+    object_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_result_chunk_task_seq UNIQUE (task_id, seq),
+    CONSTRAINT fk_result_chunk_task FOREIGN KEY (task_id) REFERENCES analysis_tasks(id) ON DELETE CASCADE
+);
+
+COMMENT ON TABLE result_chunks IS '分块结果提交记录（保证同一分块只写入一次）';
+COMMENT ON COLUMN result_chunks.seq IS '分块序号（从0开始）';
+COMMENT ON COLUMN result_chunks.metric_count IS '分块包含的动态参数数';
+COMMENT ON COLUMN result_chunks.event_count IS '分块包含的异常事件数';
+COMMENT ON COLUMN result_chunks.object_count IS '分块包含的追踪物体片段数';
@@ -0,0 +1,40 @@
+-- 追踪物体 (task_id, object_id) 改为唯一索引
+-- 日期: 2025-10-23
+-- 说明: 结果提交改为 INSERT ... ON CONFLICT (task_id, object_id) DO UPDATE 批量合并追踪物体，
+--       需要唯一索引；建索引前先把历史数据中的重复记录合并到ID最小的一条（帧范围取并集，轨迹按写入顺序拼接）
+
+-- 1. 合并重复记录到保留行
+UPDATE tracking_objects t
+SET first_frame = m.first_frame,
+    last_frame = m.last_frame,
+    trajectory = m.trajectory,
+    updated_at = CURRENT_TIMESTAMP
+FROM (
+    SELECT d.task_id,
+           d.object_id,
+           MIN(d.id) AS keep_id,
+           MIN(d.first_frame) AS first_frame,
+           MAX(d.last_frame) AS last_frame,
+           (SELECT jsonb_agg(e.value ORDER BY s.id, e.ordinality)
+              FROM tracking_objects s
+             CROSS JOIN LATERAL jsonb_array_elements(
+                   CASE WHEN jsonb_typeof(s.trajectory) = 'array' THEN s.trajectory ELSE '[]'::jsonb END
+                 ) WITH ORDINALITY AS e(value, ordinality)
+             WHERE s.task_id = d.task_id
+               AND s.object_id = d.object_id) AS trajectory
+      FROM tracking_objects d
+     GROUP BY d.task_id, d.object_id
+    HAVING COUNT(*) > 1
+) m
+WHERE t.id = m.keep_id;
+
+-- 2. 删除其余重复记录
+DELETE FROM tracking_objects t
+USING tracking_objects k
+WHERE t.task_id = k.task_id
+  AND t.object_id = k.object_id
+  AND t.id > k.id;
+
+-- 3. 普通索引替换为唯一索引
+DROP INDEX IF EXISTS idx_task_object;
+CREATE UNIQUE INDEX uk_tracking_object_task_object ON tracking_objects(task_id, object_id);
@@ -0,0 +1,10 @@
+-- 追踪物体新增二进制轨迹列
+-- 日期: 2025-10-23
+-- 说明: 标准格式的轨迹（帧号、边界框、置信度）改为按列压缩后存入 trajectory_data（帧号差分变长整数、
+--       int16 坐标、8位置信度），体积约为 JSONB 的 1/10，读取时不再逐点构造 Map；
+--       历史数据和非标准格式的轨迹仍保存在 trajectory（JSONB）中，接口输出时两者按顺序合并
+
+ALTER TABLE tracking_objects ADD COLUMN trajectory_data BYTEA;
+
+COMMENT ON COLUMN tracking_objects.trajectory IS '轨迹数据（JSON数组，历史数据及无法压缩的轨迹）';
+COMMENT ON COLUMN tracking_objects.trajectory_data IS '压缩轨迹数据（二进制，格式见 TrajectoryCodec）';
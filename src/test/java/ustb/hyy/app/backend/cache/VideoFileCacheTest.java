@@ -0,0 +1,68 @@
+package ustb.hyy.app.backend.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class VideoFileCacheTest {
+
+    private VideoFileCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VideoFileCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 10);
+        cache.init();
+    }
+
+    @Test
+    void cachesLoadedFile() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, "result", () -> file("a.mp4", loads));
+        VideoFileCache.VideoFile file = cache.get(1L, "RESULT", () -> file("b.mp4", loads));
+
+        assertThat(file.path()).isEqualTo(Path.of("a.mp4"));
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void doesNotCacheLoadThatRacedWithEvict() {
+        AtomicInteger loads = new AtomicInteger();
+
+        // 解析读到旧路径后、写入缓存前，路径变更的事务提交并移除缓存
+        VideoFileCache.VideoFile stale = cache.get(1L, "result", () -> {
+            VideoFileCache.VideoFile old = file("old.mp4", loads);
+            cache.evict(1L);
+            return old;
+        });
+        VideoFileCache.VideoFile fresh = cache.get(1L, "result", () -> file("new.mp4", loads));
+
+        assertThat(stale.path()).isEqualTo(Path.of("old.mp4"));
+        assertThat(fresh.path()).isEqualTo(Path.of("new.mp4"));
+        assertThat(loads).hasValue(2);
+        assertThat(cache.get(1L, "result", () -> file("other.mp4", loads)).path()).isEqualTo(Path.of("new.mp4"));
+    }
+
+    @Test
+    void evictOnlyAffectsLoadsStartedBeforeIt() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1L, "original", () -> file("a.mp4", loads));
+
+        cache.evict(1L);
+        cache.get(1L, "original", () -> file("b.mp4", loads));
+
+        assertThat(cache.get(1L, "original", () -> file("c.mp4", loads)).path()).isEqualTo(Path.of("b.mp4"));
+        assertThat(loads).hasValue(2);
+    }
+
+    private static VideoFileCache.VideoFile file(String name, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new VideoFileCache.VideoFile(Path.of(name), 1, 1, "video/mp4", 10);
+    }
+}
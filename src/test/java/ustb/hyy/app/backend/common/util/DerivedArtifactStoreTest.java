@@ -0,0 +1,104 @@
+package ustb.hyy.app.backend.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DerivedArtifactStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path root;
+    private Path video;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = tempDir.resolve("derived");
+        video = tempDir.resolve("my video.mp4");
+        Files.write(video, new byte[16]);
+    }
+
+    @Test
+    void buildsIntoTempDirectoryAndRenames() throws IOException {
+        DerivedArtifactStore store = new DerivedArtifactStore("测试", root, Runnable::run);
+        AtomicInteger builds = new AtomicInteger();
+
+        store.submit(video, (source, dir, key) -> {
+            builds.incrementAndGet();
+            assertThat(dir.getFileName().toString()).isEqualTo(".tmp-" + key);
+            Files.writeString(dir.resolve("out.txt"), key);
+        });
+        store.submit(video, (source, dir, key) -> builds.incrementAndGet());
+
+        String key = store.getKey(video, Files.getLastModifiedTime(video).toMillis());
+        assertThat(key).matches("my_video-[0-9a-f]+");
+        assertThat(Files.readString(store.getDirectory(key).resolve("out.txt"))).isEqualTo(key);
+        // 已生成的版本不再重复生成
+        assertThat(builds).hasValue(1);
+        assertThat(listRoot()).containsExactly(key);
+    }
+
+    @Test
+    void removesTempDirectoryWhenBuildFails() throws IOException {
+        DerivedArtifactStore store = new DerivedArtifactStore("测试", root, Runnable::run);
+
+        store.submit(video, (source, dir, key) -> {
+            Files.writeString(dir.resolve("partial.txt"), "x");
+            throw new IOException("生成失败");
+        });
+
+        assertThat(listRoot()).isEmpty();
+
+        // 失败后可以重新提交
+        store.submit(video, (source, dir, key) -> Files.writeString(dir.resolve("out.txt"), key));
+        assertThat(listRoot()).hasSize(1);
+    }
+
+    @Test
+    void releasesKeyWhenQueueIsFull() throws IOException {
+        DerivedArtifactStore rejecting = new DerivedArtifactStore("测试", root, task -> {
+            throw new RejectedExecutionException();
+        });
+        rejecting.submit(video, (source, dir, key) -> Files.writeString(dir.resolve("out.txt"), key));
+        assertThat(Files.exists(root)).isFalse();
+
+        DerivedArtifactStore store = new DerivedArtifactStore("测试", root, Runnable::run);
+        store.submit(video, (source, dir, key) -> Files.writeString(dir.resolve("out.txt"), key));
+        assertThat(listRoot()).hasSize(1);
+    }
+
+    @Test
+    void deletesAllVersionsOfVideoOnly() throws IOException {
+        DerivedArtifactStore store = new DerivedArtifactStore("测试", root, Runnable::run);
+        Files.createDirectories(root.resolve(store.getKey(video, 1000)).resolve("sub"));
+        Files.writeString(root.resolve(store.getKey(video, 1000)).resolve("sub/a.ts"), "x");
+        Files.createDirectories(root.resolve(store.getKey(video, 2000)));
+        // 以相同前缀开头的其他视频
+        Files.createDirectories(root.resolve("my_video-extra-3e8"));
+        Files.createDirectories(root.resolve("other-3e8"));
+
+        store.delete(video);
+
+        assertThat(listRoot()).containsExactlyInAnyOrder("my_video-extra-3e8", "other-3e8");
+    }
+
+    private List<String> listRoot() throws IOException {
+        if (!Files.exists(root)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(root)) {
+            return paths.map(path -> path.getFileName().toString()).toList();
+        }
+    }
+}
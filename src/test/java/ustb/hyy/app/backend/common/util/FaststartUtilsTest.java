@@ -0,0 +1,225 @@
+package ustb.hyy.app.backend.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FaststartUtilsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void movesMoovBeforeMdatAndShiftsChunkOffsetsOfEveryTrack() throws IOException {
+        byte[] ftyp = box("ftyp", "isom\0\0\0\0".getBytes(StandardCharsets.ISO_8859_1));
+        byte[] payload = new byte[100];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        byte[] mdat = box("mdat", payload);
+        long mdatData = ftyp.length + 8;
+
+        // 视频轨道用 stco，字幕轨道用 co64，两者都必须被修正
+        byte[] moov = box("moov",
+                trak(stco(mdatData, mdatData + 40)),
+                trak(co64(mdatData + 80)),
+                box("udta", new byte[4]));
+        Path video = write(ftyp, mdat, moov);
+
+        assertThat(FaststartUtils.relocateMoov(video)).isTrue();
+
+        byte[] result = Files.readAllBytes(video);
+        assertThat(result).hasSize(ftyp.length + mdat.length + moov.length);
+        assertThat(Arrays.copyOfRange(result, 0, ftyp.length)).isEqualTo(ftyp);
+        assertThat(typeAt(result, ftyp.length)).isEqualTo("moov");
+        int newMdat = ftyp.length + moov.length;
+        assertThat(Arrays.copyOfRange(result, newMdat, newMdat + mdat.length)).isEqualTo(mdat);
+
+        ByteBuffer buffer = ByteBuffer.wrap(result);
+        int stco = indexOf(result, "stco");
+        assertThat(buffer.getInt(stco + 16) & 0xFFFFFFFFL).isEqualTo(mdatData + moov.length);
+        assertThat(buffer.getInt(stco + 20) & 0xFFFFFFFFL).isEqualTo(mdatData + 40 + moov.length);
+        int co64 = indexOf(result, "co64");
+        assertThat(buffer.getLong(co64 + 16)).isEqualTo(mdatData + 80 + moov.length);
+
+        // 偏移指向的数据与原文件一致
+        assertThat(result[(int) (mdatData + 40 + moov.length)]).isEqualTo((byte) 40);
+    }
+
+    @Test
+    void leavesOffsetsIntoTrailingMdatUnchanged() throws IOException {
+        byte[] ftyp = box("ftyp", new byte[8]);
+        byte[] mdat1 = box("mdat", new byte[16]);
+        long second = ftyp.length + mdat1.length + 0L;
+        byte[] moovProbe = box("moov", trak(stco(0, 0)));
+        long mdat2Data = second + moovProbe.length + 8;
+        byte[] moov = box("moov", trak(stco(ftyp.length + 8, mdat2Data)));
+        byte[] mdat2 = box("mdat", new byte[16]);
+        Path video = write(ftyp, mdat1, moov, mdat2);
+
+        assertThat(FaststartUtils.relocateMoov(video)).isTrue();
+
+        byte[] result = Files.readAllBytes(video);
+        ByteBuffer buffer = ByteBuffer.wrap(result);
+        int stco = indexOf(result, "stco");
+        assertThat(buffer.getInt(stco + 16)).isEqualTo(ftyp.length + 8 + moov.length);
+        assertThat(buffer.getInt(stco + 20)).isEqualTo((int) mdat2Data);
+        assertThat(typeAt(result, (int) mdat2Data - 8)).isEqualTo("mdat");
+    }
+
+    @Test
+    void upgradesStcoToCo64WhenShiftedOffsetOverflows() throws IOException {
+        // moov 位于 4GB 附近，移到开头后 stco 中靠近末尾的偏移超出32位
+        long mdatOffset = 32;
+        long moovOffset = 0xFFFF_FFF0L;
+        byte[] udta = box("udta", new byte[] {1, 2, 3, 4});
+        byte[] moov = box("moov",
+                trak(stco(mdatOffset + 8, 0xFFFF_FFA0L)),
+                trak(co64(mdatOffset + 100, moovOffset + 0x1000)),
+                udta);
+
+        ByteBuffer result = FaststartUtils.relocateChunkOffsets(ByteBuffer.wrap(moov), mdatOffset, moovOffset);
+
+        // stco 的两个条目各扩展4字节，沿途容器的大小随之增加
+        int newSize = moov.length + 8;
+        byte[] bytes = new byte[result.limit()];
+        result.get(0, bytes);
+        assertThat(bytes).hasSize(newSize);
+        assertThat(result.getInt(0)).isEqualTo(newSize);
+        assertThat(typeAt(bytes, 0)).isEqualTo("moov");
+        assertThat(indexOf(bytes, "stco", 0)).isNegative();
+
+        int trak = indexOf(bytes, "trak", 0);
+        int stbl = indexOf(bytes, "stbl", 0);
+        int co64 = indexOf(bytes, "co64", 0);
+        assertThat(result.getInt(co64)).isEqualTo(16 + 2 * 8);
+        assertThat(result.getInt(stbl)).isEqualTo(8 + 16 + 2 * 8);
+        assertThat(result.getInt(trak)).isEqualTo(8 * 4 + 16 + 2 * 8);
+        assertThat(result.getLong(co64 + 16)).isEqualTo(mdatOffset + 8 + newSize);
+        assertThat(result.getLong(co64 + 24)).isEqualTo(0xFFFF_FFA0L + newSize);
+
+        // 原本就是 co64 的轨道：[mdat, moov) 内后移新 moov 大小，moov 之后的数据只后移增大的字节数
+        int secondCo64 = indexOf(bytes, "co64", co64 + 8);
+        assertThat(result.getLong(secondCo64 + 16)).isEqualTo(mdatOffset + 100 + newSize);
+        assertThat(result.getLong(secondCo64 + 24)).isEqualTo(moovOffset + 0x1000 + 8);
+        assertThat(Arrays.copyOfRange(bytes, newSize - udta.length, newSize)).isEqualTo(udta);
+    }
+
+    @Test
+    void keepsStcoWhenShiftedOffsetsFit() throws IOException {
+        byte[] moov = box("moov", trak(stco(40, 0xFFFF_0000L)));
+
+        ByteBuffer result = FaststartUtils.relocateChunkOffsets(ByteBuffer.wrap(moov), 32, 0xFFFF_1000L);
+
+        assertThat(result.limit()).isEqualTo(moov.length);
+        int stco = indexOf(moov, "stco");
+        assertThat(result.getInt(stco + 16) & 0xFFFFFFFFL).isEqualTo(40 + moov.length);
+        assertThat(result.getInt(stco + 20) & 0xFFFFFFFFL).isEqualTo(0xFFFF_0000L + moov.length);
+    }
+
+    @Test
+    void keepsFileUntouchedWhenMoovAlreadyFirst() throws IOException {
+        byte[] ftyp = box("ftyp", new byte[8]);
+        byte[] moov = box("moov", trak(stco(100)));
+        byte[] mdat = box("mdat", new byte[32]);
+        Path video = write(ftyp, moov, mdat);
+        byte[] before = Files.readAllBytes(video);
+
+        assertThat(FaststartUtils.relocateMoov(video)).isFalse();
+        assertThat(Files.readAllBytes(video)).isEqualTo(before);
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        byte[] ftyp = box("ftyp", new byte[8]);
+        byte[] mdat = box("mdat", new byte[32]);
+        byte[] moov = box("moov", trak(stco(24)));
+        Path video = write(ftyp, mdat, Arrays.copyOf(moov, moov.length - 4));
+
+        assertThatThrownBy(() -> FaststartUtils.relocateMoov(video)).isInstanceOf(IOException.class);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(video);
+        }
+    }
+
+    private Path write(byte[]... boxes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] box : boxes) {
+            out.write(box);
+        }
+        Path video = tempDir.resolve("video.mp4");
+        Files.write(video, out.toByteArray());
+        return video;
+    }
+
+    private static byte[] trak(byte[] chunkOffsets) {
+        return box("trak", box("mdia", box("minf", box("stbl", chunkOffsets))));
+    }
+
+    private static byte[] stco(long... offsets) {
+        ByteBuffer body = ByteBuffer.allocate(8 + offsets.length * 4);
+        body.putInt(0).putInt(offsets.length);
+        for (long offset : offsets) {
+            body.putInt((int) offset);
+        }
+        return box("stco", body.array());
+    }
+
+    private static byte[] co64(long... offsets) {
+        ByteBuffer body = ByteBuffer.allocate(8 + offsets.length * 8);
+        body.putInt(0).putInt(offsets.length);
+        for (long offset : offsets) {
+            body.putLong(offset);
+        }
+        return box("co64", body.array());
+    }
+
+    private static byte[] box(String type, byte[]... children) {
+        int size = 8;
+        for (byte[] child : children) {
+            size += child.length;
+        }
+        ByteBuffer box = ByteBuffer.allocate(size);
+        box.putInt(size).put(type.getBytes(StandardCharsets.ISO_8859_1));
+        for (byte[] child : children) {
+            box.put(child);
+        }
+        return box.array();
+    }
+
+    private static String typeAt(byte[] data, int position) {
+        return new String(data, position + 4, 4, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int indexOf(byte[] data, String type) {
+        int index = indexOf(data, type, 0);
+        if (index < 0) {
+            throw new AssertionError("未找到 " + type);
+        }
+        return index;
+    }
+
+    /**
+     * 从指定位置开始查找 atom，返回 atom 起始位置，未找到返回-1
+     */
+    private static int indexOf(byte[] data, String type, int from) {
+        byte[] pattern = type.getBytes(StandardCharsets.ISO_8859_1);
+        for (int i = from + 4; i + pattern.length <= data.length; i++) {
+            if (Arrays.equals(data, i, i + pattern.length, pattern, 0, pattern.length)) {
+                return i - 4;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,155 @@
+package ustb.hyy.app.backend.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.util.ByteConverter;
+
+class PgBinaryCopyWriterTest {
+
+    /**
+     * 签名(11) 标志位(4) 头扩展长度(4)
+     */
+    private static final int HEADER_SIZE = 19;
+
+    @Test
+    void writesHeaderRowsAndTrailer() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(output)) {
+            writer.startRow(2);
+            writer.writeLong(42L);
+            writer.writeNull();
+            writer.finish();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(output.toByteArray());
+        byte[] signature = new byte[11];
+        buffer.get(signature);
+        assertThat(signature).containsExactly('P', 'G', 'C', 'O', 'P', 'Y', '\n', 0xFF, '\r', '\n', 0);
+        assertThat(buffer.getInt()).isZero();
+        assertThat(buffer.getInt()).isZero();
+        assertThat(buffer.getShort()).isEqualTo((short) 2);
+        assertThat(buffer.getInt()).isEqualTo(8);
+        assertThat(buffer.getLong()).isEqualTo(42L);
+        assertThat(buffer.getInt()).isEqualTo(-1);
+        assertThat(buffer.getShort()).isEqualTo((short) -1);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void encodesNumericLikePostgres() throws IOException {
+        List<BigDecimal> values = List.of(
+                new BigDecimal("0"),
+                new BigDecimal("0.000"),
+                new BigDecimal("1"),
+                new BigDecimal("-1"),
+                new BigDecimal("10000"),
+                new BigDecimal("100000000"),
+                new BigDecimal("12.345"),
+                new BigDecimal("-12.345"),
+                new BigDecimal("0.001"),
+                new BigDecimal("-0.001"),
+                new BigDecimal("0.5000"),
+                new BigDecimal("1234.56789"),
+                new BigDecimal("-98765.4321012"),
+                new BigDecimal("0.00001234"),
+                new BigDecimal("100000000.0001"),
+                new BigDecimal("9999.9999"),
+                new BigDecimal("123456789012345678901234567890.123456789"),
+                new BigDecimal("1E+5"),
+                new BigDecimal("-2.5E+9"));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(output)) {
+            writer.startRow(values.size());
+            for (BigDecimal value : values) {
+                writer.writeNumeric(value);
+            }
+            writer.finish();
+        }
+
+        List<byte[]> fields = readRow(output.toByteArray(), values.size());
+        for (int i = 0; i < values.size(); i++) {
+            BigDecimal expected = values.get(i);
+            BigDecimal actual = (BigDecimal) ByteConverter.numeric(fields.get(i));
+            assertThat(actual).as("numeric %s", expected).isEqualByComparingTo(expected);
+            assertThat(actual.scale()).as("numeric %s 的 dscale", expected).isEqualTo(Math.max(0, expected.scale()));
+        }
+    }
+
+    @Test
+    void writesNullNumeric() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(output)) {
+            writer.startRow(3);
+            writer.writeNumeric(null);
+            writer.writeInt(null);
+            writer.writeText(null);
+            writer.finish();
+        }
+
+        assertThat(readRow(output.toByteArray(), 3)).containsOnlyNulls();
+    }
+
+    @Test
+    void encodesTimestampTextJsonbAndInt() throws IOException {
+        LocalDateTime timestamp = LocalDateTime.of(2025, 10, 23, 12, 34, 56, 789_012_000);
+        LocalDateTime beforeEpoch = LocalDateTime.of(1999, 12, 31, 23, 59, 59);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(output)) {
+            writer.startRow(6);
+            writer.writeTimestamp(timestamp);
+            writer.writeTimestamp(beforeEpoch);
+            writer.writeText("行人 pedestrian");
+            writer.writeJsonb("{\"type\":\"车辆\"}");
+            writer.writeInt(-7);
+            writer.writeInt(Integer.MAX_VALUE);
+            writer.finish();
+        }
+
+        List<byte[]> fields = readRow(output.toByteArray(), 6);
+        LocalDateTime epoch = LocalDateTime.of(2000, 1, 1, 0, 0);
+        assertThat(epoch.plusNanos(ByteBuffer.wrap(fields.get(0)).getLong() * 1000)).isEqualTo(timestamp);
+        assertThat(ByteBuffer.wrap(fields.get(1)).getLong()).isEqualTo(-1_000_000L);
+        assertThat(new String(fields.get(2), StandardCharsets.UTF_8)).isEqualTo("行人 pedestrian");
+        assertThat(fields.get(3)[0]).isEqualTo((byte) 1);
+        assertThat(new String(fields.get(3), 1, fields.get(3).length - 1, StandardCharsets.UTF_8))
+                .isEqualTo("{\"type\":\"车辆\"}");
+        assertThat(ByteBuffer.wrap(fields.get(4)).getInt()).isEqualTo(-7);
+        assertThat(ByteBuffer.wrap(fields.get(5)).getInt()).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    /**
+     * 读取第一行的字段值，NULL 字段为 null
+     */
+    private static List<byte[]> readRow(byte[] data, int fieldCount) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(HEADER_SIZE);
+        assertThat(buffer.getShort()).isEqualTo((short) fieldCount);
+
+        List<byte[]> fields = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            int length = buffer.getInt();
+            if (length < 0) {
+                fields.add(null);
+                continue;
+            }
+            byte[] field = new byte[length];
+            buffer.get(field);
+            fields.add(field);
+        }
+        assertThat(buffer.getShort()).isEqualTo((short) -1);
+        assertThat(buffer.hasRemaining()).isFalse();
+        return fields;
+    }
+}
@@ -0,0 +1,77 @@
+package ustb.hyy.app.backend.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ResumableSha256Test {
+
+    @Test
+    void matchesKnownVectors() {
+        assertThat(hex(sha(new byte[0])))
+                .isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+        assertThat(hex(sha("abc".getBytes(StandardCharsets.US_ASCII))))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        assertThat(hex(sha("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq".getBytes(StandardCharsets.US_ASCII))))
+                .isEqualTo("248d6a61d20638b8e5c026930c3e6039a33ce45964ff2167f6ecedd419db06c1");
+    }
+
+    @Test
+    void matchesMessageDigestAcrossBlockBoundaries() throws NoSuchAlgorithmException {
+        byte[] data = new byte[1000];
+        new Random(42).nextBytes(data);
+
+        for (int size : new int[] {1, 55, 56, 63, 64, 65, 119, 120, 128, 1000}) {
+            byte[] input = Arrays.copyOf(data, size);
+            assertThat(sha(input)).as("%d 字节", size)
+                    .isEqualTo(MessageDigest.getInstance("SHA-256").digest(input));
+        }
+    }
+
+    @Test
+    void resumesFromExportedStateAtAnyOffset() throws NoSuchAlgorithmException {
+        byte[] data = new byte[300];
+        new Random(7).nextBytes(data);
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(data);
+
+        for (int split = 0; split <= data.length; split += 13) {
+            ResumableSha256 first = new ResumableSha256();
+            first.update(data, 0, split);
+
+            ResumableSha256 resumed = ResumableSha256.restore(first.exportState());
+            assertThat(resumed.length()).isEqualTo(split);
+            resumed.update(data, split, data.length - split);
+            assertThat(resumed.digest()).as("在 %d 字节处恢复", split).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void rejectsCorruptState() {
+        ResumableSha256 sha = new ResumableSha256();
+        sha.update(new byte[10], 0, 10);
+        byte[] state = sha.exportState();
+
+        assertThatThrownBy(() -> ResumableSha256.restore(Arrays.copyOf(state, state.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ResumableSha256.restore(new byte[3]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] sha(byte[] data) {
+        ResumableSha256 sha = new ResumableSha256();
+        sha.update(data, 0, data.length);
+        return sha.digest();
+    }
+
+    private static String hex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+}
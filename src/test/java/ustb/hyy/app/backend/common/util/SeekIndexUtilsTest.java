@@ -0,0 +1,125 @@
+package ustb.hyy.app.backend.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SeekIndexUtilsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path video;
+
+    @BeforeEach
+    void createVideo() throws IOException {
+        video = tempDir.resolve("video.mp4");
+        Files.write(video, new byte[1024]);
+    }
+
+    @Test
+    void roundTripsIndex() throws IOException {
+        VideoUtils.KeyframeIndex index = new VideoUtils.KeyframeIndex(29.97, 9000,
+                new long[] {0, 250, 500, 8999},
+                new long[] {0, 8_341_675, 16_683_350, 300_266_633},
+                new long[] {48, 1_200_000, 2_500_000, 5_000_000_000L});
+
+        SeekIndexUtils.write(video, index);
+        VideoUtils.KeyframeIndex read = SeekIndexUtils.read(video);
+
+        assertIndexEquals(read, index);
+        assertThat(Files.exists(SeekIndexUtils.sidecarPath(video).resolveSibling("video.mp4.seekidx.tmp"))).isFalse();
+    }
+
+    @Test
+    void roundTripsNegativeDeltas() throws IOException {
+        // B 帧重排、时间戳回绕或 moov 在末尾时，时间戳和偏移都可能回退
+        VideoUtils.KeyframeIndex index = new VideoUtils.KeyframeIndex(25.0, 100,
+                new long[] {10, 5, 50},
+                new long[] {-40_000, 1_000_000, 200_000},
+                new long[] {9_000_000, 100, Long.MAX_VALUE / 2});
+
+        SeekIndexUtils.write(video, index);
+
+        assertIndexEquals(SeekIndexUtils.read(video), index);
+    }
+
+    @Test
+    void roundTripsEmptyIndex() throws IOException {
+        VideoUtils.KeyframeIndex index = new VideoUtils.KeyframeIndex(30.0, 0, new long[0], new long[0], new long[0]);
+
+        SeekIndexUtils.write(video, index);
+
+        assertIndexEquals(SeekIndexUtils.read(video), index);
+    }
+
+    @Test
+    void returnsNullForTruncatedSidecar() throws IOException {
+        SeekIndexUtils.write(video, new VideoUtils.KeyframeIndex(25.0, 1000,
+                new long[] {0, 250, 500}, new long[] {0, 10_000_000, 20_000_000}, new long[] {0, 4096, 8192}));
+        Path sidecar = SeekIndexUtils.sidecarPath(video);
+        byte[] data = Files.readAllBytes(sidecar);
+
+        for (int length = 0; length < data.length; length++) {
+            Files.write(sidecar, Arrays.copyOf(data, length));
+            assertThat(SeekIndexUtils.read(video)).as("截断到 %d 字节", length).isNull();
+        }
+    }
+
+    @Test
+    void returnsNullForCorruptCount() throws IOException {
+        SeekIndexUtils.write(video, new VideoUtils.KeyframeIndex(25.0, 1, new long[] {0}, new long[] {0},
+                new long[] {0}));
+        Path sidecar = SeekIndexUtils.sidecarPath(video);
+        byte[] data = Files.readAllBytes(sidecar);
+        // magic(4) version(1) videoSize(8) videoMtime(8) frameRate(8) totalFrames(1) 之后是 count，改为负数
+        byte[] corrupt = Arrays.copyOf(data, 40);
+        Arrays.fill(corrupt, 30, 39, (byte) 0xFF);
+        corrupt[39] = 0x01;
+        Files.write(sidecar, corrupt);
+
+        assertThat(SeekIndexUtils.read(video)).isNull();
+    }
+
+    @Test
+    void returnsNullWhenVideoChanged() throws IOException {
+        SeekIndexUtils.write(video, new VideoUtils.KeyframeIndex(25.0, 1, new long[] {0}, new long[] {0},
+                new long[] {0}));
+
+        Files.setLastModifiedTime(video, FileTime.fromMillis(Files.getLastModifiedTime(video).toMillis() + 5000));
+        assertThat(SeekIndexUtils.read(video)).isNull();
+    }
+
+    @Test
+    void returnsNullWhenVideoSizeChanged() throws IOException {
+        FileTime mtime = Files.getLastModifiedTime(video);
+        SeekIndexUtils.write(video, new VideoUtils.KeyframeIndex(25.0, 1, new long[] {0}, new long[] {0},
+                new long[] {0}));
+
+        Files.write(video, new byte[2048]);
+        Files.setLastModifiedTime(video, mtime);
+        assertThat(SeekIndexUtils.read(video)).isNull();
+    }
+
+    @Test
+    void returnsNullWithoutSidecar() {
+        assertThat(SeekIndexUtils.read(video)).isNull();
+    }
+
+    private static void assertIndexEquals(VideoUtils.KeyframeIndex actual, VideoUtils.KeyframeIndex expected) {
+        assertThat(actual).isNotNull();
+        assertThat(actual.frameRate()).isEqualTo(expected.frameRate());
+        assertThat(actual.totalFrames()).isEqualTo(expected.totalFrames());
+        assertThat(actual.keyframeFrames()).containsExactly(expected.keyframeFrames());
+        assertThat(actual.keyframeTimestamps()).containsExactly(expected.keyframeTimestamps());
+        assertThat(actual.keyframeOffsets()).containsExactly(expected.keyframeOffsets());
+    }
+}
@@ -0,0 +1,166 @@
+package ustb.hyy.app.backend.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ustb.hyy.app.backend.common.exception.BusinessException;
+
+class TrajectoryCodecTest {
+
+    @Test
+    void roundTripsFramesAndBoxesExactly() {
+        List<Map<String, Object>> points = List.of(
+                point(100, List.of(10, 20, 30, 40), 0.95),
+                point(101, List.of(-32768, 0, 32767, 5), 0.0),
+                point(5000, List.of(1, 2, 3, 4), 1.0));
+
+        TrajectoryCodec.Trajectory trajectory = TrajectoryCodec.decode(TrajectoryCodec.encode(points));
+
+        assertThat(trajectory.size()).isEqualTo(3);
+        assertThat(trajectory.toList()).extracting(p -> p.get("frame")).containsExactly(100, 101, 5000);
+        assertThat(trajectory.toList()).extracting(p -> p.get("bbox"))
+                .containsExactly(List.of(10, 20, 30, 40), List.of(-32768, 0, 32767, 5), List.of(1, 2, 3, 4));
+        assertThat(trajectory.confidence(0)).isCloseTo(0.95, offset(0.002));
+        assertThat(trajectory.confidence(1)).isEqualTo(0.0);
+        assertThat(trajectory.confidence(2)).isEqualTo(1.0);
+    }
+
+    @Test
+    void keepsNegativeFrameDeltasAndSortsByFrame() {
+        List<Map<String, Object>> points = List.of(
+                point(500, List.of(500, 0, 1, 1), 0.5),
+                point(20, List.of(20, 0, 1, 1), 0.5),
+                point(-3, List.of(-3, 0, 1, 1), 0.5),
+                point(Integer.MAX_VALUE, List.of(1, 0, 1, 1), 0.5),
+                point(Integer.MIN_VALUE, List.of(2, 0, 1, 1), 0.5));
+
+        TrajectoryCodec.Trajectory trajectory = TrajectoryCodec.decode(TrajectoryCodec.encode(points));
+
+        assertThat(trajectory.size()).isEqualTo(5);
+        assertThat(Arrays.copyOf(trajectory.frames(), 5))
+                .containsExactly(Integer.MIN_VALUE, -3, 20, 500, Integer.MAX_VALUE);
+        // 边界框、置信度随帧号一起移动
+        assertThat(trajectory.toList()).extracting(p -> (Object) ((List<?>) p.get("bbox")).get(0))
+                .containsExactly(2, -3, 20, 500, 1);
+    }
+
+    @Test
+    void sortsConcatenatedSegmentsByFrame() {
+        // 后提交的分段帧号更小（分片重试后到达），两段帧号范围交错
+        byte[] later = TrajectoryCodec.encode(List.of(point(10, List.of(1, 1, 2, 2), 0.1),
+                point(12, List.of(1, 1, 2, 2), 0.2), point(14, List.of(7, 7, 8, 8), 1.0)));
+        byte[] earlier = TrajectoryCodec.encode(List.of(point(3, List.of(5, 5, 6, 6), 0.3),
+                point(12, List.of(9, 9, 9, 9), 0.0), point(13, List.of(4, 4, 4, 4), 0.0)));
+        byte[] empty = TrajectoryCodec.encode(List.of());
+
+        TrajectoryCodec.Trajectory trajectory = TrajectoryCodec.decode(concat(later, empty, earlier));
+
+        assertThat(trajectory.size()).isEqualTo(6);
+        assertThat(Arrays.copyOf(trajectory.frames(), 6)).containsExactly(3, 10, 12, 12, 13, 14);
+        assertThat(trajectory.x1(0)).isEqualTo(5);
+        // 同一帧保持写入顺序
+        assertThat(trajectory.x1(2)).isEqualTo(1);
+        assertThat(trajectory.x1(3)).isEqualTo(9);
+        assertThat(trajectory.confidence(5)).isEqualTo(1.0);
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        List<Map<String, Object>> points = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            points.add(point(i, List.of(i, i, i + 1, i + 1), 0.5));
+        }
+
+        TrajectoryCodec.Trajectory trajectory = TrajectoryCodec.decode(TrajectoryCodec.encode(points));
+
+        assertThat(trajectory.size()).isEqualTo(1000);
+        assertThat(trajectory.frame(999)).isEqualTo(999);
+        assertThat(trajectory.y2(999)).isEqualTo(1000);
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        byte[] data = TrajectoryCodec.encode(List.of(point(10, List.of(1, 2, 3, 4), 0.5),
+                point(12, List.of(1, 2, 3, 4), 0.5)));
+
+        for (int length = 1; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThatThrownBy(() -> TrajectoryCodec.decode(truncated)).isInstanceOf(BusinessException.class);
+        }
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] data = TrajectoryCodec.encode(List.of(point(10, List.of(1, 2, 3, 4), 0.5)));
+        data[0] = 2;
+
+        assertThatThrownBy(() -> TrajectoryCodec.decode(data)).isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    void leavesNonStandardTrajectoriesToJson() {
+        assertThat(TrajectoryCodec.encode(null)).isNull();
+        assertThat(TrajectoryCodec.encode(Map.of("frame", 1))).isNull();
+        assertThat(TrajectoryCodec.encode(List.of(point(1, List.of(1.5, 2, 3, 4), 0.5)))).isNull();
+        assertThat(TrajectoryCodec.encode(List.of(point(1, List.of(1, 2, 3, 40000), 0.5)))).isNull();
+        assertThat(TrajectoryCodec.encode(List.of(point(1, List.of(1, 2, 3), 0.5)))).isNull();
+        assertThat(TrajectoryCodec.encode(List.of(point(1.5, List.of(1, 2, 3, 4), 0.5)))).isNull();
+        assertThat(TrajectoryCodec.encode(List.of(point(1L + Integer.MAX_VALUE, List.of(1, 2, 3, 4), 0.5)))).isNull();
+
+        Map<String, Object> extra = point(1, List.of(1, 2, 3, 4), 0.5);
+        extra.put("label", "car");
+        assertThat(TrajectoryCodec.encode(List.of(extra))).isNull();
+    }
+
+    @Test
+    void acceptsIntegralDoubleCoordinates() {
+        byte[] data = TrajectoryCodec.encode(List.of(point(1, List.of(1.0, 2.0, 3.0, 4.0), 0.5)));
+
+        assertThat(data).isNotNull();
+        assertThat(TrajectoryCodec.decode(data).toList().get(0).get("bbox")).isEqualTo(List.of(1, 2, 3, 4));
+    }
+
+    @Test
+    void serializesToOriginalJsonShape() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Map<String, Object>> points = List.of(point(7, List.of(1, 2, 3, 4), 1.0),
+                point(9, List.of(5, 6, 7, 8), 0.0));
+
+        TrajectoryCodec.Trajectory trajectory = TrajectoryCodec.decode(TrajectoryCodec.encode(points));
+
+        assertThat(objectMapper.writeValueAsString(trajectory)).isEqualTo(objectMapper.writeValueAsString(points));
+    }
+
+    private static Map<String, Object> point(Number frame, List<? extends Number> bbox, double confidence) {
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put("frame", frame);
+        point.put("bbox", bbox);
+        point.put("confidence", confidence);
+        return point;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] result = new byte[length];
+        int position = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, position, part.length);
+            position += part.length;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,34 @@
+package ustb.hyy.app.backend.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class VideoUtilsTest {
+
+    @Test
+    void locatesKeyframeByFrameNumberForVariableFrameRate() {
+        // 前 100 帧 50fps，之后 10fps，按平均帧率换算的时间戳会偏离实际关键帧
+        VideoUtils.KeyframeIndex index = new VideoUtils.KeyframeIndex(25.0, 300,
+                new long[] {0, 100, 200},
+                new long[] {0, 2_000_000, 12_000_000},
+                new long[] {48, 4096, 8192});
+
+        assertThat(index.keyframeFrameBefore(150)).isEqualTo(100);
+        assertThat(index.keyframeTimestampBeforeFrame(150)).isEqualTo(2_000_000);
+        assertThat(index.keyframeFrameBefore(200)).isEqualTo(200);
+        assertThat(index.keyframeTimestampBeforeFrame(299)).isEqualTo(12_000_000);
+        // 按时间戳查找会落到前一个 GOP
+        assertThat(index.keyframeBefore(index.frameTimestamp(250))).isEqualTo(2_000_000);
+    }
+
+    @Test
+    void fallsBackToStartWithoutKeyframe() {
+        VideoUtils.KeyframeIndex index = new VideoUtils.KeyframeIndex(25.0, 100,
+                new long[] {10}, new long[] {400_000}, new long[] {48});
+
+        assertThat(index.keyframeFrameBefore(5)).isZero();
+        assertThat(index.keyframeTimestampBeforeFrame(5)).isZero();
+        assertThat(index.keyframeFrameBefore(10)).isEqualTo(10);
+    }
+}
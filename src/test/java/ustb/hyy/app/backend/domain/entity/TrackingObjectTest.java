@@ -0,0 +1,94 @@
+package ustb.hyy.app.backend.domain.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import ustb.hyy.app.backend.common.util.TrajectoryCodec;
+
+class TrackingObjectTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void mergesJsonAndCompactTrajectoriesByFrame() {
+        TrackingObject object = new TrackingObject();
+        object.setTrajectory(List.of(point(1, 1.5), point(4, 1.5), point(6, 1.5)));
+        object.setTrajectoryData(TrajectoryCodec.encode(List.of(point(2, 1), point(4, 1), point(5, 1), point(9, 1))));
+
+        List<Object> output = (List<Object>) object.getTrajectoryForOutput();
+
+        assertThat(output).extracting(p -> (Object) ((Map<?, ?>) p).get("frame")).containsExactly(1, 2, 4, 4, 5, 6, 9);
+        // 同一帧 JSON 轨迹在前
+        assertThat(((Map<?, ?>) output.get(2)).get("bbox")).isEqualTo(List.of(1.5, 1.5, 1.5, 1.5));
+        assertThat(((Map<?, ?>) output.get(3)).get("bbox")).isEqualTo(List.of(1, 1, 1, 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void mergesOutOfOrderCompactSegmentsByFrame() {
+        TrackingObject object = new TrackingObject();
+        object.setTrajectory(List.of(point(3, 1.5), point(8, 1.5)));
+        byte[] later = TrajectoryCodec.encode(List.of(point(7, 1), point(9, 1)));
+        byte[] earlier = TrajectoryCodec.encode(List.of(point(1, 1), point(4, 1)));
+        byte[] data = new byte[later.length + earlier.length];
+        System.arraycopy(later, 0, data, 0, later.length);
+        System.arraycopy(earlier, 0, data, later.length, earlier.length);
+        object.setTrajectoryData(data);
+
+        List<Object> output = (List<Object>) object.getTrajectoryForOutput();
+
+        assertThat(output).extracting(p -> (Object) ((Map<?, ?>) p).get("frame")).containsExactly(1, 3, 4, 7, 8, 9);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ordersChunksSubmittedOutOfOrderByFrame() {
+        // 分块 1（帧 10-11）先到达，重试的分块 0（帧 0-1）后到达，upsert 按到达顺序追加两种格式的轨迹
+        List<Map<String, Object>> chunk0Json = List.of(point(0, 0.5), point(1, 0.5));
+        List<Map<String, Object>> chunk1Json = List.of(point(10, 0.5), point(11, 0.5));
+        byte[] chunk0Compact = TrajectoryCodec.encode(List.of(point(0, 2), point(2, 2)));
+        byte[] chunk1Compact = TrajectoryCodec.encode(List.of(point(10, 2), point(12, 2)));
+
+        List<Object> json = new ArrayList<>(chunk1Json);
+        json.addAll(chunk0Json);
+        byte[] compact = new byte[chunk1Compact.length + chunk0Compact.length];
+        System.arraycopy(chunk1Compact, 0, compact, 0, chunk1Compact.length);
+        System.arraycopy(chunk0Compact, 0, compact, chunk1Compact.length, chunk0Compact.length);
+
+        TrackingObject jsonOnly = new TrackingObject();
+        jsonOnly.setTrajectory(json);
+        assertThat((List<Object>) jsonOnly.getTrajectoryForOutput())
+                .extracting(p -> (Object) ((Map<?, ?>) p).get("frame")).containsExactly(0, 1, 10, 11);
+
+        TrackingObject both = new TrackingObject();
+        both.setTrajectory(json);
+        both.setTrajectoryData(compact);
+        assertThat((List<Object>) both.getTrajectoryForOutput())
+                .extracting(p -> (Object) ((Map<?, ?>) p).get("frame")).containsExactly(0, 0, 1, 2, 10, 10, 11, 12);
+    }
+
+    @Test
+    void returnsSingleSourceAsIs() {
+        TrackingObject compactOnly = new TrackingObject();
+        compactOnly.setTrajectoryData(TrajectoryCodec.encode(List.of(point(2, 1))));
+        assertThat(compactOnly.getTrajectoryForOutput()).isInstanceOf(TrajectoryCodec.Trajectory.class);
+
+        List<Map<String, Object>> legacy = List.of(point(3, 1.5));
+        TrackingObject jsonOnly = new TrackingObject();
+        jsonOnly.setTrajectory(legacy);
+        assertThat(jsonOnly.getTrajectoryForOutput()).isSameAs(legacy);
+    }
+
+    private static Map<String, Object> point(int frame, Number coordinate) {
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put("frame", frame);
+        point.put("bbox", new ArrayList<>(List.of(coordinate, coordinate, coordinate, coordinate)));
+        point.put("confidence", 0.5);
+        return point;
+    }
+}
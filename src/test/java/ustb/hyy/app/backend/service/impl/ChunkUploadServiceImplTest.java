@@ -0,0 +1,202 @@
+package ustb.hyy.app.backend.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ustb.hyy.app.backend.cache.ChunkUploadCache;
+import ustb.hyy.app.backend.common.exception.BusinessException;
+import ustb.hyy.app.backend.dto.request.ChunkUploadInitRequest;
+import ustb.hyy.app.backend.service.ChunkUploadService;
+import ustb.hyy.app.backend.service.TranscodeScheduler;
+
+class ChunkUploadServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final InMemoryUploadCache uploadCache = new InMemoryUploadCache();
+    private ChunkUploadServiceImpl service;
+    private byte[] video;
+
+    @BeforeEach
+    void setUp() {
+        service = new ChunkUploadServiceImpl(uploadCache, new AdmittingScheduler());
+        ReflectionTestUtils.setField(service, "storageBasePath", tempDir.toString());
+        ReflectionTestUtils.setField(service, "tempSubdir", "temp");
+
+        video = new byte[3 * 1000 + 17];
+        new Random(1).nextBytes(video);
+    }
+
+    @Test
+    void hashesChunksWhileUploading() throws Exception {
+        String uploadId = init();
+
+        append(uploadId, 0, 1000);
+        append(uploadId, 1000, 3000);
+        append(uploadId, 3000, video.length);
+
+        ChunkUploadService.CompletedUpload upload = service.claimCompletedUpload(uploadId);
+        assertThat(upload.contentHash()).isEqualTo(sha256(video));
+        assertThat(Files.readAllBytes(upload.file())).isEqualTo(video);
+    }
+
+    @Test
+    void catchesUpDataWrittenByInterruptedChunk() throws Exception {
+        String uploadId = init();
+        append(uploadId, 0, 1000);
+
+        // 分片写入中途连接断开：数据已写入文件，但哈希状态没有保存
+        assertThatThrownBy(() -> service.appendChunk(uploadId, 1000, failingAfter(1000, 1500)))
+                .isInstanceOf(BusinessException.class);
+        assertThat(service.getUploadStatus(uploadId).getReceivedSize()).isEqualTo(1500);
+
+        append(uploadId, 1500, video.length);
+
+        assertThat(service.claimCompletedUpload(uploadId).contentHash()).isEqualTo(sha256(video));
+    }
+
+    @Test
+    void rehashesRetransmittedChunk() throws Exception {
+        String uploadId = init();
+        append(uploadId, 0, 2000);
+        // 上次响应丢失，客户端从更早的偏移量重传
+        append(uploadId, 1000, video.length);
+
+        // 截断了已计算哈希的数据，交给导入线程重新读取文件计算
+        assertThat(service.claimCompletedUpload(uploadId).contentHash()).isNull();
+    }
+
+    @Test
+    void fallsBackWithoutHashState() throws Exception {
+        String uploadId = init();
+        append(uploadId, 0, 1000);
+        uploadCache.getSession(uploadId).setHashState(null);
+        append(uploadId, 1000, video.length);
+
+        assertThat(service.claimCompletedUpload(uploadId).contentHash()).isNull();
+    }
+
+    private String init() {
+        ChunkUploadInitRequest request = new ChunkUploadInitRequest();
+        request.setFilename("video.mp4");
+        request.setTotalSize((long) video.length);
+        return service.initUpload(request).getUploadId();
+    }
+
+    private void append(String uploadId, int from, int to) {
+        service.appendChunk(uploadId, from, new ByteArrayInputStream(Arrays.copyOfRange(video, from, to)));
+    }
+
+    /**
+     * 读到指定位置后抛出异常的输入流，模拟连接中断
+     */
+    private InputStream failingAfter(int from, int to) {
+        return new FilterInputStream(new ByteArrayInputStream(Arrays.copyOfRange(video, from, to))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read == -1) {
+                    throw new IOException("Connection reset");
+                }
+                return read;
+            }
+        };
+    }
+
+    private static String sha256(byte[] data) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private static class InMemoryUploadCache extends ChunkUploadCache {
+
+        private final Map<String, UploadSession> sessions = new HashMap<>();
+        private final Set<String> completing = new HashSet<>();
+
+        InMemoryUploadCache() {
+            super(null);
+        }
+
+        @Override
+        public void saveSession(UploadSession session) {
+            sessions.put(session.getUploadId(), session);
+        }
+
+        @Override
+        public UploadSession getSession(String uploadId) {
+            return sessions.get(uploadId);
+        }
+
+        @Override
+        public boolean sessionExists(String uploadId) {
+            return sessions.containsKey(uploadId);
+        }
+
+        @Override
+        public void touchSession(String uploadId) {
+        }
+
+        @Override
+        public void deleteSession(String uploadId) {
+            sessions.remove(uploadId);
+        }
+
+        @Override
+        public boolean markCompleting(String uploadId) {
+            return completing.add(uploadId);
+        }
+
+        @Override
+        public boolean isCompleting(String uploadId) {
+            return completing.contains(uploadId);
+        }
+
+        @Override
+        public void clearCompleting(String uploadId) {
+            completing.remove(uploadId);
+        }
+    }
+
+    private static class AdmittingScheduler implements TranscodeScheduler {
+
+        @Override
+        public void checkAdmission() {
+        }
+
+        @Override
+        public Reservation reserve() {
+            return () -> { };
+        }
+
+        @Override
+        public long estimateWaitSeconds() {
+            return 0;
+        }
+
+        @Override
+        public void execute(Reservation reservation, Long taskId, int videoDuration, Runnable job) {
+            job.run();
+        }
+    }
+}